@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import strategy.StrategyGame;
+import strategy.crmyers.beta.pieces.Scout;
+import strategy.required.StrategyGameFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Benchmarks for the game core: moves, strikes, board copies and board drawing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+	@Param({"MASTER", "SWAPPED"})
+	private Lineup lineup;
+
+	private strategy.Board source;
+	private BetaBoard board;
+	private BitBoard bitBoard;
+	private PieceDefined[] pieces;
+	private Scout scout;
+	private BetaBoard scoutBoard;
+	private int[] moves;
+
+	/**
+	 * A fresh game for every call. It's a state of its own so that only the game benchmarks pay for Level.Invocation
+	 * setup, which would swamp the nanosecond-scale ones.
+	 */
+	@State(Scope.Thread)
+	public static class GameState {
+
+		@Param({"MASTER", "SWAPPED"})
+		private Lineup lineup;
+
+		private strategy.Board source;
+		private StrategyGame game;
+
+		@Setup(Level.Trial)
+		public void setupTrial() {
+			source = lineup.board();
+		}
+
+		@Setup(Level.Invocation)
+		public void setupInvocation() {
+			game = StrategyGameFactory.makeGame(StrategyGame.Version.BETA, source);
+		}
+	}
+
+	/**
+	 * A fresh VariantGame for every call, on the Beta board or on Delta's, to see what the bigger board costs per move.
+	 */
+	@State(Scope.Thread)
+	public static class VariantState {
+
+		@Param({"MASTER", "SWAPPED"})
+		private Lineup lineup;
+
+		@Param({"BETA", "DELTA"})
+		private String rules;
+
+		private strategy.Board source;
+		private int[][] script;
+		private StrategyGame game;
+
+		@Setup(Level.Trial)
+		public void setupTrial() {
+			final boolean delta = rules.equals("DELTA");
+			source = delta ? lineup.delta() : lineup.board();
+			script = delta ? Lineup.DELTA_SCRIPT : Lineup.SCRIPT;
+		}
+
+		@Setup(Level.Invocation)
+		public void setupInvocation() {
+			game = rules.equals("DELTA") ? StrategyGameFactory.makeGame(StrategyGame.Version.DELTA, source) :
+					new VariantGame(RuleSet.BETA, source);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setupTrial() {
+		source = lineup.board();
+		board = new BetaBoard(source);
+		bitBoard = new BitBoard(source);
+		moves = new int[MoveGenerator.MAX_MOVES];
+
+		// Every piece on the board, for strikes
+		pieces = new PieceDefined[24];
+		int count = 0;
+		for (int i = 0; i < BetaBoard.ROWS; i++) {
+			for (int j = 0; j < BetaBoard.COLS; j++) {
+				if (board.getPieceAt(i, j) != null)
+					pieces[count++] = board.getPieceAt(i, j);
+			}
+		}
+
+		// A scout with the whole middle of the board to itself
+		scout = new Scout(RED);
+		scoutBoard = new BetaBoard();
+		scoutBoard.put(scout, 2, 0);
+	}
+
+	/**
+	 * A full scripted game through BetaGame.move()
+	 */
+	@Benchmark
+	public void betaGameMove(GameState state, Blackhole bh) {
+		for (int[] m : Lineup.SCRIPT)
+			bh.consume(state.game.move(m[0], m[1], m[2], m[3]));
+	}
+
+	/**
+	 * A full sixteen-ply game through VariantGame.move(), on either board
+	 */
+	@Benchmark
+	public void variantGameMove(VariantState state, Blackhole bh) {
+		for (int[] m : state.script)
+			bh.consume(state.game.move(m[0], m[1], m[2], m[3]));
+	}
+
+	/**
+	 * Every red piece striking every blue piece with PieceDefined.strike()
+	 */
+	@Benchmark
+	public void strike(Blackhole bh) {
+		for (int i = 0; i < 12; i++) {
+			for (int j = 12; j < 24; j++) {
+				final PieceDefined attacker = pieces[i];
+				if (attacker.getPieceType() != strategy.Piece.PieceType.FLAG)
+					bh.consume(attacker.strike(pieces[j]));
+			}
+		}
+	}
+
+	/**
+	 * Long scout moves with Scout.move()
+	 */
+	@Benchmark
+	public void scoutMove(Blackhole bh) {
+		bh.consume(scout.move(scoutBoard, 2, 0, 2, 5));
+		bh.consume(scout.move(scoutBoard, 2, 0, 5, 0));
+	}
+
+	/**
+	 * BetaBoard(Board) copy constructor
+	 */
+	@Benchmark
+	public BetaBoard betaBoardCopy() {
+		return new BetaBoard(source);
+	}
+
+	/**
+	 * BitBoard(Board) copy constructor, for comparison
+	 */
+	@Benchmark
+	public BitBoard bitBoardCopy() {
+		return new BitBoard(source);
+	}
+
+	/**
+	 * BetaBoard.toString()
+	 */
+	@Benchmark
+	public String betaBoardToString() {
+		return board.toString();
+	}
+
+	/**
+	 * Legal move generation for red
+	 */
+	@Benchmark
+	public int generateMoves() {
+		return MoveGenerator.generate(bitBoard, RED, moves);
+	}
+
+	/**
+	 * Make and unmake every legal move for red
+	 */
+	@Benchmark
+	public void makeUnmake(Blackhole bh) {
+		final int count = MoveGenerator.generate(bitBoard, RED, moves);
+		for (int i = 0; i < count; i++) {
+			bh.consume(bitBoard.makeMove(moves[i]));
+			bitBoard.unmakeMove();
+		}
+	}
+}
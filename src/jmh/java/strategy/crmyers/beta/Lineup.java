@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.Piece;
+import strategy.gpollice.testutil.TestBoard;
+
+import java.util.List;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+import static strategy.Piece.PieceType.*;
+
+/**
+ * Board lineups for benchmarks, taken from BetaStrategyMasterTests.
+ */
+public enum Lineup {
+	/**
+	 * The lineups used by the master tests
+	 */
+	MASTER,
+	/**
+	 * Same lineups, but red and blue swap piece types
+	 */
+	SWAPPED;
+
+	private static final Piece.PieceType[] RED_LINEUP = {SERGEANT, SERGEANT, COLONEL, CAPTAIN, LIEUTENANT, LIEUTENANT,
+			FLAG, MARSHAL, COLONEL, CAPTAIN, LIEUTENANT, SERGEANT};
+	private static final Piece.PieceType[] BLUE_LINEUP = {MARSHAL, COLONEL, CAPTAIN, SERGEANT, FLAG, LIEUTENANT,
+			LIEUTENANT, LIEUTENANT, SERGEANT, SERGEANT, COLONEL, CAPTAIN};
+
+	/**
+	 * The moves from the master tests' redWinsAfterEightTurns, as {fr, fc, tr, tc}; legal for every setup here.
+	 */
+	static final int[][] SCRIPT = {
+			{1, 1, 2, 1}, {4, 2, 3, 2}, {2, 1, 1, 1}, {3, 2, 4, 2},
+			{1, 1, 2, 1}, {4, 2, 3, 2}, {2, 1, 1, 1}, {3, 2, 4, 2},
+			{1, 1, 2, 1}, {4, 2, 3, 2}, {2, 1, 1, 1}, {3, 2, 4, 2},
+			{1, 1, 2, 1}, {4, 2, 3, 2}, {2, 1, 1, 1}, {3, 2, 4, 2},
+	};
+
+	/**
+	 * Sixteen plies on the Delta board from delta(), as {fr, fc, tr, tc}: pieces walk up the columns clear of the lakes
+	 * without striking or repeating, so the repetition rule never kicks in. Legal for every setup here.
+	 */
+	static final int[][] DELTA_SCRIPT = {
+			{1, 1, 2, 1}, {8, 0, 7, 0}, {2, 1, 3, 1}, {7, 0, 6, 0},
+			{3, 1, 4, 1}, {6, 0, 5, 0}, {4, 1, 5, 1}, {5, 0, 4, 0},
+			{1, 4, 2, 4}, {8, 4, 7, 4}, {2, 4, 3, 4}, {7, 4, 6, 4},
+			{3, 4, 4, 4}, {6, 4, 5, 4}, {5, 1, 6, 1}, {8, 1, 7, 1},
+	};
+
+	/**
+	 * @return A fresh board with this setup
+	 */
+	TestBoard board() {
+		final TestBoard board = new TestBoard(6, 6);
+		final boolean swapped = this == SWAPPED;
+		final List<Piece> red = board.makeLineup(RED, swapped ? BLUE_LINEUP : RED_LINEUP);
+		final List<Piece> blue = board.makeLineup(BLUE, swapped ? RED_LINEUP : BLUE_LINEUP);
+		board.initialize(6, 6, red, blue);
+		return board;
+	}
+
+	/**
+	 * @return A fresh Delta board with this setup: red's two rows at the bottom as usual, blue's pushed up to the top,
+	 * everything in the six leftmost columns
+	 */
+	BetaBoard delta() {
+		final TestBoard source = board();
+		final BetaBoard delta = new BetaBoard(RuleSet.DELTA);
+		for (int i = 0; i < 6; i++) {
+			for (int j = 0; j < 6; j++) {
+				final Piece piece = source.getPieceAt(i, j);
+				if (piece != null)
+					delta.put(BetaBoard.makePiece(piece.getPieceType(), piece.getPieceColor()), i < 2 ? i : i + 4, j);
+			}
+		}
+		return delta;
+	}
+}
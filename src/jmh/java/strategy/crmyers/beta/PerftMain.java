@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command-line perft, run with "gradlew perft -PperftArgs=...". Arguments, all optional: depth (default 4), lineup
+ * (MASTER or SWAPPED, default MASTER), "divide" to list the count under every root move, and "threads=N" for the
+ * number of threads (default: every core). Prints the leaf count and how many leaves were counted per second.
+ */
+public class PerftMain {
+
+	public static void main(String[] args) {
+		int depth = 4;
+		int threads = Runtime.getRuntime().availableProcessors();
+		Lineup lineup = Lineup.MASTER;
+		boolean divide = false;
+		for (String arg : args) {
+			if (arg.equals("divide"))
+				divide = true;
+			else if (arg.startsWith("threads="))
+				threads = Integer.parseInt(arg.substring("threads=".length()));
+			else if (arg.matches("\\d+"))
+				depth = Integer.parseInt(arg);
+			else
+				lineup = Lineup.valueOf(arg.toUpperCase());
+		}
+
+		final BitBoard board = new BitBoard(lineup.board());
+		final ForkJoinPool pool = new ForkJoinPool(threads);
+		final long start = System.nanoTime();
+		final Map<Integer, Long> counts = new Perft(pool).divide(board, depth);
+		final long elapsed = System.nanoTime() - start;
+		pool.shutdown();
+
+		long total = 0;
+		for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+			total += entry.getValue();
+			if (divide) {
+				System.out.println(board.getRules().toString(entry.getKey()) + ": " + entry.getValue());
+			}
+		}
+		System.out.println(lineup + ", depth " + depth + ", " + threads + " threads: " + total + " leaves in " +
+				elapsed / 1_000_000 + " ms (" + (long) (total / (elapsed / 1e9)) + " leaves/s)");
+	}
+}
@@ -29,88 +29,126 @@ import strategy.crmyers.beta.pieces.*;
 
 public class BetaBoard implements strategy.Board {
 
-	// Constants
+	// Size of the Beta board; other variants get theirs from a RuleSet
 	static final int ROWS = 6;
 	static final int COLS = 6;
 
-	private final PieceDefined[][] pieces;
-	private final SquareType[][] squares;
+	// One shared piece per color and type, indexed like BitBoard's masks; pieces are immutable, so that's all we need
+	private static final PieceDefined[] FLYWEIGHTS = new PieceDefined[2 * BitBoard.TYPES];
+
+	static {
+		for (Piece.PieceColor color : Piece.PieceColor.values())
+			for (Piece.PieceType type : Piece.PieceType.values())
+				FLYWEIGHTS[BitBoard.maskIndex(color, type)] = create(type, color);
+	}
+
+	private final RuleSet rules;
+	// Flat, indexed by square (see RuleSet.square()), so lookups by square don't have to divide
+	private final PieceDefined[] pieces;
+	private final SquareType[] squares;
+	private long key;
 
 	/**
 	 * Initialize the board; in beta strategy, there are no choke points and the board does not have pieces by default.
 	 */
 	public BetaBoard() {
-		pieces = new PieceDefined[ROWS][COLS];
-		squares = new SquareType[ROWS][COLS];
-		for (int i = 0; i < ROWS; i++) {
-			for (int j = 0; j < COLS; j++) {
-				squares[i][j] = SquareType.NORMAL;
-			}
-		}
+		this(RuleSet.BETA);
 	}
 
 	/**
-	 * Copy constructor; accepts a board, copies it to this implementation.
+	 * Initialize an empty board with the rule set's size and choke points. Unlike BitBoard, any size a rule set can
+	 * describe works here.
+	 *
+	 * @param rules Rules to play by
+	 */
+	public BetaBoard(RuleSet rules) {
+		this.rules = rules;
+		pieces = new PieceDefined[rules.getSquares()];
+		squares = new SquareType[rules.getSquares()];
+		for (int sq = 0; sq < rules.getSquares(); sq++)
+			squares[sq] = rules.isChoke(sq) ? SquareType.CHOKE : SquareType.NORMAL;
+	}
+
+	/**
+	 * Copy constructor; accepts a board, copies it to this implementation under the Beta rules.
 	 *
 	 * @param board BetaBoard to copy
 	 */
 	public BetaBoard(strategy.Board board) {
-		pieces = new PieceDefined[ROWS][COLS];
-		squares = new SquareType[ROWS][COLS];
-		for (int i = 0; i < ROWS; i++) {
-			for (int j = 0; j < COLS; j++) {
-				squares[i][j] = board.getSquareTypeAt(i, j);
+		this(RuleSet.BETA, board);
+	}
+
+	/**
+	 * Copy constructor; accepts a board, copies it to this implementation. Choke points come from the board.
+	 *
+	 * @param rules Rules to play by
+	 * @param board Board to copy
+	 */
+	public BetaBoard(RuleSet rules, strategy.Board board) {
+		this.rules = rules;
+		pieces = new PieceDefined[rules.getSquares()];
+		squares = new SquareType[rules.getSquares()];
+		for (int i = 0; i < rules.getRows(); i++) {
+			for (int j = 0; j < rules.getCols(); j++) {
+				squares[rules.square(i, j)] = board.getSquareTypeAt(i, j);
 
 				final Piece piece = board.getPieceAt(i, j);
 				if (piece == null)
 					continue;
-				final Piece.PieceColor color = piece.getPieceColor();
-
-				PieceDefined newPiece;
-				switch (piece.getPieceType()) {
-					case BOMB:
-						newPiece = new Bomb(color);
-						break;
-					case CAPTAIN:
-						newPiece = new Captain(color);
-						break;
-					case COLONEL:
-						newPiece = new Colonel(color);
-						break;
-					case FLAG:
-						newPiece = new Flag(color);
-						break;
-					case GENERAL:
-						newPiece = new General(color);
-						break;
-					case LIEUTENANT:
-						newPiece = new Lieutenant(color);
-						break;
-					case MAJOR:
-						newPiece = new Major(color);
-						break;
-					case MARSHAL:
-						newPiece = new Marshal(color);
-						break;
-					case MINER:
-						newPiece = new Miner(color);
-						break;
-					case SCOUT:
-						newPiece = new Scout(color);
-						break;
-					case SERGEANT:
-						newPiece = new Sergeant(color);
-						break;
-					default: // Spy
-						newPiece = new Spy(color);
-						break;
-				}
-
-				pieces[i][j] = newPiece;
+				put(makePiece(piece.getPieceType(), piece.getPieceColor()), i, j);
 			}
 		}
 	}
 
+	/**
+	 * Get the piece of the given type and color. Shared with BitBoard, since both need to turn generic strategy.Piece
+	 * objects into our own; every call hands back the same immutable instance, so setting up a board allocates no
+	 * pieces at all.
+	 *
+	 * @param type  Type of piece
+	 * @param color Color of piece
+	 * @return Shared piece
+	 */
+	static PieceDefined makePiece(Piece.PieceType type, Piece.PieceColor color) {
+		return FLYWEIGHTS[BitBoard.maskIndex(color, type)];
+	}
+
+	/**
+	 * Create a new piece of the given type and color; only used to fill in the flyweights.
+	 *
+	 * @param type  Type of piece to create
+	 * @param color Color of piece to create
+	 * @return New piece
+	 */
+	private static PieceDefined create(Piece.PieceType type, Piece.PieceColor color) {
+		switch (type) {
+			case BOMB:
+				return new Bomb(color);
+			case CAPTAIN:
+				return new Captain(color);
+			case COLONEL:
+				return new Colonel(color);
+			case FLAG:
+				return new Flag(color);
+			case GENERAL:
+				return new General(color);
+			case LIEUTENANT:
+				return new Lieutenant(color);
+			case MAJOR:
+				return new Major(color);
+			case MARSHAL:
+				return new Marshal(color);
+			case MINER:
+				return new Miner(color);
+			case SCOUT:
+				return new Scout(color);
+			case SERGEANT:
+				return new Sergeant(color);
+			default: // Spy
+				return new Spy(color);
+		}
+	}
+
 	/**
 	 * Simple helper to check bounds, since this is used a lot
 	 *
@@ -119,7 +157,7 @@ public class BetaBoard implements strategy.Board {
 	 * @throws StrategyException Thrown if bounds are exceeded
 	 */
 	private void checkBounds(int row, int col) throws StrategyException {
-		if (row < 0 || row > ROWS || col < 0 || col > COLS)
+		if (!rules.inBounds(row, col))
 			throw new StrategyException("Row/column index out of bounds");
 	}
 
@@ -133,7 +171,17 @@ public class BetaBoard implements strategy.Board {
 	 */
 	public PieceDefined getPieceAt(int row, int column) throws StrategyException {
 		checkBounds(row, column);
-		return pieces[row][column];
+		return pieces[rules.square(row, column)];
+	}
+
+	/**
+	 * Get the piece on a square; no bounds checking.
+	 *
+	 * @param square Square
+	 * @return Piece on the square; null if nothing there.
+	 */
+	PieceDefined get(int square) {
+		return pieces[square];
 	}
 
 	/**
@@ -146,7 +194,7 @@ public class BetaBoard implements strategy.Board {
 	 */
 	public SquareType getSquareTypeAt(int row, int column) throws StrategyException {
 		checkBounds(row, column);
-		return squares[row][column];
+		return squares[rules.square(row, column)];
 	}
 
 	/**
@@ -155,14 +203,39 @@ public class BetaBoard implements strategy.Board {
 	 * @param piece  Piece to place
 	 * @param row    Row
 	 * @param column Column
-	 * @throws StrategyException Thrown if row/column invalid, piece is null, or square already occupied.
+	 * @throws StrategyException Thrown if row/column invalid or the square is a choke point
 	 */
 	public void put(PieceDefined piece, int row, int column) throws StrategyException {
 		checkBounds(row, column);
-		// No choke points in beta strategy
-//		if (squares[row][column] != SquareType.NORMAL)
-//			throw new StrategyException("Place to put at is not a normal square");
-		pieces[row][column] = piece;
+		final int square = rules.square(row, column);
+		if (piece != null && squares[square] != SquareType.NORMAL)
+			throw new StrategyException("Place to put at is not a normal square");
+		set(square, piece);
+	}
+
+	/**
+	 * Put a piece on a square; no bounds or choke point checking.
+	 *
+	 * @param square Square
+	 * @param piece  Piece to place; null to clear the square
+	 */
+	void set(int square, PieceDefined piece) {
+		key ^= Zobrist.piece(pieces[square], square) ^ Zobrist.piece(piece, square);
+		pieces[square] = piece;
+	}
+
+	/**
+	 * @return Rules the board plays by
+	 */
+	public RuleSet getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return Zobrist key of the pieces on the board; there's no side to move on a bare board.
+	 */
+	public long getKey() {
+		return key;
 	}
 
 	/**
@@ -178,30 +251,36 @@ public class BetaBoard implements strategy.Board {
 		if (o == null || getClass() != o.getClass())
 			return false;
 		BetaBoard board = (BetaBoard) o;
+		if (key != board.key || rules.getRows() != board.rules.getRows() || rules.getCols() != board.rules.getCols())
+			return false;
 
-		for (int i = 0; i < ROWS; i++) {
-			for (int j = 0; j < COLS; j++) {
-				// Make sure that either both are null or both are non-null
-				if (board.pieces[i][j] == null && pieces[i][j] != null ||
-						board.pieces[i][j] != null && pieces[i][j] == null)
-					return false;
+		for (int sq = 0; sq < pieces.length; sq++) {
+			// Make sure that either both are null or both are non-null
+			if (board.pieces[sq] == null && pieces[sq] != null || board.pieces[sq] != null && pieces[sq] == null)
+				return false;
 
-				// If individual pieces && squares don't equal each other, fail
-				if (board.pieces[i][j] != null && !board.pieces[i][j].equals(pieces[i][j]))
-					return false;
+			// If individual pieces && squares don't equal each other, fail
+			if (board.pieces[sq] != null && !board.pieces[sq].equals(pieces[sq]))
+				return false;
 
-				// No choke points in beta strategy
-//				if (board.squares[i][j] != squares[i][j])
-//					return false;
-			}
+			if (board.squares[sq] != squares[sq])
+				return false;
 		}
 		return true;
 	}
 
+	/**
+	 * @return Hash code derived from the Zobrist key, so equal boards hash equally without touching every square
+	 */
+	@Override
+	public int hashCode() {
+		return (int) (key ^ (key >>> 32));
+	}
+
 	public String toString() {
 		StringBuilder ret = new StringBuilder();
-		for (int i = ROWS - 1; i >= 0; i--) {
-			for (int j = 0; j < COLS; j++) {
+		for (int i = rules.getRows() - 1; i >= 0; i--) {
+			for (int j = 0; j < rules.getCols(); j++) {
 				final Piece p = getPieceAt(i, j);
 				ret.append(" ");
 				if (p == null)
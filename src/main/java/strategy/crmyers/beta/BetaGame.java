@@ -25,23 +25,112 @@ package strategy.crmyers.beta;
 
 import strategy.Board;
 import strategy.Piece;
-import strategy.StrategyException;
 import strategy.StrategyGame;
 
-import static strategy.Piece.PieceColor.BLUE;
+import java.util.Arrays;
+
 import static strategy.Piece.PieceColor.RED;
 import static strategy.StrategyGame.MoveResult.*;
 
 public class BetaGame implements StrategyGame {
-	private final BetaBoard board;
-	private Piece.PieceColor colorTurn;
-	private int turns;
+
+	/**
+	 * Beta Strategy games end after this many full turns, with a red win. Other rule sets may differ.
+	 */
+	public static final int TURN_LIMIT = 8;
+
+	private static final GameListener[] NO_LISTENERS = new GameListener[0];
+
+	private final BitBoard board;
+	private final RuleSet rules;
+	private final RepetitionHistory repetitions;
+	private boolean over;
+	private GameListener[] listeners;
 
 	public BetaGame(Board board) {
-		this.board = new BetaBoard(board);
+		this(RuleSet.BETA, board);
+	}
+
+	/**
+	 * Start a game under any rule set whose board fits into a word.
+	 *
+	 * @param rules Rules to play by
+	 * @param board Starting position; choke points come from the board
+	 */
+	public BetaGame(RuleSet rules, Board board) {
+		this.board = new BitBoard(rules, board);
+		this.rules = rules;
+		repetitions = new RepetitionHistory();
+		repetitions.push(this.board.getKey(), Move.NONE);
+		over = false;
+		listeners = NO_LISTENERS;
+	}
+
+	/**
+	 * Pick a game back up from a saved position, e.g. one recovered by strategy.crmyers.beta.store.GameStore. The
+	 * repetition history starts afresh from the position.
+	 *
+	 * @param position Position to resume from, with its side to move and turn count; copied
+	 * @param over     Whether the game had already ended (by an illegal move, say, which the board doesn't show)
+	 */
+	public BetaGame(BitBoard position, boolean over) {
+		this(position, null, over);
+	}
+
+	/**
+	 * Pick a game back up from a saved position along with its recent history, so that the repetition rule and
+	 * getRepetitions() carry on where they left off.
+	 *
+	 * @param position    Position to resume from, with its side to move and turn count; copied
+	 * @param repetitions History up to and including the position, see copyRepetitions(); copied. If null, the
+	 *                    history starts afresh from the position
+	 * @param over        Whether the game had already ended
+	 */
+	public BetaGame(BitBoard position, RepetitionHistory repetitions, boolean over) {
+		this.board = new BitBoard(position);
+		rules = position.getRules();
+		if (repetitions != null)
+			this.repetitions = new RepetitionHistory(repetitions);
+		else {
+			this.repetitions = new RepetitionHistory();
+			this.repetitions.push(board.getKey(), Move.NONE);
+		}
+		this.over = over;
+		listeners = NO_LISTENERS;
+	}
 
-		colorTurn = RED;
-		turns = 0;
+	/**
+	 * Attach a listener to hear about moves and the end of the game, after any already attached. There are none by
+	 * default, in which case the only cost is an empty loop per move. Listeners are kept in a small array that's
+	 * replaced on every change, so moves never allocate.
+	 *
+	 * @param listener Listener to notify
+	 */
+	public void addListener(GameListener listener) {
+		if (listener == null)
+			throw new IllegalArgumentException("Listener can't be null");
+		final GameListener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+		grown[listeners.length] = listener;
+		listeners = grown;
+	}
+
+	/**
+	 * Stop notifying a listener.
+	 *
+	 * @param listener Listener to detach
+	 * @return Whether it was attached
+	 */
+	public boolean removeListener(GameListener listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i] == listener) {
+				final GameListener[] shrunk = new GameListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, shrunk, 0, i);
+				System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+				listeners = shrunk;
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -56,72 +145,124 @@ public class BetaGame implements StrategyGame {
 	@Override
 	public MoveResult move(int fr, int fc, int tr, int tc) {
 		// Sanity check for game over
-		if (turns >= 8)
+		if (isOver())
 			return MoveResult.GAME_OVER;
 
-		// Sanity checks to make sure that the player is grabbing a piece and it's the right color.
-		final PieceDefined fPiece = board.getPieceAt(fr, fc);
-		if (fPiece == null) {
-			turns = 8;
-			return colorTurn == RED ? BLUE_WINS : RED_WINS;
-		}
-		if (fPiece.getPieceColor() != colorTurn) {
-			turns = 8;
-			return fPiece.getPieceColor() == RED ? BLUE_WINS : RED_WINS;
+		// Validation never throws; illegal moves just come back as a status
+		final Piece.PieceColor colorTurn = board.getColorTurn();
+		MoveStatus status = board.validate(fr, fc, tr, tc);
+		if (status == MoveStatus.LEGAL && rules.hasRepetitionRule()
+				&& repetitions.repeatsMove(rules.pack(fr, fc, tr, tc)))
+			status = MoveStatus.REPEATED;
+		if (status != MoveStatus.LEGAL) {
+			for (GameListener listener : listeners)
+				listener.illegalMove(this, colorTurn, status);
+
+			// Whoever owns the piece loses; normally that's the moving player, who screwed up.
+			if (status == MoveStatus.WRONG_COLOR)
+				return end(colorTurn == RED ? RED_WINS : BLUE_WINS);
+			return end(colorTurn == RED ? BLUE_WINS : RED_WINS);
 		}
 
+		// The board takes care of resolving strikes, moving pieces around and of whose turn it is next
+		final int move = rules.pack(fr, fc, tr, tc);
+		final PieceDefined.MoveResult result = board.makeMove(move);
+		repetitions.push(board.getKey(), move);
+		for (GameListener listener : listeners)
+			listener.moveMade(this, colorTurn, move, result);
 
-		PieceDefined.MoveResult result;
-		try {
-			result = fPiece.move(board, fr, fc, tr, tc);
-
-			// === Move result processing ===
-			if (result == PieceDefined.MoveResult.OK ||
-					(result == PieceDefined.MoveResult.STRIKE_BLUE && colorTurn == BLUE) ||
-					(result == PieceDefined.MoveResult.STRIKE_RED && colorTurn == RED)) {
-
-				// Either the move was fine or there was a strike victory -- either way, the piece moves.
-				board.put(fPiece, tr, tc);
-				board.put(null, fr, fc);
-			} else if ((result == PieceDefined.MoveResult.STRIKE_BLUE && colorTurn == RED) ||
-					(result == PieceDefined.MoveResult.STRIKE_RED && colorTurn == BLUE)) {
-
-				// Strike defeat, attacked piece moves into original spot
-				board.put(board.getPieceAt(tr, tc), fr, fc);
-				board.put(null, tr, tc);
-			} else if (result == PieceDefined.MoveResult.STRIKE_DRAW) {
-
-				// Draw, both pieces eliminated
-				board.put(null, tr, tc);
-				board.put(null, fr, fc);
-			} else {
-				// Some kind of victory condition
-				turns = 8;
-				return convertMoveResult(result);
-			}
-		} catch (StrategyException ex) {
-			// Moving player screwed up; opponent wins.
-			System.err.println(ex.getMessage());
+		// Some kind of victory condition
+		if (result == PieceDefined.MoveResult.RED_WINS || result == PieceDefined.MoveResult.BLUE_WINS)
+			return end(convertMoveResult(result));
 
-			turns = 8; // End the game
-			result = colorTurn == RED ? PieceDefined.MoveResult.BLUE_WINS : PieceDefined.MoveResult.RED_WINS;
-		}
+		// Unique case for beta strategy -- if the turn limit elapses, red wins
+		if (board.getTurns() >= rules.getTurnLimit())
+			return end(RED_WINS);
 
-		// Logic for incrementing turns and determining who goes next
-		if (colorTurn == RED)
-			colorTurn = BLUE;
-		else {
-			colorTurn = RED;
-			turns++;
+		return convertMoveResult(result);
+	}
 
-			// Unique case for beta strategy -- if 8 turns elapse, red wins
-			if (turns >= 8)
-				return RED_WINS;
-		}
+	/**
+	 * End the game.
+	 *
+	 * @param result Final result
+	 * @return The same result, for convenience
+	 */
+	private MoveResult end(MoveResult result) {
+		over = true;
+		for (GameListener listener : listeners)
+			listener.gameOver(this, result);
+		return result;
+	}
 
-		System.out.println("Turn " + turns + ", color: " + colorTurn.name());
-		System.out.println(board.toString());
-		return convertMoveResult(result);
+	/**
+	 * @return Color whose turn it is
+	 */
+	public Piece.PieceColor getColorTurn() {
+		return board.getColorTurn();
+	}
+
+	/**
+	 * @return Number of full turns made so far
+	 */
+	public int getTurns() {
+		return board.getTurns();
+	}
+
+	/**
+	 * @return Rules the game is played by
+	 */
+	public RuleSet getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return How many times the current position (pieces and side to move) came up earlier in the game, for callers
+	 * that adjudicate draws by repetition; only the last RepetitionHistory.DEFAULT_CAPACITY plies are looked at
+	 */
+	public int getRepetitions() {
+		return repetitions.occurrences(board.getKey()) - 1;
+	}
+
+	/**
+	 * @return Copy of the game's recent history, for search engines to extend along their own lines
+	 */
+	public RepetitionHistory copyRepetitions() {
+		return new RepetitionHistory(repetitions);
+	}
+
+	/**
+	 * @return Copy of the current position, for bots and analysis tools to work on
+	 */
+	public BitBoard copyBoard() {
+		return new BitBoard(board);
+	}
+
+	/**
+	 * @return Whether the game has ended
+	 */
+	public boolean isOver() {
+		return over || board.getTurns() >= rules.getTurnLimit();
+	}
+
+	/**
+	 * @return Drawing of the current board
+	 */
+	@Override
+	public String toString() {
+		return board.toString();
+	}
+
+	/**
+	 * Generate every legal move for the side to move; see Move for the move format.
+	 *
+	 * @param moves Array to write packed moves into, at least MoveGenerator.MAX_MOVES long
+	 * @return Number of moves written; zero if the game is over
+	 */
+	public int legalMoves(int[] moves) {
+		if (isOver())
+			return 0;
+		return MoveGenerator.generate(board, board.getColorTurn(), moves);
 	}
 
 	/**
@@ -0,0 +1,705 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.Piece;
+import strategy.StrategyException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Bitboard implementation of the Strategy board. A 6x6 board fits into a single 64-bit word, so we keep one word per
+ * color and piece type (plus one per color and one for choke points); occupancy, Scout path and friendly-fire checks
+ * then boil down to a couple of mask operations instead of walking a 2D array of objects. Any rule set whose board
+ * fits into a word works the same way; the geometry tables come precomputed with the RuleSet. Bigger boards (Delta)
+ * are refused outright rather than half-supported, until the masks are widened to two words.
+ * <p>
+ * Squares are numbered row-major, i.e. square = row * columns + column. Piece objects are still kept in a flat array
+ * so that getPieceAt() can hand back the same object that was put there, just like BetaBoard.
+ * <p>
+ * The board also tracks whose turn it is and how many full turns have elapsed, so that makeMove() and unmakeMove()
+ * can step a position forwards and backwards without ever copying the board.
+ */
+public class BitBoard implements strategy.Board {
+
+	// Constants
+	public static final int SQUARES = BetaBoard.ROWS * BetaBoard.COLS;
+	public static final int MAX_SQUARES = Long.SIZE;
+	public static final int TYPES = Piece.PieceType.values().length;
+
+	// Undo records are packed into a single int: the move, then the result and the side that moved. The turn count
+	// isn't saved; only a blue move changes it, and always by one.
+	private static final int RESULT_SHIFT = 16;
+	private static final int SIDE_SHIFT = 19;
+	private static final PieceDefined.MoveResult[] RESULTS = PieceDefined.MoveResult.values();
+
+	// Flags for write() and read()
+	private static final int HAS_CHOKES = 1;
+	private static final int BLUE_TO_MOVE = 2;
+	private static final int HAS_TURNS = 4;
+	private static final int HAS_RULES = 8;
+	private static final int WIDE_TURNS = 16;
+	private static final Piece.PieceType[] PIECE_TYPES = Piece.PieceType.values();
+
+	private final RuleSet rules;
+	private final PieceDefined[] pieces;
+	private final byte[] codes;
+	private final long[] typeMasks;
+	private final long[] colorMasks;
+	private long chokes;
+	private long key;
+
+	private Piece.PieceColor colorTurn;
+	private int turns;
+
+	// Undo stack; two pieces (whatever was on the from and to squares) are saved alongside each record
+	private int[] history;
+	private PieceDefined[] saved;
+	private int depth;
+
+	/**
+	 * Initialize the board; empty, with no choke points, under the Beta rules.
+	 */
+	public BitBoard() {
+		this(RuleSet.BETA);
+	}
+
+	/**
+	 * Initialize the board; empty, with the given choke points, under the Beta rules.
+	 *
+	 * @param chokes Mask of choke point squares
+	 */
+	public BitBoard(long chokes) {
+		this(RuleSet.BETA, chokes);
+	}
+
+	/**
+	 * Initialize the board; empty, with the rule set's choke points.
+	 *
+	 * @param rules Rules to play by; the board has to fit into a word
+	 */
+	public BitBoard(RuleSet rules) {
+		this(rules, rules.getChokes());
+	}
+
+	/**
+	 * Initialize the board; empty, with the given choke points.
+	 *
+	 * @param rules  Rules to play by; the board has to fit into a word
+	 * @param chokes Mask of choke point squares
+	 */
+	public BitBoard(RuleSet rules, long chokes) {
+		if (!rules.fitsInWord())
+			throw new IllegalArgumentException("A " + rules.getRows() + "x" + rules.getCols()
+					+ " board doesn't fit into a bitboard");
+		this.rules = rules;
+		pieces = new PieceDefined[rules.getSquares()];
+		codes = new byte[rules.getSquares()];
+		typeMasks = new long[2 * TYPES];
+		colorMasks = new long[2];
+		this.chokes = chokes;
+
+		key = 0;
+		colorTurn = RED;
+		turns = 0;
+		history = new int[32];
+		saved = new PieceDefined[2 * history.length];
+		depth = 0;
+	}
+
+	/**
+	 * Copy constructor; accepts a board, copies it to this implementation under the Beta rules.
+	 *
+	 * @param board Board to copy
+	 */
+	public BitBoard(strategy.Board board) {
+		this(RuleSet.BETA, board);
+	}
+
+	/**
+	 * Copy constructor; accepts a board, copies it to this implementation. Choke points come from the board.
+	 *
+	 * @param rules Rules to play by; the board has to fit into a word
+	 * @param board Board to copy
+	 */
+	public BitBoard(RuleSet rules, strategy.Board board) {
+		this(rules, 0);
+		for (int i = 0; i < rules.getRows(); i++) {
+			for (int j = 0; j < rules.getCols(); j++) {
+				if (board.getSquareTypeAt(i, j) != SquareType.NORMAL)
+					chokes |= 1L << rules.square(i, j);
+
+				final Piece piece = board.getPieceAt(i, j);
+				if (piece != null)
+					put(BetaBoard.makePiece(piece.getPieceType(), piece.getPieceColor()), i, j);
+			}
+		}
+	}
+
+	/**
+	 * Copy constructor for our own boards; much cheaper than going through strategy.Board, and it keeps the side to
+	 * move and turn count. Pieces are shared with the original, the undo history is not.
+	 *
+	 * @param board BitBoard to copy
+	 */
+	public BitBoard(BitBoard board) {
+		rules = board.rules;
+		pieces = board.pieces.clone();
+		codes = board.codes.clone();
+		typeMasks = board.typeMasks.clone();
+		colorMasks = board.colorMasks.clone();
+		chokes = board.chokes;
+		key = board.key;
+
+		colorTurn = board.colorTurn;
+		turns = board.turns;
+		history = new int[32];
+		saved = new PieceDefined[2 * history.length];
+		depth = 0;
+	}
+
+	/**
+	 * @param color Piece color
+	 * @param type  Piece type
+	 * @return Index into the per-type masks for a color/type pair
+	 */
+	static int maskIndex(Piece.PieceColor color, Piece.PieceType type) {
+		return (color == RED ? 0 : TYPES) + type.ordinal();
+	}
+
+	/**
+	 * Simple helper to check bounds, since this is used a lot
+	 *
+	 * @param row    Row
+	 * @param column Column
+	 * @throws StrategyException Thrown if bounds are exceeded
+	 */
+	private void checkBounds(int row, int column) throws StrategyException {
+		if (!rules.inBounds(row, column))
+			throw new StrategyException("Row/column index out of bounds");
+	}
+
+	/**
+	 * Same as checkBounds(), for square numbers
+	 *
+	 * @param square Square
+	 * @throws StrategyException Thrown if the square is off the board
+	 */
+	private void checkSquare(int square) throws StrategyException {
+		if (square < 0 || square >= pieces.length)
+			throw new StrategyException("Square index out of bounds");
+	}
+
+	/**
+	 * Get the piece at a given location.
+	 *
+	 * @param row    Row
+	 * @param column Column
+	 * @return Piece at location; null if nothing there.
+	 * @throws StrategyException Thrown if row/column invalid
+	 */
+	public PieceDefined getPieceAt(int row, int column) throws StrategyException {
+		checkBounds(row, column);
+		return pieces[rules.square(row, column)];
+	}
+
+	/**
+	 * Get the piece on a given square.
+	 *
+	 * @param square Square
+	 * @return Piece on the square; null if nothing there.
+	 * @throws StrategyException Thrown if the square is invalid
+	 */
+	public PieceDefined getPieceAt(int square) throws StrategyException {
+		checkSquare(square);
+		return pieces[square];
+	}
+
+	/**
+	 * Get the square type at a given location
+	 *
+	 * @param row    Row
+	 * @param column Column
+	 * @return Square type at location
+	 * @throws StrategyException Thrown if row/column invalid
+	 */
+	public SquareType getSquareTypeAt(int row, int column) throws StrategyException {
+		checkBounds(row, column);
+		return (chokes & (1L << rules.square(row, column))) != 0 ? SquareType.CHOKE : SquareType.NORMAL;
+	}
+
+	/**
+	 * Put a piece at a given square, replacing whatever was there before.
+	 *
+	 * @param piece  Piece to place; null to clear the square
+	 * @param row    Row
+	 * @param column Column
+	 * @throws StrategyException Thrown if row/column invalid
+	 */
+	public void put(PieceDefined piece, int row, int column) throws StrategyException {
+		checkBounds(row, column);
+		set(rules.square(row, column), piece);
+	}
+
+	/**
+	 * Put a piece on a given square, replacing whatever was there before.
+	 *
+	 * @param piece  Piece to place; null to clear the square
+	 * @param square Square
+	 * @throws StrategyException Thrown if the square is invalid
+	 */
+	public void put(PieceDefined piece, int square) throws StrategyException {
+		checkSquare(square);
+		set(square, piece);
+	}
+
+	/**
+	 * Put a piece on a square and keep the masks (and piece codes, which are mask index + 1, or zero for an empty
+	 * square) in sync; no bounds checking.
+	 *
+	 * @param sq    Square
+	 * @param piece Piece to place; null to clear the square
+	 */
+	private void set(int sq, PieceDefined piece) {
+		final long bit = 1L << sq;
+		final PieceDefined old = pieces[sq];
+		if (old != null) {
+			typeMasks[codes[sq] - 1] &= ~bit;
+			colorMasks[old.getPieceColor() == RED ? 0 : 1] &= ~bit;
+			key ^= Zobrist.piece(old.getPieceColor(), old.getPieceType(), sq);
+			codes[sq] = 0;
+		}
+		if (piece != null) {
+			final int index = maskIndex(piece.getPieceColor(), piece.getPieceType());
+			typeMasks[index] |= bit;
+			colorMasks[piece.getPieceColor() == RED ? 0 : 1] |= bit;
+			key ^= Zobrist.piece(piece.getPieceColor(), piece.getPieceType(), sq);
+			codes[sq] = (byte) (index + 1);
+		}
+		pieces[sq] = piece;
+	}
+
+	/**
+	 * @return Zobrist key of the position: every piece plus the side to move
+	 */
+	public long getKey() {
+		return key;
+	}
+
+	/**
+	 * @param color Side to look up
+	 * @return Zobrist key of one side's pieces alone, e.g. to tell that side's setups apart whatever the other side did
+	 */
+	public long getKey(Piece.PieceColor color) {
+		long side = 0;
+		for (Piece.PieceType type : PIECE_TYPES)
+			for (long bits = getPieces(color, type); bits != 0; bits &= bits - 1)
+				side ^= Zobrist.piece(color, type, Long.numberOfTrailingZeros(bits));
+		return side;
+	}
+
+	/**
+	 * @return Color whose turn it is
+	 */
+	public Piece.PieceColor getColorTurn() {
+		return colorTurn;
+	}
+
+	/**
+	 * @return Number of full turns (a red move and a blue move) made so far
+	 */
+	public int getTurns() {
+		return turns;
+	}
+
+	/**
+	 * @return Rules the board plays by
+	 */
+	public RuleSet getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return Number of moves that can currently be unmade
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Make a move for the side whose turn it is, resolving any strike along the way. The move is assumed to be legal,
+	 * e.g. one handed out by MoveGenerator; a flag capture moves the attacker onto the flag's square.
+	 *
+	 * @param move Packed move, see Move
+	 * @return Result of the move
+	 */
+	public PieceDefined.MoveResult makeMove(int move) {
+		final int defender = codes[Move.to(move)];
+		final PieceDefined.MoveResult result = defender == 0 ? PieceDefined.MoveResult.OK :
+				StrikeTable.get(codes[Move.from(move)] - 1, defender - 1);
+		makeMove(move, result);
+		return result;
+	}
+
+	/**
+	 * Apply a move whose result has already been worked out.
+	 *
+	 * @param move   Packed move, see Move
+	 * @param result Result of the move
+	 */
+	private void makeMove(int move, PieceDefined.MoveResult result) {
+		final int from = Move.from(move);
+		final int to = Move.to(move);
+		final PieceDefined attacker = pieces[from];
+		final PieceDefined defender = pieces[to];
+
+		// Save everything needed to get back here
+		if (depth == history.length) {
+			history = Arrays.copyOf(history, 2 * depth);
+			saved = Arrays.copyOf(saved, 4 * depth);
+		}
+		history[depth] = Move.squares(move) | (result.ordinal() << RESULT_SHIFT)
+				| ((colorTurn == RED ? 0 : 1) << SIDE_SHIFT);
+		saved[2 * depth] = attacker;
+		saved[2 * depth + 1] = defender;
+		depth++;
+
+		// Same rules as BetaGame: winners move into the target square, defending winners move into the attacker's
+		if (result == PieceDefined.MoveResult.STRIKE_DRAW) {
+			set(from, null);
+			set(to, null);
+		} else if ((result == PieceDefined.MoveResult.STRIKE_RED && attacker.getPieceColor() == BLUE) ||
+				(result == PieceDefined.MoveResult.STRIKE_BLUE && attacker.getPieceColor() == RED)) {
+			set(from, defender);
+			set(to, null);
+		} else {
+			set(to, attacker);
+			set(from, null);
+		}
+
+		key ^= Zobrist.SIDE;
+		if (colorTurn == RED)
+			colorTurn = BLUE;
+		else {
+			colorTurn = RED;
+			turns++;
+		}
+	}
+
+	/**
+	 * Undo the last move made with makeMove().
+	 *
+	 * @return Result of the move that was undone
+	 * @throws StrategyException Thrown if there is nothing to undo
+	 */
+	public PieceDefined.MoveResult unmakeMove() throws StrategyException {
+		if (depth == 0)
+			throw new StrategyException("No move to unmake");
+		depth--;
+
+		final int record = history[depth];
+		set(Move.from(record), saved[2 * depth]);
+		set(Move.to(record), saved[2 * depth + 1]);
+		saved[2 * depth] = null;
+		saved[2 * depth + 1] = null;
+
+		key ^= Zobrist.SIDE;
+		colorTurn = ((record >>> SIDE_SHIFT) & 1) == 0 ? RED : BLUE;
+		if (colorTurn == BLUE)
+			turns--;
+		return RESULTS[(record >>> RESULT_SHIFT) & 7];
+	}
+
+	/**
+	 * @param square Square
+	 * @return Index of the piece on a square (red types first, then blue, same as the masks); -1 if it's empty
+	 */
+	public int getIndex(int square) {
+		return codes[square] - 1;
+	}
+
+	/**
+	 * @return Mask of every occupied square
+	 */
+	public long getOccupied() {
+		return colorMasks[0] | colorMasks[1];
+	}
+
+	/**
+	 * @param color Color to look up
+	 * @return Mask of every square occupied by a piece of the given color
+	 */
+	public long getOccupied(Piece.PieceColor color) {
+		return colorMasks[color == RED ? 0 : 1];
+	}
+
+	/**
+	 * @param color Color to look up
+	 * @param type  Type to look up
+	 * @return Mask of every square occupied by a piece of the given color and type
+	 */
+	public long getPieces(Piece.PieceColor color, Piece.PieceType type) {
+		return typeMasks[maskIndex(color, type)];
+	}
+
+	/**
+	 * @param index Piece index (red types first, then blue, see getIndex())
+	 * @return Mask of every square occupied by that kind of piece
+	 */
+	long getPieces(int index) {
+		return typeMasks[index];
+	}
+
+	/**
+	 * @return Mask of every choke point
+	 */
+	public long getChokes() {
+		return chokes;
+	}
+
+	/**
+	 * Write the position out: rules (unless they're Beta's), choke points, pieces, side to move and turn count, but
+	 * not the undo history. A fresh Beta setup (red to move on turn zero, no choke points) takes 9 bytes plus one per
+	 * piece.
+	 * <p>
+	 * Format, big-endian as written by DataOutput:
+	 * <ul>
+	 * <li>flags (1 byte); bit 0 is set if there are choke points, bit 1 if blue is to move, bit 2 if turns != 0, bit 3
+	 * if the rules aren't Beta's and bit 4 if the turn count doesn't fit in 2 bytes</li>
+	 * <li>the rules, as written by RuleSet.write(), if they aren't Beta's</li>
+	 * <li>mask of occupied squares (8 bytes), then the mask of choke points (8 bytes) if there are any</li>
+	 * <li>one byte for each occupied square, in square order: the piece's index (see getIndex())</li>
+	 * <li>turn count (2 bytes, or 4 with bit 4 set), if it isn't zero</li>
+	 * </ul>
+	 *
+	 * @param out Where to write it
+	 * @throws IOException Thrown if writing fails
+	 */
+	public void write(DataOutput out) throws IOException {
+		final long occupied = getOccupied();
+		final boolean beta = rules.equals(RuleSet.BETA);
+		final boolean wide = turns > 0xFFFF;
+		out.writeByte((chokes != 0 ? HAS_CHOKES : 0) | (colorTurn == BLUE ? BLUE_TO_MOVE : 0)
+				| (turns != 0 ? HAS_TURNS : 0) | (beta ? 0 : HAS_RULES) | (wide ? WIDE_TURNS : 0));
+		if (!beta)
+			rules.write(out);
+		out.writeLong(occupied);
+		if (chokes != 0)
+			out.writeLong(chokes);
+		for (long bits = occupied; bits != 0; bits &= bits - 1)
+			out.writeByte(getIndex(Long.numberOfTrailingZeros(bits)));
+		if (wide)
+			out.writeInt(turns);
+		else if (turns != 0)
+			out.writeShort(turns);
+	}
+
+	/**
+	 * Read a position written by write().
+	 *
+	 * @param in Where to read it from
+	 * @return The position, with fresh pieces and an empty undo history
+	 * @throws IOException Thrown if reading fails or the data isn't a position
+	 */
+	public static BitBoard read(DataInput in) throws IOException {
+		final int flags = in.readUnsignedByte();
+		if ((flags & ~(HAS_CHOKES | BLUE_TO_MOVE | HAS_TURNS | HAS_RULES | WIDE_TURNS)) != 0)
+			throw new IOException("Bad position flags " + flags);
+		final RuleSet rules = (flags & HAS_RULES) != 0 ? RuleSet.read(in) : RuleSet.BETA;
+		if (!rules.fitsInWord())
+			throw new IOException("Position too big for a bitboard: " + rules);
+		final long occupied = in.readLong();
+		final BitBoard board = new BitBoard(rules, (flags & HAS_CHOKES) != 0 ? in.readLong() : 0);
+		if ((occupied & ~rules.getBoard()) != 0 || (board.chokes & ~rules.getBoard()) != 0)
+			throw new IOException("Pieces or choke points off the board");
+
+		for (long bits = occupied; bits != 0; bits &= bits - 1) {
+			final int index = in.readUnsignedByte();
+			if (index >= 2 * TYPES)
+				throw new IOException("Bad piece index " + index);
+			final Piece.PieceColor color = index < TYPES ? RED : BLUE;
+			board.set(Long.numberOfTrailingZeros(bits), BetaBoard.makePiece(PIECE_TYPES[index % TYPES], color));
+		}
+
+		if ((flags & BLUE_TO_MOVE) != 0) {
+			board.colorTurn = BLUE;
+			board.key ^= Zobrist.SIDE;
+		}
+		if ((flags & WIDE_TURNS) != 0) {
+			board.turns = in.readInt();
+			if (board.turns < 0)
+				throw new IOException("Bad turn count " + board.turns);
+		} else if ((flags & HAS_TURNS) != 0)
+			board.turns = in.readUnsignedShort();
+		return board;
+	}
+
+	/**
+	 * Determine whether a straight-line path is free of pieces and choke points, not counting either end.
+	 *
+	 * @param fr From row
+	 * @param fc From column
+	 * @param tr To row
+	 * @param tc To column
+	 * @return Whether the path is clear; diagonal "paths" are always clear, check for those separately.
+	 * @throws StrategyException Thrown if either end is out of bounds
+	 */
+	public boolean isPathClear(int fr, int fc, int tr, int tc) throws StrategyException {
+		checkBounds(fr, fc);
+		checkBounds(tr, tc);
+		return (rules.between(rules.square(fr, fc), rules.square(tr, tc)) & (getOccupied() | chokes)) == 0;
+	}
+
+	/**
+	 * Determine whether moving onto a square would be friendly fire.
+	 *
+	 * @param color Color of the moving piece
+	 * @param row   Row
+	 * @param column Column
+	 * @return Whether the square holds a piece of the same color
+	 */
+	public boolean isFriendly(Piece.PieceColor color, int row, int column) {
+		return (getOccupied(color) & (1L << rules.square(row, column))) != 0;
+	}
+
+	/**
+	 * Validate a move of whatever piece is on the from square, for the side whose turn it is. Never throws.
+	 *
+	 * @param fr From row
+	 * @param fc From column
+	 * @param tr To row
+	 * @param tc To column
+	 * @return LEGAL, or the reason the move is illegal
+	 */
+	public MoveStatus validate(int fr, int fc, int tr, int tc) {
+		if (!rules.inBounds(fr, fc) || !rules.inBounds(tr, tc))
+			return MoveStatus.OUT_OF_BOUNDS;
+		final int code = codes[rules.square(fr, fc)];
+		if (code == 0)
+			return MoveStatus.NO_PIECE;
+		if ((code - 1 < TYPES) != (colorTurn == RED))
+			return MoveStatus.WRONG_COLOR;
+		return validate(code - 1, fr, fc, tr, tc);
+	}
+
+	/**
+	 * Validate a move for a given piece, regardless of what's actually on the from square or whose turn it is.
+	 * Never throws.
+	 *
+	 * @param color Color of the moving piece
+	 * @param type  Type of the moving piece
+	 * @param fr    From row
+	 * @param fc    From column
+	 * @param tr    To row
+	 * @param tc    To column
+	 * @return LEGAL, or the reason the move is illegal
+	 */
+	public MoveStatus validate(Piece.PieceColor color, Piece.PieceType type, int fr, int fc, int tr, int tc) {
+		if (!rules.inBounds(fr, fc) || !rules.inBounds(tr, tc))
+			return MoveStatus.OUT_OF_BOUNDS;
+		return validate(maskIndex(color, type), fr, fc, tr, tc);
+	}
+
+	/**
+	 * Validate a move for a piece index; bounds have already been checked.
+	 *
+	 * @param index Mask index of the moving piece
+	 * @param fr    From row
+	 * @param fc    From column
+	 * @param tr    To row
+	 * @param tc    To column
+	 * @return LEGAL, or the reason the move is illegal
+	 */
+	private MoveStatus validate(int index, int fr, int fc, int tr, int tc) {
+		final int movement = MovementTable.get(index % TYPES);
+		if (movement == MovementTable.IMMOBILE)
+			return MoveStatus.IMMOBILE;
+		if (PieceDefined.isDiagonal(fr, fc, tr, tc))
+			return MoveStatus.DIAGONAL;
+
+		final int from = rules.square(fr, fc);
+		final int to = rules.square(tr, tc);
+		if (movement == MovementTable.SLIDE) {
+			if ((rules.between(from, to) & (getOccupied() | chokes)) != 0)
+				return MoveStatus.BLOCKED;
+		} else if (PieceDefined.isLong(fr, fc, tr, tc))
+			return MoveStatus.TOO_FAR;
+
+		final long target = 1L << to;
+		if ((chokes & target) != 0)
+			return MoveStatus.CHOKE_POINT;
+		if ((colorMasks[index < TYPES ? 0 : 1] & target) != 0)
+			return MoveStatus.FRIENDLY_FIRE;
+		return MoveStatus.LEGAL;
+	}
+
+	/**
+	 * Compare boards, determine if they're equal. Two boards are equal if they have the same kinds of pieces in the
+	 * same places and the same side to move, so this is just a comparison of masks.
+	 *
+	 * @param o Object to compare to.
+	 * @return Equals
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		BitBoard board = (BitBoard) o;
+		return key == board.key && colorTurn == board.colorTurn && Arrays.equals(typeMasks, board.typeMasks)
+				&& rules.equals(board.rules);
+	}
+
+	/**
+	 * @return Hash code derived from the Zobrist key
+	 */
+	@Override
+	public int hashCode() {
+		return (int) (key ^ (key >>> 32));
+	}
+
+	public String toString() {
+		StringBuilder ret = new StringBuilder();
+		for (int i = rules.getRows() - 1; i >= 0; i--) {
+			for (int j = 0; j < rules.getCols(); j++) {
+				final Piece p = pieces[rules.square(i, j)];
+				ret.append(" ");
+				if (p == null)
+					ret.append("  ");
+				else
+					ret.append(p.toString());
+			}
+			ret.append('\n');
+		}
+
+		return ret.toString();
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.Piece;
+import strategy.StrategyGame;
+
+/**
+ * Listener for things happening in a BetaGame; attach any number with BetaGame.addListener(). Every method does
+ * nothing by default, so implementations only need to override what they care about.
+ * <p>
+ * Listeners are called on the thread making the move, so anything slow (printing, writing to disk...) belongs on
+ * another thread; see strategy.crmyers.beta.log.AsyncLog.
+ */
+public interface GameListener {
+
+	/**
+	 * A move was made. The game is already in its new state.
+	 *
+	 * @param game   Game the move was made in
+	 * @param color  Color that moved
+	 * @param move   Packed move, see Move
+	 * @param result Result of the move
+	 */
+	default void moveMade(BetaGame game, Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+	}
+
+	/**
+	 * A player tried to make an illegal move (and will lose for it).
+	 *
+	 * @param game   Game the move was attempted in
+	 * @param color  Color whose turn it was
+	 * @param status Why the move was illegal
+	 */
+	default void illegalMove(BetaGame game, Piece.PieceColor color, MoveStatus status) {
+	}
+
+	/**
+	 * The game ended.
+	 *
+	 * @param game   Game that ended
+	 * @param result Final result
+	 */
+	default void gameOver(BetaGame game, StrategyGame.MoveResult result) {
+	}
+}
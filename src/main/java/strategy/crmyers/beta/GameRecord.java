@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.Piece;
+import strategy.StrategyGame;
+
+import java.io.*;
+import java.util.Arrays;
+
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Compact binary record of a game: the starting position and every move made, as 16-bit moves (see Move). A game from
+ * the master test lineups comes to under 70 bytes. Attach a record to a game as a listener to fill it in, or use
+ * attach(). Only BetaGame has listener hooks, so VariantGame (Delta) games can't be recorded yet.
+ * <p>
+ * Format, big-endian as written by DataOutput:
+ * <ul>
+ * <li>format version (1 byte)</li>
+ * <li>the starting position, as written by BitBoard.write()</li>
+ * <li>result (1 byte): 0 if unfinished, 1 if red won, 2 if blue won</li>
+ * <li>number of moves (a varint: seven bits per byte, low bits first, top bit set on every byte but the last), then the
+ * moves (2 bytes each)</li>
+ * </ul>
+ * Games always start with red to move on turn zero, so the position's turn byte is never there. Format 1 records, which
+ * had a fixed 2-byte move count, can still be read.
+ */
+public class GameRecord implements GameListener {
+
+	private static final int FORMAT = 2;
+	private static final int FORMAT_SHORT_COUNT = 1;
+
+	private final BitBoard setup;
+	private short[] moves;
+	private int size;
+	private StrategyGame.MoveResult result;
+
+	/**
+	 * Start a record.
+	 *
+	 * @param setup Starting position, with red to move on turn zero; copied
+	 */
+	public GameRecord(BitBoard setup) {
+		this.setup = new BitBoard(setup);
+		moves = new short[2 * Math.min(setup.getRules().getTurnLimit(), BetaGame.TURN_LIMIT)];
+		size = 0;
+		result = null;
+	}
+
+	/**
+	 * Start a record of a game from its current position and attach it as a listener.
+	 *
+	 * @param game Game to record; has to be a BetaGame with red to move on turn zero
+	 * @return The record
+	 * @throws IllegalArgumentException Thrown if the game isn't a BetaGame, e.g. a Delta game from StrategyGameFactory
+	 */
+	public static GameRecord attach(StrategyGame game) {
+		if (!(game instanceof BetaGame))
+			throw new IllegalArgumentException("Only BetaGame can be recorded; " + game.getClass().getSimpleName()
+					+ " has no listener hooks");
+		final BetaGame beta = (BetaGame) game;
+		final GameRecord record = new GameRecord(beta.copyBoard());
+		beta.addListener(record);
+		return record;
+	}
+
+	/**
+	 * @return Copy of the starting position
+	 */
+	public BitBoard getSetup() {
+		return new BitBoard(setup);
+	}
+
+	/**
+	 * @return Number of moves recorded
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index Move number, from zero
+	 * @return Packed move, with flags
+	 */
+	public int getMove(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("No move " + index);
+		return Move.fromShort(moves[index]);
+	}
+
+	/**
+	 * @return RED_WINS or BLUE_WINS; null if the game isn't over
+	 */
+	public StrategyGame.MoveResult getResult() {
+		return result;
+	}
+
+	/**
+	 * @param result Final result; RED_WINS, BLUE_WINS or null
+	 */
+	public void setResult(StrategyGame.MoveResult result) {
+		this.result = result;
+	}
+
+	/**
+	 * Add a move.
+	 *
+	 * @param move Packed move, with or without flags
+	 */
+	public void add(int move) {
+		if (size == moves.length)
+			moves = Arrays.copyOf(moves, 2 * moves.length);
+		moves[size++] = Move.toShort(move);
+	}
+
+	@Override
+	public void moveMade(BetaGame game, Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+		int flags = result != PieceDefined.MoveResult.OK ? Move.STRIKE : 0;
+		if (game.getRules().distance(move) > 1)
+			flags |= Move.LONG;
+		add(Move.withFlags(move, flags));
+	}
+
+	@Override
+	public void gameOver(BetaGame game, StrategyGame.MoveResult result) {
+		this.result = result;
+	}
+
+	/**
+	 * Play the game through.
+	 *
+	 * @return Board after the last move, with every move on its undo stack
+	 */
+	public BitBoard replay() {
+		final BitBoard board = new BitBoard(setup);
+		for (int i = 0; i < size; i++)
+			board.makeMove(Move.fromShort(moves[i]));
+		return board;
+	}
+
+	/**
+	 * Write the record out.
+	 *
+	 * @param out Where to write it
+	 * @throws IOException Thrown if writing fails
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(FORMAT);
+		setup.write(out);
+
+		out.writeByte(result == StrategyGame.MoveResult.RED_WINS ? 1 :
+				result == StrategyGame.MoveResult.BLUE_WINS ? 2 : 0);
+		writeCount(out, size);
+		for (int i = 0; i < size; i++)
+			out.writeShort(moves[i]);
+	}
+
+	/**
+	 * Read a record written by write().
+	 *
+	 * @param in Where to read it from
+	 * @return The record
+	 * @throws IOException Thrown if reading fails or the data isn't a game record
+	 */
+	public static GameRecord read(DataInput in) throws IOException {
+		final int format = in.readUnsignedByte();
+		if (format != FORMAT && format != FORMAT_SHORT_COUNT)
+			throw new IOException("Unknown game record format " + format);
+		final BitBoard setup = BitBoard.read(in);
+		if (setup.getColorTurn() != RED || setup.getTurns() != 0)
+			throw new IOException("Game records must start with red to move on turn zero");
+
+		final GameRecord record = new GameRecord(setup);
+		final int result = in.readUnsignedByte();
+		record.result = result == 1 ? StrategyGame.MoveResult.RED_WINS :
+				result == 2 ? StrategyGame.MoveResult.BLUE_WINS : null;
+		final int count = format == FORMAT ? readCount(in) : in.readUnsignedShort();
+		for (int i = 0; i < count; i++)
+			record.add(in.readUnsignedShort());
+		return record;
+	}
+
+	/**
+	 * Write a move count as a varint; most games fit in a byte, and there's no upper limit short of Integer.MAX_VALUE.
+	 *
+	 * @param out   Where to write it
+	 * @param count Non-negative count
+	 * @throws IOException Thrown if writing fails
+	 */
+	private static void writeCount(DataOutput out, int count) throws IOException {
+		while ((count & ~0x7F) != 0) {
+			out.writeByte((count & 0x7F) | 0x80);
+			count >>>= 7;
+		}
+		out.writeByte(count);
+	}
+
+	/**
+	 * @param in Where to read it from
+	 * @return Count written by writeCount()
+	 * @throws IOException Thrown if reading fails or the count is malformed
+	 */
+	private static int readCount(DataInput in) throws IOException {
+		int count = 0;
+		for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+			final int b = in.readUnsignedByte();
+			count |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				if (count < 0)
+					throw new IOException("Move count out of range");
+				return count;
+			}
+		}
+		throw new IOException("Move count out of range");
+	}
+
+	/**
+	 * @return The record, written out to a byte array
+	 */
+	public byte[] toBytes() {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 2 * size);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			write(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param bytes Record written out by toBytes()
+	 * @return The record
+	 * @throws IOException Thrown if the data isn't a game record
+	 */
+	public static GameRecord fromBytes(byte[] bytes) throws IOException {
+		return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+}
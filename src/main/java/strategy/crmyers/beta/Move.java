@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+/**
+ * Packed moves. A move fits in 16 bits: the from square in the low 7, the to square in the next 7 (squares numbered as
+ * in RuleSet), and two optional flag bits on top. Nothing here knows the board's width; anything to do with rows and
+ * columns (packing a move from them, distances, printing) goes through the game's RuleSet. The engine passes moves around as plain ints and stores them as
+ * shorts, so making, generating or recording a move never allocates. Zero is never a legal move (it goes nowhere), so
+ * it stands in for "no move".
+ * <p>
+ * Flags are annotations for records and logs: the move generator never sets them and makeMove() ignores them, so use
+ * squares() when comparing a move that might carry flags against a generated one.
+ */
+public final class Move {
+
+	/**
+	 * No move at all
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * Flag: the move struck an enemy piece
+	 */
+	public static final int STRIKE = 1 << 14;
+
+	/**
+	 * Flag: the move covered more than one square (only scouts can do that)
+	 */
+	public static final int LONG = 1 << 15;
+
+	private static final int SQUARE_BITS = 7;
+	private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+	private static final int SQUARES_MASK = (1 << (2 * SQUARE_BITS)) - 1;
+	private static final int FLAGS_MASK = STRIKE | LONG;
+
+	private Move() {
+	}
+
+	/**
+	 * Pack a move
+	 *
+	 * @param from From square
+	 * @param to   To square
+	 * @return Packed move, without flags
+	 */
+	public static int pack(int from, int to) {
+		return from | (to << SQUARE_BITS);
+	}
+
+	/**
+	 * @param move Packed move
+	 * @return From square of the move
+	 */
+	public static int from(int move) {
+		return move & SQUARE_MASK;
+	}
+
+	/**
+	 * @param move Packed move
+	 * @return To square of the move
+	 */
+	public static int to(int move) {
+		return (move >>> SQUARE_BITS) & SQUARE_MASK;
+	}
+
+	/**
+	 * @param move Packed move
+	 * @return The move with its flags stripped off
+	 */
+	public static int squares(int move) {
+		return move & SQUARES_MASK;
+	}
+
+	/**
+	 * @param move Packed move
+	 * @return Flags set on the move
+	 */
+	public static int flags(int move) {
+		return move & FLAGS_MASK;
+	}
+
+	/**
+	 * @param move  Packed move
+	 * @param flags Flags to add
+	 * @return The move with the flags set
+	 */
+	public static int withFlags(int move, int flags) {
+		return move | (flags & FLAGS_MASK);
+	}
+
+	/**
+	 * @param move Packed move
+	 * @return The move as a short, for storage
+	 */
+	public static short toShort(int move) {
+		return (short) move;
+	}
+
+	/**
+	 * @param move Move stored with toShort()
+	 * @return Packed move
+	 */
+	public static int fromShort(short move) {
+		return move & 0xFFFF;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.Piece;
+
+/**
+ * Legal move generator. Writes every legal move for one side into a caller-supplied array of packed moves, without
+ * allocating or throwing anything, so bots don't have to probe PieceDefined.move() and catch exceptions to find out
+ * what they're allowed to do.
+ * <p>
+ * Moves are packed as described in Move, without flags.
+ */
+public final class MoveGenerator {
+
+	/**
+	 * Upper bound on the number of moves a side can have on any board that fits into a word; any array at least this
+	 * big is safe to generate into. A square can only be reached by the nearest piece in each of the four directions.
+	 */
+	public static final int MAX_MOVES = 4 * BitBoard.MAX_SQUARES;
+
+	private MoveGenerator() {
+	}
+
+	/**
+	 * Generate every legal move for one side. Bombs and flags never move, scouts slide any distance in a straight line
+	 * until they hit something (and may strike what they hit), and everything else steps one square. Nobody may land
+	 * on a piece of their own color or on a choke point.
+	 *
+	 * @param board Board to generate moves on
+	 * @param side  Color to generate moves for
+	 * @param moves Array to write packed moves into; must hold at least MAX_MOVES entries to be safe
+	 * @return Number of moves written
+	 */
+	public static int generate(BitBoard board, Piece.PieceColor side, int[] moves) {
+		final RuleSet rules = board.getRules();
+		final long blockers = board.getOccupied() | board.getChokes();
+		final long forbidden = board.getOccupied(side) | board.getChokes();
+		int count = 0;
+
+		long sliders = MovementTable.pieces(board, side, MovementTable.SLIDE);
+		while (sliders != 0) {
+			final int from = Long.numberOfTrailingZeros(sliders);
+			sliders &= sliders - 1;
+			count = write(moves, count, from, slides(rules, from, blockers) & ~forbidden);
+		}
+
+		long pieces = MovementTable.pieces(board, side, MovementTable.STEP);
+		while (pieces != 0) {
+			final int from = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			count = write(moves, count, from, rules.steps(from) & ~forbidden);
+		}
+		return count;
+	}
+
+	/**
+	 * Every square a scout could reach from a given square, including the first blocker in each direction.
+	 *
+	 * @param rules    Rules whose board the scout is on
+	 * @param from     Square the scout is on
+	 * @param blockers Mask of pieces and choke points
+	 * @return Reachable squares
+	 */
+	static long slides(RuleSet rules, int from, long blockers) {
+		long reach = 0;
+		for (int dir = RuleSet.NORTH; dir <= RuleSet.WEST; dir++) {
+			final long ray = rules.ray(dir, from);
+			final long hits = ray & blockers;
+			if (hits == 0) {
+				reach |= ray;
+				continue;
+			}
+
+			// The nearest blocker is the lowest bit for rays running up the board, the highest for rays running down
+			final int blocker = dir < RuleSet.SOUTH ? Long.numberOfTrailingZeros(hits) :
+					63 - Long.numberOfLeadingZeros(hits);
+			reach |= ray & ~rules.ray(dir, blocker);
+		}
+		return reach;
+	}
+
+	/**
+	 * Write one move per target square
+	 *
+	 * @param moves   Array to write into
+	 * @param count   Number of moves already written
+	 * @param from    From square
+	 * @param targets Mask of to squares
+	 * @return New number of moves written
+	 */
+	private static int write(int[] moves, int count, int from, long targets) {
+		while (targets != 0) {
+			moves[count++] = Move.pack(from, Long.numberOfTrailingZeros(targets));
+			targets &= targets - 1;
+		}
+		return count;
+	}
+}
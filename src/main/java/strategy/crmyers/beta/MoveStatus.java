@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+/**
+ * Outcome of validating a move without making it. Everything but LEGAL means the move can't be made; the message is
+ * only turned into a StrategyException at the edge of the public API, so internal callers (bots, search) can probe
+ * moves without building exceptions and stack traces.
+ */
+public enum MoveStatus {
+	LEGAL("Move is legal"),
+	OUT_OF_BOUNDS("Row/column index out of bounds"),
+	NO_PIECE("No piece to move"),
+	WRONG_COLOR("Tried to move the other player's piece"),
+	IMMOBILE("Bombs and flags cannot move"),
+	DIAGONAL("Diagonal move made"),
+	TOO_FAR("Only scouts can move more than one square"),
+	BLOCKED("Scout cannot jump over pieces/chokepoints"),
+	CHOKE_POINT("Cannot move onto a choke point"),
+	FRIENDLY_FIRE("Tried to strike a piece of the same color!"),
+	REPEATED("Move repeated");
+
+	private final String message;
+
+	MoveStatus(String message) {
+		this.message = message;
+	}
+
+	/**
+	 * @return Human-readable explanation, used as the exception message when one is needed
+	 */
+	public String getMessage() {
+		return message;
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+package strategy.crmyers.beta;
+
+import strategy.Piece;
+
+import java.util.Arrays;
+
+import static strategy.Piece.PieceType.*;
+
+/**
+ * How each piece type moves, as a flat table: bombs and flags are IMMOBILE, scouts SLIDE any distance along a clear
+ * row or column, everybody else takes a single STEP. Together with StrikeTable this is the whole rule set, so move
+ * validation and generation are one loop over a table instead of a virtual call per piece class.
+ */
+public final class MovementTable {
+
+	public static final int IMMOBILE = 0;
+	public static final int STEP = 1;
+	public static final int SLIDE = 2;
+
+	private static final byte[] MOVEMENT = new byte[BitBoard.TYPES];
+
+	// Piece indices (as in BitBoard's masks, red first) for each kind of movement
+	private static final int[][] INDICES = new int[3][];
+
+	static {
+		for (Piece.PieceType type : Piece.PieceType.values())
+			MOVEMENT[type.ordinal()] = (byte) (type == BOMB || type == FLAG ? IMMOBILE : type == SCOUT ? SLIDE : STEP);
+
+		for (int movement = IMMOBILE; movement <= SLIDE; movement++) {
+			int[] indices = new int[0];
+			for (int index = 0; index < 2 * BitBoard.TYPES; index++) {
+				if (MOVEMENT[index % BitBoard.TYPES] == movement) {
+					indices = Arrays.copyOf(indices, indices.length + 1);
+					indices[indices.length - 1] = index;
+				}
+			}
+			INDICES[movement] = indices;
+		}
+	}
+
+	private MovementTable() {
+	}
+
+	/**
+	 * @param type Piece type
+	 * @return IMMOBILE, STEP or SLIDE
+	 */
+	public static int get(Piece.PieceType type) {
+		return MOVEMENT[type.ordinal()];
+	}
+
+	/**
+	 * @param type Piece type ordinal
+	 * @return IMMOBILE, STEP or SLIDE
+	 */
+	static int get(int type) {
+		return MOVEMENT[type];
+	}
+
+	/**
+	 * @param board    Board to look at
+	 * @param side     Color to look up
+	 * @param movement IMMOBILE, STEP or SLIDE
+	 * @return Mask of every square holding a piece of the given color that moves that way
+	 */
+	static long pieces(BitBoard board, Piece.PieceColor side, int movement) {
+		long mask = 0;
+		for (int index : INDICES[movement])
+			mask |= board.getPieces(index);
+		return mask & board.getOccupied(side);
+	}
+}
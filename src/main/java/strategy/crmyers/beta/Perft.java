@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft: count the leaves of the game tree to a fixed depth. The counts only depend on the rules, so they catch any
+ * disagreement between MoveGenerator and PieceDefined.move(), and counting them is a good measure of how fast the
+ * generator and makeMove()/unmakeMove() are.
+ * <p>
+ * Games end early on a flag capture or at the turn limit; a finished game counts as a leaf if it ends exactly at the
+ * requested depth, and as nothing otherwise. The root is split with one fork/join task per move, each on its own copy
+ * of the board.
+ */
+public class Perft {
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Perft on the common fork/join pool.
+	 */
+	public Perft() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool Pool to split the root on
+	 */
+	public Perft(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Count leaves, in parallel.
+	 *
+	 * @param board Board to count from; not changed
+	 * @param depth Depth in plies
+	 * @return Number of leaves
+	 */
+	public long count(BitBoard board, int depth) {
+		long total = 0;
+		for (long nodes : divide(board, depth).values())
+			total += nodes;
+		return depth == 0 ? 1 : total;
+	}
+
+	/**
+	 * Count leaves under every root move, in parallel.
+	 *
+	 * @param board Board to count from; not changed
+	 * @param depth Depth in plies, counting the root move
+	 * @return Leaf count for every legal move at the root, in the order the move generator produces them
+	 */
+	public Map<Integer, Long> divide(BitBoard board, int depth) {
+		final Map<Integer, Long> counts = new LinkedHashMap<>();
+		if (depth < 1 || board.getTurns() >= board.getRules().getTurnLimit())
+			return counts;
+
+		final int[] moves = new int[MoveGenerator.MAX_MOVES];
+		final int count = MoveGenerator.generate(board, board.getColorTurn(), moves);
+		final List<Subtree> subtrees = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			subtrees.add(new Subtree(board, moves[i], depth - 1));
+		for (Subtree subtree : subtrees)
+			pool.execute(subtree);
+		for (int i = 0; i < count; i++)
+			counts.put(moves[i], subtrees.get(i).join());
+		return counts;
+	}
+
+	/**
+	 * Count leaves on one thread.
+	 *
+	 * @param board Board to count from; left as it was found
+	 * @param depth Depth in plies
+	 * @return Number of leaves
+	 */
+	public static long perft(BitBoard board, int depth) {
+		return perft(board, depth, new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES]);
+	}
+
+	/**
+	 * The recursion proper.
+	 *
+	 * @param board Board to count from; left as it was found
+	 * @param depth Depth in plies
+	 * @param moves Move lists, one per remaining ply
+	 * @return Number of leaves
+	 */
+	private static long perft(BitBoard board, int depth, int[][] moves) {
+		if (depth == 0)
+			return 1;
+		if (board.getTurns() >= board.getRules().getTurnLimit())
+			return 0;
+
+		final int[] list = moves[depth - 1];
+		final int count = MoveGenerator.generate(board, board.getColorTurn(), list);
+
+		// Every move at the last ply is a leaf, whatever it does; no need to make it
+		if (depth == 1)
+			return count;
+
+		long nodes = 0;
+		for (int i = 0; i < count; i++) {
+			final PieceDefined.MoveResult result = board.makeMove(list[i]);
+			if (result != PieceDefined.MoveResult.RED_WINS && result != PieceDefined.MoveResult.BLUE_WINS)
+				nodes += perft(board, depth - 1, moves);
+			board.unmakeMove();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Counts the leaves under one root move
+	 */
+	private static class Subtree extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		private final BitBoard board;
+		private final int depth;
+		private final boolean over;
+
+		Subtree(BitBoard root, int move, int depth) {
+			board = new BitBoard(root);
+			final PieceDefined.MoveResult result = board.makeMove(move);
+			over = result == PieceDefined.MoveResult.RED_WINS || result == PieceDefined.MoveResult.BLUE_WINS;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			if (over)
+				return depth == 0 ? 1L : 0L;
+			return perft(board, depth);
+		}
+	}
+}
@@ -28,14 +28,17 @@ import strategy.StrategyException;
 
 import static strategy.Piece.PieceColor.BLUE;
 import static strategy.Piece.PieceColor.RED;
-import static strategy.Piece.PieceType.BOMB;
-import static strategy.Piece.PieceType.FLAG;
 
+/**
+ * Base class for our pieces. Pieces are immutable and carry nothing but their color and type, so boards share one
+ * instance per color and type (see BetaBoard.makePiece()) and two pieces are equal if their color and type are.
+ * <p>
+ * The rules live in MovementTable and StrikeTable, and move() and strike() just look them up, so subclasses are thin
+ * views that only name their type and symbol.
+ */
 public abstract class PieceDefined implements Piece {
 
 	private final PieceColor color;
-	private Move last;
-	private Move last2;
 
 	public enum MoveResult {
 		OK,
@@ -64,6 +67,19 @@ public abstract class PieceDefined implements Piece {
 		return Math.abs(tc - fc) != 0 && Math.abs(tr - fr) != 0;
 	}
 
+	/**
+	 * Another dumb helper, this time to check that non-scouts only move a single square
+	 *
+	 * @param fr From row
+	 * @param fc From column
+	 * @param tr To row
+	 * @param tc To column
+	 * @return Whether the move covers more than one square
+	 */
+	static boolean isLong(int fr, int fc, int tr, int tc) {
+		return Math.abs(tc - fc) + Math.abs(tr - fr) > 1;
+	}
+
 	@Override
 	public PieceColor getPieceColor() {
 		return color;
@@ -80,61 +96,67 @@ public abstract class PieceDefined implements Piece {
 	 * @return Result of move
 	 * @throws StrategyException Thrown if move is invalid for any reason (e.g. out of bounds)
 	 */
-	public MoveResult move(BetaBoard board, int fr, int fc, int tr, int tc) throws StrategyException {
+	public final MoveResult move(BetaBoard board, int fr, int fc, int tr, int tc) throws StrategyException {
+		final int movement = MovementTable.get(getPieceType());
+		if (movement == MovementTable.IMMOBILE)
+			throw new StrategyException(MoveStatus.IMMOBILE.getMessage());
 		if (isDiagonal(fr, fc, tr, tc))
-			throw new StrategyException("Diagonal move made");
-		// Disabled for beta strategy
-		// if (moveRepetition(fr, fc, tr, tc))
-		// 	 throw new StrategyException("Move repeated");
+			throw new StrategyException(MoveStatus.DIAGONAL.getMessage());
+		if (movement == MovementTable.SLIDE) {
+			final int dr = Integer.signum(tr - fr);
+			final int dc = Integer.signum(tc - fc);
+			for (int r = fr + dr, c = fc + dc; r != tr || c != tc; r += dr, c += dc) {
+				if (board.getPieceAt(r, c) != null || board.getSquareTypeAt(r, c) != strategy.Board.SquareType.NORMAL)
+					throw new StrategyException(MoveStatus.BLOCKED.getMessage());
+			}
+		} else if (isLong(fr, fc, tr, tc))
+			throw new StrategyException(MoveStatus.TOO_FAR.getMessage());
 
 		Piece piece = board.getPieceAt(tr, tc);
+		if (piece != null && piece.getPieceColor() == getPieceColor())
+			throw new StrategyException(MoveStatus.FRIENDLY_FIRE.getMessage());
+
 		if (piece == null)
 			return MoveResult.OK;
-		if (piece.getPieceColor() == getPieceColor())
-			throw new StrategyException("Tried to strike a piece of the same color!");
-
 		return strike(piece);
 	}
 
 	/**
-	 * Determine the outcome of a particular strike.
+	 * Move the piece on a BitBoard. Same rules as above, but checked by BitBoard.validate(); this is the only place on
+	 * this path that builds an exception.
 	 *
-	 * @param target Targeted piece.
-	 * @return Result of the strike!
+	 * @param board BitBoard to move on
+	 * @param fr    From row
+	 * @param fc    From column
+	 * @param tr    To row
+	 * @param tc    To column
+	 * @return Result of move
+	 * @throws StrategyException Thrown if move is invalid for any reason (e.g. out of bounds)
 	 */
-	public MoveResult strike(Piece target) {
-		if (target.getPieceType() == BOMB)
-			return pieceLoss();
-		else if (target.getPieceType() == FLAG)
-			return color == BLUE ? MoveResult.BLUE_WINS : MoveResult.RED_WINS;
-
-		final int ourRank = getPieceType().ordinal();
-		final int theirRank = target.getPieceType().ordinal();
-		if (ourRank > theirRank)
-			return pieceVictory();
-		else if (ourRank < theirRank)
-			return pieceLoss();
-		return MoveResult.STRIKE_DRAW;
+	public final MoveResult move(BitBoard board, int fr, int fc, int tr, int tc) throws StrategyException {
+		final MoveStatus status = board.validate(color, getPieceType(), fr, fc, tr, tc);
+		if (status != MoveStatus.LEGAL)
+			throw new StrategyException(status.getMessage());
+
+		Piece piece = board.getPieceAt(tr, tc);
+		if (piece == null)
+			return MoveResult.OK;
+		return StrikeTable.get(color, getPieceType(), piece.getPieceType());
 	}
 
 	/**
-	 * Determine whether the piece would perform a back-and-forth move. Calling this function is equivalent to stating
-	 * that the move is being made, UNLESS the result is TRUE.
+	 * Determine the outcome of a particular strike. All the special cases (bombs, flags, spies, miners) are baked into
+	 * StrikeTable.
 	 *
-	 * @param fr From row
-	 * @param fc From column
-	 * @param tr To row
-	 * @param tc To column
-	 * @return Whether the move is a repeat or not
+	 * @param target Targeted piece.
+	 * @return Result of the strike!
+	 * @throws StrategyException Thrown if this piece can't strike (bombs and flags)
 	 */
-	@SuppressWarnings("SameParameterValue")
-	boolean moveRepetition(int fr, int fc, int tr, int tc) {
-		Move move = new Move(fr, fc, tr, tc);
-		if (move.equals(last2))
-			return true;
-		last2 = last;
-		last = move;
-		return false;
+	public final MoveResult strike(Piece target) {
+		final MoveResult result = StrikeTable.get(color, getPieceType(), target.getPieceType());
+		if (result == null)
+			throw new StrategyException(MoveStatus.IMMOBILE.getMessage());
+		return result;
 	}
 
 	/**
@@ -155,6 +177,25 @@ public abstract class PieceDefined implements Piece {
 		return color == BLUE ? MoveResult.STRIKE_RED : MoveResult.STRIKE_BLUE;
 	}
 
+	/**
+	 * @param o Object to compare to
+	 * @return Whether o is a piece of the same color and type
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof PieceDefined))
+			return false;
+		final PieceDefined piece = (PieceDefined) o;
+		return color == piece.color && getPieceType() == piece.getPieceType();
+	}
+
+	@Override
+	public int hashCode() {
+		return color.ordinal() * 31 + getPieceType().ordinal();
+	}
+
 	/**
 	 * @return Symbol that represents this piece
 	 */
@@ -168,33 +209,4 @@ public abstract class PieceDefined implements Piece {
 	protected String getColorStr() {
 		return color == RED ? "R" : "B";
 	}
-
-	/**
-	 * Helper class to store moves
-	 */
-	private static class Move {
-		final int fr;
-		final int fc;
-		final int tr;
-		final int tc;
-
-		Move(int fr, int fc, int tr, int tc) {
-			this.fr = fr;
-			this.fc = fc;
-			this.tr = tr;
-			this.tc = tc;
-		}
-
-		// Autogenerated
-		@Override
-		public boolean equals(Object o) {
-			if (this == o) return true;
-			if (o == null || getClass() != o.getClass()) return false;
-			Move move = (Move) o;
-			return fr == move.fr &&
-					fc == move.fc &&
-					tr == move.tr &&
-					tc == move.tc;
-		}
-	}
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.StrategyException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The last few hundred plies of a game (or of a search path), as a ring buffer of position keys and packed moves.
+ * Pushing and popping are O(1) and allocate nothing, so a search can push on makeMove() and pop on unmakeMove().
+ * <p>
+ * The buffer is twice the size of the window. A ply that falls out of the window stays in the buffer for another
+ * window's worth of pushes, so popping brings it back. A search can go that many plies past a full window without the
+ * window shrinking once it has backed out again.
+ * <p>
+ * Two kinds of repetition are checked. The two-square rule compares a move against the same side's previous two
+ * moves: a piece going A to B, B to A and then A to B again is a repeat. That's two array reads. Whole-position
+ * repetition counts how often a Zobrist key shows up in the window. A small table of counts, indexed by the low bits of
+ * the key, says in one read whether the key can be in the window at all. Only when it can, which is rare unless the
+ * position really did repeat, is the window scanned.
+ */
+public final class RepetitionHistory {
+
+	/**
+	 * Plies remembered by default; older ones fall out of the window
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private static final int FILTER_BITS = 12;
+	private static final int FILTER_MASK = (1 << FILTER_BITS) - 1;
+
+	private final long[] keys;
+	private final int[] moves;
+	private final int[] filter;
+	private final int capacity;
+	private final int mask;
+	private int end;
+	// Plies still in the buffer, including ones that have fallen out of the window; at most twice the capacity
+	private int stored;
+
+	public RepetitionHistory() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity Number of plies to remember; a power of two
+	 */
+	public RepetitionHistory(int capacity) {
+		if (capacity < 4 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("Capacity must be a power of two of at least 4, not " + capacity);
+		keys = new long[2 * capacity];
+		moves = new int[2 * capacity];
+		filter = new int[1 << FILTER_BITS];
+		this.capacity = capacity;
+		mask = 2 * capacity - 1;
+	}
+
+	/**
+	 * Copy constructor, e.g. for a search to start from a game's history.
+	 *
+	 * @param other History to copy
+	 */
+	public RepetitionHistory(RepetitionHistory other) {
+		keys = other.keys.clone();
+		moves = other.moves.clone();
+		filter = other.filter.clone();
+		capacity = other.capacity;
+		mask = other.mask;
+		end = other.end;
+		stored = other.stored;
+	}
+
+	/**
+	 * Record a ply: the move made and the position it led to. If the window is full, the oldest ply falls out.
+	 *
+	 * @param key  Zobrist key of the position after the move
+	 * @param move Packed move; Move.NONE for the starting position
+	 */
+	public void push(long key, int move) {
+		if (stored >= capacity)
+			filter[bucket(keys[(end - capacity) & mask])]--;
+		final int slot = end & mask;
+		keys[slot] = key;
+		moves[slot] = Move.squares(move);
+		filter[bucket(key)]++;
+		end++;
+		stored = Math.min(stored + 1, keys.length);
+	}
+
+	/**
+	 * Forget the last ply pushed. If a ply fell out of the window when it was pushed, it comes back.
+	 *
+	 * @throws StrategyException Thrown if there is nothing to forget
+	 */
+	public void pop() throws StrategyException {
+		if (stored == 0)
+			throw new StrategyException("No ply to pop");
+		end--;
+		stored--;
+		filter[bucket(keys[end & mask])]--;
+		if (stored >= capacity)
+			filter[bucket(keys[(end - capacity) & mask])]++;
+	}
+
+	/**
+	 * Forget everything.
+	 */
+	public void clear() {
+		Arrays.fill(filter, 0);
+		end = 0;
+		stored = 0;
+	}
+
+	/**
+	 * @return Number of plies in the window
+	 */
+	public int size() {
+		return Math.min(stored, capacity);
+	}
+
+	/**
+	 * @param key Zobrist key
+	 * @return How many times the position shows up in the window
+	 */
+	public int occurrences(long key) {
+		if (filter[bucket(key)] == 0)
+			return 0;
+		final int size = size();
+		int count = 0;
+		for (int i = 1; i <= size; i++) {
+			if (keys[(end - i) & mask] == key)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Two-square rule: would the side to move be moving a piece back to where it just came from, for the second
+	 * time? The side to move made the pushes two and four plies back.
+	 *
+	 * @param move Packed move about to be made
+	 * @return Whether the move is a repeat
+	 */
+	public boolean repeatsMove(int move) {
+		return stored >= 4 && repeats(move, moves[(end - 2) & mask], moves[(end - 4) & mask]);
+	}
+
+	/**
+	 * The two-square rule on its own, for code that tracks the last few moves itself (e.g. playouts, which are too long
+	 * to push onto a history and pop back off).
+	 *
+	 * @param move     Packed move about to be made
+	 * @param twoBack  Squares of the move made two plies back, i.e. the same side's last move; Move.NONE if none
+	 * @param fourBack Squares of the move made four plies back; Move.NONE if none
+	 * @return Whether the move is a repeat
+	 */
+	public static boolean repeats(int move, int twoBack, int fourBack) {
+		return fourBack == Move.squares(move) && twoBack == Move.pack(Move.to(move), Move.from(move));
+	}
+
+	/**
+	 * @param plies How far back to look; 1 is the last ply pushed
+	 * @return Squares of the move made that many plies back; Move.NONE if the window doesn't go back that far
+	 */
+	public int getMove(int plies) {
+		return plies >= 1 && plies <= size() ? moves[(end - plies) & mask] : Move.NONE;
+	}
+
+	/**
+	 * Write the window out, e.g. into a snapshot, so that a resumed game still knows what it just did. Format,
+	 * big-endian as written by DataOutput: capacity (4 bytes), number of plies (4 bytes), then every ply, oldest
+	 * first: its key (8 bytes) and its move's squares (2 bytes).
+	 *
+	 * @param out Where to write it
+	 * @throws IOException Thrown if writing fails
+	 */
+	public void write(DataOutput out) throws IOException {
+		final int size = size();
+		out.writeInt(capacity);
+		out.writeInt(size);
+		for (int i = size; i > 0; i--) {
+			out.writeLong(keys[(end - i) & mask]);
+			out.writeShort(moves[(end - i) & mask]);
+		}
+	}
+
+	/**
+	 * Read a window written by write().
+	 *
+	 * @param in Where to read it from
+	 * @return The history
+	 * @throws IOException Thrown if reading fails or the data isn't a history
+	 */
+	public static RepetitionHistory read(DataInput in) throws IOException {
+		final int capacity = in.readInt();
+		final int size = in.readInt();
+		if (capacity < 4 || capacity > 1 << 16 || Integer.bitCount(capacity) != 1 || size < 0 || size > capacity)
+			throw new IOException("Bad repetition history of " + size + " plies out of " + capacity);
+		final RepetitionHistory history = new RepetitionHistory(capacity);
+		for (int i = 0; i < size; i++) {
+			final long key = in.readLong();
+			history.push(key, in.readUnsignedShort());
+		}
+		return history;
+	}
+
+	/**
+	 * Tiny, dumb helper to pick a key's counter
+	 *
+	 * @param key Zobrist key
+	 * @return Index into the filter
+	 */
+	private static int bucket(long key) {
+		return (int) key & FILTER_MASK;
+	}
+}
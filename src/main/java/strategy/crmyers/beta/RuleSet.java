@@ -0,0 +1,479 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+package strategy.crmyers.beta;
+
+import strategy.Board;
+import strategy.Piece;
+import strategy.StrategyException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static strategy.Piece.PieceColor.RED;
+import static strategy.Piece.PieceType.*;
+
+/**
+ * The rules of one variant of the game: board size, default choke point layout, turn limit, whether the repetition
+ * rule applies and how many of each piece a side may field. Everything that depends on the geometry (neighbors, rays,
+ * the squares between two squares) is worked out once, when the rule set is made, so boards and engines that share a
+ * rule set never look anything up per move beyond an array index.
+ * <p>
+ * Squares are numbered row-major, square = row * columns + column, so the Beta board numbers its squares exactly as
+ * it always has. Any board up to MAX_SQUARES squares can be described and played through StrategyGameFactory, but
+ * BitBoard (and everything built on it: move generation, search, simulation, records and storage) needs the board to
+ * fit into a single 64-bit word, see fitsInWord(). Delta doesn't; widening BitBoard's masks to two words is still to
+ * do, see TODO.md.
+ */
+public final class RuleSet {
+
+	/**
+	 * Largest board a rule set can describe; Move has seven bits per square
+	 */
+	public static final int MAX_SQUARES = 128;
+
+	/**
+	 * Turn limit for games that don't have one
+	 */
+	public static final int NO_TURN_LIMIT = Integer.MAX_VALUE;
+
+	// Directions for rays; the first two run towards higher square numbers, the last two towards lower ones
+	public static final int NORTH = 0;
+	public static final int EAST = 1;
+	public static final int SOUTH = 2;
+	public static final int WEST = 3;
+
+	private static final int[] D_ROW = {1, 0, -1, 0};
+	private static final int[] D_COL = {0, 1, 0, -1};
+	private static final Piece.PieceType[] TYPES = Piece.PieceType.values();
+
+	/**
+	 * Beta Strategy: 6x6, no choke points, red wins after eight turns, no repetition rule, and a twelve piece lineup
+	 */
+	public static final RuleSet BETA = new RuleSet(BetaBoard.ROWS, BetaBoard.COLS, new BitSet(), BetaGame.TURN_LIMIT,
+			false, lineup(FLAG, MARSHAL, COLONEL, COLONEL, CAPTAIN, CAPTAIN, LIEUTENANT, LIEUTENANT, LIEUTENANT,
+					SERGEANT, SERGEANT, SERGEANT));
+
+	/**
+	 * Gamma Strategy: 6x6 with a 2x2 choke point in the middle, no turn limit, the repetition rule, and bombs
+	 */
+	public static final RuleSet GAMMA = new RuleSet(6, 6, chokes(6, 2, 2, 2, 3, 3, 2, 3, 3), NO_TURN_LIMIT, true,
+			lineup(FLAG, MARSHAL, COLONEL, COLONEL, CAPTAIN, CAPTAIN, LIEUTENANT, LIEUTENANT, SERGEANT, SERGEANT,
+					BOMB, BOMB));
+
+	/**
+	 * Delta Strategy: the full 10x10 game with its two lakes, no turn limit, the repetition rule and forty pieces
+	 */
+	public static final RuleSet DELTA = new RuleSet(10, 10, chokes(10, 4, 2, 4, 3, 5, 2, 5, 3, 4, 6, 4, 7, 5, 6, 5, 7),
+			NO_TURN_LIMIT, true, lineup(FLAG, MARSHAL, GENERAL, COLONEL, COLONEL, MAJOR, MAJOR, MAJOR, CAPTAIN, CAPTAIN,
+					CAPTAIN, CAPTAIN, LIEUTENANT, LIEUTENANT, LIEUTENANT, LIEUTENANT, SERGEANT, SERGEANT, SERGEANT,
+					SERGEANT, MINER, MINER, MINER, MINER, MINER, SCOUT, SCOUT, SCOUT, SCOUT, SCOUT, SCOUT, SCOUT, SCOUT,
+					SPY, BOMB, BOMB, BOMB, BOMB, BOMB, BOMB));
+
+	private final int rows;
+	private final int cols;
+	private final BitSet chokes;
+	private final int turnLimit;
+	private final boolean repetition;
+	private final int[] counts;
+
+	// Compiled tables for every board: choke points as a mask of words, and the squares a scout slides over from each
+	// square in each direction before it hits the edge or a choke point
+	private final long[] blocked;
+	private final int[][] slides;
+
+	// Compiled tables, only filled in for boards that fit into a word
+	private final long board;
+	private final long chokeMask;
+	private final long[] steps;
+	private final long[] rays;
+	private final long[] between;
+
+	/**
+	 * Make (and compile) a rule set.
+	 *
+	 * @param rows       Number of rows
+	 * @param cols       Number of columns
+	 * @param chokes     Choke point squares of a fresh board; copied
+	 * @param turnLimit  Number of full turns after which red wins; NO_TURN_LIMIT if there's no limit
+	 * @param repetition Whether pieces are forbidden from moving back and forth between two squares
+	 * @param counts     How many pieces of each type (by ordinal) a side may have; copied
+	 */
+	public RuleSet(int rows, int cols, BitSet chokes, int turnLimit, boolean repetition, int[] counts) {
+		if (rows < 1 || cols < 1 || rows * cols > MAX_SQUARES)
+			throw new IllegalArgumentException("Can't play on a " + rows + "x" + cols + " board");
+		if (chokes.length() > rows * cols)
+			throw new IllegalArgumentException("Choke point off the board");
+		if (turnLimit < 1 || (turnLimit > 0xFFFF && turnLimit != NO_TURN_LIMIT))
+			throw new IllegalArgumentException("Bad turn limit " + turnLimit);
+		if (counts.length != TYPES.length)
+			throw new IllegalArgumentException("Need a count for every piece type");
+		for (int count : counts) {
+			if (count < 0 || count > rows * cols)
+				throw new IllegalArgumentException("Bad piece count " + count);
+		}
+		this.rows = rows;
+		this.cols = cols;
+		this.chokes = (BitSet) chokes.clone();
+		this.turnLimit = turnLimit;
+		this.repetition = repetition;
+		this.counts = counts.clone();
+
+		final int squares = rows * cols;
+		blocked = Arrays.copyOf(chokes.toLongArray(), (squares + Long.SIZE - 1) / Long.SIZE);
+		slides = new int[4 * squares][];
+		for (int sq = 0; sq < squares; sq++) {
+			for (int dir = NORTH; dir <= WEST; dir++) {
+				int[] slide = new int[0];
+				for (int r = sq / cols + D_ROW[dir], c = sq % cols + D_COL[dir];
+					 inBounds(r, c) && !chokes.get(square(r, c)); r += D_ROW[dir], c += D_COL[dir]) {
+					slide = Arrays.copyOf(slide, slide.length + 1);
+					slide[slide.length - 1] = square(r, c);
+				}
+				slides[dir * squares + sq] = slide;
+			}
+		}
+
+		if (!fitsInWord()) {
+			board = 0;
+			chokeMask = 0;
+			steps = null;
+			rays = null;
+			between = null;
+			return;
+		}
+
+		board = squares == Long.SIZE ? -1L : (1L << squares) - 1;
+		chokeMask = blocked[0];
+		steps = new long[squares];
+		rays = new long[4 * squares];
+		between = new long[squares * squares];
+		for (int sq = 0; sq < squares; sq++) {
+			final int row = sq / cols, col = sq % cols;
+			for (int dir = NORTH; dir <= WEST; dir++) {
+				long ray = 0;
+				for (int r = row + D_ROW[dir], c = col + D_COL[dir]; inBounds(r, c); r += D_ROW[dir], c += D_COL[dir]) {
+					between[sq * squares + square(r, c)] = ray;
+					ray |= 1L << square(r, c);
+				}
+				rays[dir * squares + sq] = ray;
+				if (inBounds(row + D_ROW[dir], col + D_COL[dir]))
+					steps[sq] |= 1L << square(row + D_ROW[dir], col + D_COL[dir]);
+			}
+		}
+	}
+
+	/**
+	 * Tiny, dumb helper to turn one side's lineup into piece counts, the way TestBoard.makeLineup() spells them
+	 *
+	 * @param pieces Every piece a side gets
+	 * @return Counts by type ordinal
+	 */
+	public static int[] lineup(Piece.PieceType... pieces) {
+		final int[] counts = new int[TYPES.length];
+		for (Piece.PieceType type : pieces)
+			counts[type.ordinal()]++;
+		return counts;
+	}
+
+	/**
+	 * Tiny, dumb helper to list choke points by location
+	 *
+	 * @param cols      Number of columns on the board
+	 * @param locations Row and column of each choke point, one after the other
+	 * @return Choke point squares
+	 */
+	private static BitSet chokes(int cols, int... locations) {
+		final BitSet chokes = new BitSet();
+		for (int i = 0; i < locations.length; i += 2)
+			chokes.set(locations[i] * cols + locations[i + 1]);
+		return chokes;
+	}
+
+	/**
+	 * The same rules with the choke points read off a board, e.g. a setup handed to StrategyGameFactory.
+	 *
+	 * @param board Board to take choke points from; only squares within this rule set's bounds are looked at
+	 * @return Rule set with those choke points; this one if they're the same
+	 */
+	public RuleSet withChokes(Board board) {
+		final BitSet found = new BitSet(getSquares());
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				if (board.getSquareTypeAt(row, col) != Board.SquareType.NORMAL)
+					found.set(square(row, col));
+			}
+		}
+		return found.equals(chokes) ? this : new RuleSet(rows, cols, found, turnLimit, repetition, counts);
+	}
+
+	/**
+	 * Check a setup against the allowed piece counts.
+	 *
+	 * @param board Setup to check
+	 * @throws StrategyException Thrown if either side has more of a piece than it's allowed, or a piece sits on a
+	 *                           choke point
+	 */
+	public void checkLineup(Board board) throws StrategyException {
+		final int[] found = new int[2 * TYPES.length];
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				final Piece piece = board.getPieceAt(row, col);
+				if (piece == null)
+					continue;
+				if (board.getSquareTypeAt(row, col) != Board.SquareType.NORMAL)
+					throw new StrategyException("Piece placed on a choke point at " + row + ", " + col);
+				final int type = piece.getPieceType().ordinal();
+				if (++found[(piece.getPieceColor() == RED ? 0 : TYPES.length) + type] > counts[type])
+					throw new StrategyException("Too many " + piece.getPieceColor() + " " + piece.getPieceType()
+							+ " pieces");
+			}
+		}
+	}
+
+	/**
+	 * @return Number of rows
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return Number of columns
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * @return Number of squares
+	 */
+	public int getSquares() {
+		return rows * cols;
+	}
+
+	/**
+	 * @return Whether the board fits into a single 64-bit word, as BitBoard needs
+	 */
+	public boolean fitsInWord() {
+		return rows * cols <= Long.SIZE;
+	}
+
+	/**
+	 * @return Number of full turns after which red wins; NO_TURN_LIMIT if there isn't one
+	 */
+	public int getTurnLimit() {
+		return turnLimit;
+	}
+
+	/**
+	 * @return Whether pieces are forbidden from moving back and forth between two squares
+	 */
+	public boolean hasRepetitionRule() {
+		return repetition;
+	}
+
+	/**
+	 * @param type Piece type
+	 * @return How many pieces of that type each side may have
+	 */
+	public int getCount(Piece.PieceType type) {
+		return counts[type.ordinal()];
+	}
+
+	/**
+	 * @param square Square
+	 * @return Whether a fresh board has a choke point there
+	 */
+	public boolean isChoke(int square) {
+		return (blocked[square >>> 6] & 1L << square) != 0;
+	}
+
+	/**
+	 * @return Mask of choke points on a fresh board; only for boards that fit into a word
+	 */
+	public long getChokes() {
+		return chokeMask;
+	}
+
+	/**
+	 * @return Mask of every square on the board; only for boards that fit into a word
+	 */
+	public long getBoard() {
+		return board;
+	}
+
+	/**
+	 * @param row    Row
+	 * @param column Column
+	 * @return Whether the location is on the board
+	 */
+	public boolean inBounds(int row, int column) {
+		return row >= 0 && row < rows && column >= 0 && column < cols;
+	}
+
+	/**
+	 * @param row    Row
+	 * @param column Column
+	 * @return Square number of a location; no bounds checking
+	 */
+	public int square(int row, int column) {
+		return row * cols + column;
+	}
+
+	/**
+	 * Pack a move given as rows and columns. No bounds checking.
+	 *
+	 * @param fr From row
+	 * @param fc From column
+	 * @param tr To row
+	 * @param tc To column
+	 * @return Packed move, without flags
+	 */
+	public int pack(int fr, int fc, int tr, int tc) {
+		return Move.pack(square(fr, fc), square(tr, tc));
+	}
+
+	/**
+	 * @param move Packed move, with or without flags
+	 * @return Number of squares the move covers, counting along rows and columns
+	 */
+	public int distance(int move) {
+		final int from = Move.from(move), to = Move.to(move);
+		return Math.abs(from / cols - to / cols) + Math.abs(from % cols - to % cols);
+	}
+
+	/**
+	 * @param move Packed move
+	 * @return The move as "(row, column) -> (row, column)"
+	 */
+	public String toString(int move) {
+		final int from = Move.from(move), to = Move.to(move);
+		return "(" + from / cols + ", " + from % cols + ") -> (" + to / cols + ", " + to % cols + ")";
+	}
+
+	/**
+	 * @param square Square
+	 * @return Mask of the square's orthogonal neighbors
+	 */
+	long steps(int square) {
+		return steps[square];
+	}
+
+	/**
+	 * @param direction NORTH, EAST, SOUTH or WEST
+	 * @param square    Square
+	 * @return Mask of every square in that direction, up to the edge of the board
+	 */
+	long ray(int direction, int square) {
+		return rays[direction * rows * cols + square];
+	}
+
+	/**
+	 * @param direction NORTH, EAST, SOUTH or WEST
+	 * @param square    Square
+	 * @return Squares in that direction, nearest first, up to the edge of the board or the first choke point
+	 */
+	int[] slide(int direction, int square) {
+		return slides[direction * rows * cols + square];
+	}
+
+	/**
+	 * @param from From square
+	 * @param to   To square
+	 * @return Mask of the squares strictly between two squares in the same row or column; zero otherwise
+	 */
+	long between(int from, int to) {
+		return between[from * rows * cols + to];
+	}
+
+	/**
+	 * Write the rule set out: rows, columns (1 byte each), turn limit (2 bytes, zero for none), repetition rule
+	 * (1 byte), one count byte per piece type, then the choke points as a bit set, length first (1 byte).
+	 *
+	 * @param out Where to write it
+	 * @throws IOException Thrown if writing fails
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(rows);
+		out.writeByte(cols);
+		out.writeShort(turnLimit == NO_TURN_LIMIT ? 0 : turnLimit);
+		out.writeBoolean(repetition);
+		for (int count : counts)
+			out.writeByte(count);
+		final byte[] bits = chokes.toByteArray();
+		out.writeByte(bits.length);
+		out.write(bits);
+	}
+
+	/**
+	 * Read a rule set written by write(); Beta's rules come back as BETA itself.
+	 *
+	 * @param in Where to read it from
+	 * @return The rule set
+	 * @throws IOException Thrown if reading fails or the data isn't a rule set
+	 */
+	public static RuleSet read(DataInput in) throws IOException {
+		final int rows = in.readUnsignedByte();
+		final int cols = in.readUnsignedByte();
+		final int turnLimit = in.readUnsignedShort();
+		final boolean repetition = in.readBoolean();
+		final int[] counts = new int[TYPES.length];
+		for (int i = 0; i < counts.length; i++)
+			counts[i] = in.readUnsignedByte();
+		final byte[] bits = new byte[in.readUnsignedByte()];
+		in.readFully(bits);
+
+		try {
+			final RuleSet rules = new RuleSet(rows, cols, BitSet.valueOf(bits), turnLimit == 0 ? NO_TURN_LIMIT :
+					turnLimit, repetition, counts);
+			return rules.equals(BETA) ? BETA : rules;
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Bad rule set: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		final RuleSet other = (RuleSet) o;
+		return rows == other.rows && cols == other.cols && turnLimit == other.turnLimit
+				&& repetition == other.repetition && Arrays.equals(counts, other.counts) && chokes.equals(other.chokes);
+	}
+
+	@Override
+	public int hashCode() {
+		return ((rows * 31 + cols) * 31 + turnLimit) * 31 + chokes.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return rows + "x" + cols + (chokes.isEmpty() ? "" : ", chokes " + chokes)
+				+ (turnLimit == NO_TURN_LIMIT ? "" : ", " + turnLimit + " turns") + (repetition ? ", repetition" : "");
+	}
+}
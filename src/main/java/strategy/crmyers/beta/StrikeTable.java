@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.Piece;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+import static strategy.Piece.PieceType.*;
+
+/**
+ * Precomputed strike outcomes. Every attacker (color and type) against every defender is worked out once, up front,
+ * so resolving a strike is a single array lookup instead of a virtual strike() call and a chain of type checks.
+ * <p>
+ * Pieces are indexed the same way BitBoard indexes its masks: red pieces are 0 through TYPES - 1 by type ordinal,
+ * blue pieces follow. A null outcome means the strike can't happen at all (bombs and flags never attack, and nobody
+ * strikes their own color).
+ */
+public final class StrikeTable {
+
+	private static final int PIECES = 2 * BitBoard.TYPES;
+	private static final PieceDefined.MoveResult[] OUTCOMES = new PieceDefined.MoveResult[PIECES * PIECES];
+
+	static {
+		final Piece.PieceType[] types = Piece.PieceType.values();
+		for (Piece.PieceColor color : Piece.PieceColor.values()) {
+			final Piece.PieceColor enemy = color == RED ? BLUE : RED;
+			for (Piece.PieceType attacker : types) {
+				for (Piece.PieceType defender : types) {
+					OUTCOMES[BitBoard.maskIndex(color, attacker) * PIECES + BitBoard.maskIndex(enemy, defender)] =
+							resolve(color, attacker, defender);
+				}
+			}
+		}
+	}
+
+	private StrikeTable() {
+	}
+
+	/**
+	 * Work out a strike from scratch. This is where the special cases live: spies take out marshals, miners defuse
+	 * bombs, bombs take out everybody else, and anyone who reaches the flag wins.
+	 *
+	 * @param color    Color of the attacker
+	 * @param attacker Attacker type
+	 * @param defender Defender type
+	 * @return Result of the strike, null if the attacker can't strike
+	 */
+	private static PieceDefined.MoveResult resolve(Piece.PieceColor color, Piece.PieceType attacker,
+	                                               Piece.PieceType defender) {
+		final PieceDefined.MoveResult victory = color == BLUE ? PieceDefined.MoveResult.STRIKE_BLUE :
+				PieceDefined.MoveResult.STRIKE_RED;
+		final PieceDefined.MoveResult loss = color == BLUE ? PieceDefined.MoveResult.STRIKE_RED :
+				PieceDefined.MoveResult.STRIKE_BLUE;
+
+		if (attacker == BOMB || attacker == FLAG)
+			return null;
+		if ((attacker == SPY && defender == MARSHAL) || (attacker == MINER && defender == BOMB))
+			return victory;
+		if (defender == BOMB)
+			return loss;
+		if (defender == FLAG)
+			return color == BLUE ? PieceDefined.MoveResult.BLUE_WINS : PieceDefined.MoveResult.RED_WINS;
+
+		final int ourRank = attacker.ordinal();
+		final int theirRank = defender.ordinal();
+		if (ourRank > theirRank)
+			return victory;
+		else if (ourRank < theirRank)
+			return loss;
+		return PieceDefined.MoveResult.STRIKE_DRAW;
+	}
+
+	/**
+	 * Look up a strike by piece index, as used by BitBoard.
+	 *
+	 * @param attacker Attacker index
+	 * @param defender Defender index
+	 * @return Result of the strike, null if it can't happen
+	 */
+	static PieceDefined.MoveResult get(int attacker, int defender) {
+		return OUTCOMES[attacker * PIECES + defender];
+	}
+
+	/**
+	 * Look up a strike.
+	 *
+	 * @param color    Color of the attacker; the defender is assumed to be the other color
+	 * @param attacker Attacker type
+	 * @param defender Defender type
+	 * @return Result of the strike, null if the attacker can't strike
+	 */
+	public static PieceDefined.MoveResult get(Piece.PieceColor color, Piece.PieceType attacker,
+	                                          Piece.PieceType defender) {
+		return get(BitBoard.maskIndex(color, attacker), BitBoard.maskIndex(color == RED ? BLUE : RED, defender));
+	}
+}
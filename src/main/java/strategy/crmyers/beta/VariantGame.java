@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.Board;
+import strategy.Piece;
+import strategy.StrategyGame;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+import static strategy.StrategyGame.MoveResult.*;
+
+/**
+ * Strategy under any rule set, played on a BetaBoard; StrategyGameFactory only uses it for boards with more squares
+ * than fit into a BitBoard word, such as Delta's, and plays everything smaller (Gamma included) on BetaGame.
+ * Validation runs off the rule set's compiled tables: the choke points are a precomputed mask, and for every square
+ * and direction the rule set lists the squares a scout can slide over before it reaches the edge or a choke point.
+ * The only per-move work left is looking at the squares a move actually crosses, and pieces sit in a flat array
+ * indexed by square.
+ * <p>
+ * The rules are BetaGame's: capturing the flag wins, a side that can't move loses as soon as it tries something
+ * illegal, and if the rule set has a turn limit, red wins once it runs out.
+ */
+public class VariantGame implements StrategyGame {
+
+	private final RuleSet rules;
+	private final BetaBoard board;
+	private final RepetitionHistory repetitions;
+	private Piece.PieceColor colorTurn;
+	private int turns;
+	private boolean over;
+
+	/**
+	 * Start a game.
+	 *
+	 * @param rules Rules to play by; choke points should match the board's, see RuleSet.withChokes()
+	 * @param board Starting position
+	 */
+	public VariantGame(RuleSet rules, Board board) {
+		this.rules = rules;
+		this.board = new BetaBoard(rules, board);
+		colorTurn = RED;
+		turns = 0;
+		over = false;
+		repetitions = new RepetitionHistory();
+		repetitions.push(key(), Move.NONE);
+	}
+
+	/**
+	 * Make a move!
+	 *
+	 * @param fr from row..
+	 * @param fc from column...
+	 * @param tr ...to row
+	 * @param tc ...to column
+	 * @return Result of move
+	 */
+	@Override
+	public MoveResult move(int fr, int fc, int tr, int tc) {
+		if (isOver())
+			return GAME_OVER;
+
+		// Same as BetaGame: whoever owns the piece loses, normally the moving player
+		final MoveStatus status = validate(fr, fc, tr, tc);
+		if (status == MoveStatus.WRONG_COLOR)
+			return end(colorTurn == RED ? RED_WINS : BLUE_WINS);
+		if (status != MoveStatus.LEGAL)
+			return end(colorTurn == RED ? BLUE_WINS : RED_WINS);
+
+		// Winners move into the target square, defending winners move into the attacker's
+		final int from = rules.square(fr, fc);
+		final int to = rules.square(tr, tc);
+		final PieceDefined attacker = board.get(from);
+		final PieceDefined defender = board.get(to);
+		final PieceDefined.MoveResult result = defender == null ? PieceDefined.MoveResult.OK :
+				attacker.strike(defender);
+		if (result == PieceDefined.MoveResult.STRIKE_DRAW) {
+			board.set(from, null);
+			board.set(to, null);
+		} else if ((result == PieceDefined.MoveResult.STRIKE_RED && attacker.getPieceColor() == BLUE) ||
+				(result == PieceDefined.MoveResult.STRIKE_BLUE && attacker.getPieceColor() == RED)) {
+			board.set(from, defender);
+			board.set(to, null);
+		} else {
+			board.set(to, attacker);
+			board.set(from, null);
+		}
+
+		if (colorTurn == RED)
+			colorTurn = BLUE;
+		else {
+			colorTurn = RED;
+			turns++;
+		}
+		repetitions.push(key(), rules.pack(fr, fc, tr, tc));
+
+		if (result == PieceDefined.MoveResult.RED_WINS || result == PieceDefined.MoveResult.BLUE_WINS)
+			return end(convertMoveResult(result));
+		if (turns >= rules.getTurnLimit())
+			return end(RED_WINS);
+		return convertMoveResult(result);
+	}
+
+	/**
+	 * Check a move for the side to move. Never throws; the two-square rule is checked against the game's history, the
+	 * same way BetaGame does.
+	 *
+	 * @param fr From row
+	 * @param fc From column
+	 * @param tr To row
+	 * @param tc To column
+	 * @return LEGAL, or the reason the move is illegal
+	 */
+	private MoveStatus validate(int fr, int fc, int tr, int tc) {
+		if (!rules.inBounds(fr, fc) || !rules.inBounds(tr, tc))
+			return MoveStatus.OUT_OF_BOUNDS;
+		final int from = rules.square(fr, fc);
+		final int to = rules.square(tr, tc);
+		final PieceDefined piece = board.get(from);
+		if (piece == null)
+			return MoveStatus.NO_PIECE;
+		if (piece.getPieceColor() != colorTurn)
+			return MoveStatus.WRONG_COLOR;
+		final int movement = MovementTable.get(piece.getPieceType());
+		if (movement == MovementTable.IMMOBILE)
+			return MoveStatus.IMMOBILE;
+		final PieceDefined target = board.get(to);
+		if (target != null && target.getPieceColor() == colorTurn)
+			return MoveStatus.FRIENDLY_FIRE;
+
+		final int direction;
+		if (fr == tr)
+			direction = tc > fc ? RuleSet.EAST : RuleSet.WEST;
+		else if (fc == tc)
+			direction = tr > fr ? RuleSet.NORTH : RuleSet.SOUTH;
+		else
+			return MoveStatus.DIAGONAL;
+		final int distance = Math.abs(tr - fr) + Math.abs(tc - fc);
+		if (movement == MovementTable.STEP && distance > 1)
+			return MoveStatus.TOO_FAR;
+
+		// The slide stops short of choke points, so anything past its end is either one or behind one
+		final int[] slide = rules.slide(direction, from);
+		if (distance > slide.length)
+			return rules.isChoke(to) ? MoveStatus.CHOKE_POINT : MoveStatus.BLOCKED;
+		for (int i = 0; i < distance - 1; i++) {
+			if (board.get(slide[i]) != null)
+				return MoveStatus.BLOCKED;
+		}
+
+		if (rules.hasRepetitionRule() && repetitions.repeatsMove(rules.pack(fr, fc, tr, tc)))
+			return MoveStatus.REPEATED;
+		return MoveStatus.LEGAL;
+	}
+
+	/**
+	 * @return Zobrist key of the position, side to move included
+	 */
+	private long key() {
+		return board.getKey() ^ (colorTurn == BLUE ? Zobrist.SIDE : 0);
+	}
+
+	/**
+	 * End the game.
+	 *
+	 * @param result Final result
+	 * @return The same result, for convenience
+	 */
+	private MoveResult end(MoveResult result) {
+		over = true;
+		return result;
+	}
+
+	/**
+	 * @return Color whose turn it is
+	 */
+	public Piece.PieceColor getColorTurn() {
+		return colorTurn;
+	}
+
+	/**
+	 * @return Number of full turns made so far
+	 */
+	public int getTurns() {
+		return turns;
+	}
+
+	/**
+	 * @return How many times the current position came up earlier in the game, for callers that adjudicate draws by
+	 * repetition; see BetaGame.getRepetitions()
+	 */
+	public int getRepetitions() {
+		return repetitions.occurrences(key()) - 1;
+	}
+
+	/**
+	 * @return Rules the game is played by
+	 */
+	public RuleSet getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return Whether the game has ended
+	 */
+	public boolean isOver() {
+		return over;
+	}
+
+	/**
+	 * @return Drawing of the current board
+	 */
+	@Override
+	public String toString() {
+		return board.toString();
+	}
+
+	/**
+	 * Bridge from the extended PieceDefined.MoveResult to the Strategy one, same as BetaGame's.
+	 *
+	 * @param result Move result in PieceDefined format
+	 * @return Move result in Strategy format
+	 */
+	private MoveResult convertMoveResult(PieceDefined.MoveResult result) {
+		if (result == PieceDefined.MoveResult.STRIKE_DRAW)
+			return OK;
+		else
+			return MoveResult.values()[result.ordinal()];
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.Piece;
+
+import java.util.Random;
+
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Zobrist keys for Strategy positions. Every (color, type, square) triple gets a random 64-bit number, as does the side
+ * to move; a position's key is the XOR of the numbers for everything in it. Since XOR is its own inverse, boards can
+ * keep their key up to date with a couple of XORs per change instead of rehashing every square.
+ */
+final class Zobrist {
+
+	/**
+	 * Key for blue to move; red to move contributes nothing.
+	 */
+	static final long SIDE;
+
+	private static final long[] PIECES = new long[2 * BitBoard.TYPES * RuleSet.MAX_SQUARES];
+
+	static {
+		// Fixed seed, so keys (and anything stored under them) are the same from run to run
+		final Random random = new Random(4233);
+		for (int i = 0; i < PIECES.length; i++)
+			PIECES[i] = random.nextLong();
+		SIDE = random.nextLong();
+	}
+
+	private Zobrist() {
+	}
+
+	/**
+	 * @param color  Piece color
+	 * @param type   Piece type
+	 * @param square Square, numbered as in RuleSet
+	 * @return Key for a piece on a square
+	 */
+	static long piece(Piece.PieceColor color, Piece.PieceType type, int square) {
+		return PIECES[((color == RED ? 0 : BitBoard.TYPES) + type.ordinal()) * RuleSet.MAX_SQUARES + square];
+	}
+
+	/**
+	 * @param piece  Piece; may be null
+	 * @param square Square, numbered as in RuleSet
+	 * @return Key for a piece on a square, zero for an empty square
+	 */
+	static long piece(Piece piece, int square) {
+		return piece == null ? 0 : piece(piece.getPieceColor(), piece.getPieceType(), square);
+	}
+}
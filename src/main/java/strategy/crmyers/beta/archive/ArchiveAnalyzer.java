@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.archive;
+
+import strategy.crmyers.beta.GameRecord;
+import strategy.crmyers.beta.RuleSet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Streams every game in an archive through an aggregation, in parallel. Segments are cut into ranges of whole games
+ * by walking their length prefixes, and the ranges are split between fork/join tasks, so even a single segment keeps
+ * every thread busy; each task scans its ranges one game at a time into its own accumulator, and accumulators are
+ * combined on the way back up. Nothing is ever loaded all at once, so memory use only depends on the number of
+ * threads and on how big the accumulators get, not on the size of the archive.
+ */
+public class ArchiveAnalyzer {
+
+	/**
+	 * Default size of a range, in bytes; a few thousand games
+	 */
+	public static final int RANGE_BYTES = 256 * 1024;
+
+	private final GameArchive archive;
+	private final ForkJoinPool pool;
+	private final int rangeBytes;
+
+	/**
+	 * Analyze an archive on the common fork/join pool.
+	 *
+	 * @param archive Archive to analyze
+	 */
+	public ArchiveAnalyzer(GameArchive archive) {
+		this(archive, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param archive Archive to analyze
+	 * @param pool    Pool to analyze on
+	 */
+	public ArchiveAnalyzer(GameArchive archive, ForkJoinPool pool) {
+		this(archive, pool, RANGE_BYTES);
+	}
+
+	/**
+	 * @param archive    Archive to analyze
+	 * @param pool       Pool to analyze on
+	 * @param rangeBytes Rough size of the smallest piece of work, in bytes
+	 */
+	public ArchiveAnalyzer(GameArchive archive, ForkJoinPool pool, int rangeBytes) {
+		if (rangeBytes <= 0)
+			throw new IllegalArgumentException("Range size must be positive");
+		this.archive = archive;
+		this.pool = pool;
+		this.rangeBytes = rangeBytes;
+	}
+
+	/**
+	 * Run the built-in statistics over every game; they must all be Beta games.
+	 *
+	 * @return Totals
+	 * @throws UncheckedIOException Thrown if a game can't be read
+	 */
+	public GameStatistics statistics() {
+		return statistics(RuleSet.BETA);
+	}
+
+	/**
+	 * Run the built-in statistics over every game.
+	 *
+	 * @param rules Rule set every game was played under
+	 * @return Totals
+	 * @throws UncheckedIOException     Thrown if a game can't be read
+	 * @throws IllegalArgumentException Thrown if a game was played under other rules
+	 */
+	public GameStatistics statistics(RuleSet rules) {
+		return aggregate(() -> new GameStatistics(rules), GameStatistics::add, GameStatistics::combine);
+	}
+
+	/**
+	 * Run an aggregation over every game, the same way Stream.collect() would.
+	 *
+	 * @param create  Makes an empty accumulator
+	 * @param add     Adds a game to an accumulator; games are only valid for the duration of the call
+	 * @param combine Merges two accumulators
+	 * @param <A>     Accumulator type
+	 * @return The combined accumulator
+	 * @throws UncheckedIOException Thrown if a game can't be read
+	 */
+	public <A> A aggregate(Supplier<A> create, BiConsumer<A, GameRecord> add, BinaryOperator<A> combine) {
+		final int segments = archive.getSegments();
+		final int[][] bounds = new int[segments][];
+		int ranges = 0;
+		for (int segment = 0; segment < segments; segment++) {
+			try {
+				bounds[segment] = archive.split(segment, rangeBytes);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			ranges += bounds[segment].length - 1;
+		}
+
+		final int[] segment = new int[ranges];
+		final int[] from = new int[ranges];
+		final int[] to = new int[ranges];
+		int range = 0;
+		for (int s = 0; s < segments; s++) {
+			for (int i = 0; i + 1 < bounds[s].length; i++, range++) {
+				segment[range] = s;
+				from[range] = bounds[s][i];
+				to[range] = bounds[s][i + 1];
+			}
+		}
+		return pool.invoke(new Scan<>(segment, from, to, 0, ranges, create, add, combine));
+	}
+
+	/**
+	 * A run of ranges; either splits itself or scans them.
+	 */
+	private class Scan<A> extends RecursiveTask<A> {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] segment;
+		private final int[] from;
+		private final int[] to;
+		private final int start;
+		private final int end;
+		private final Supplier<A> create;
+		private final BiConsumer<A, GameRecord> add;
+		private final BinaryOperator<A> combine;
+
+		Scan(int[] segment, int[] from, int[] to, int start, int end, Supplier<A> create, BiConsumer<A, GameRecord> add,
+		     BinaryOperator<A> combine) {
+			this.segment = segment;
+			this.from = from;
+			this.to = to;
+			this.start = start;
+			this.end = end;
+			this.create = create;
+			this.add = add;
+			this.combine = combine;
+		}
+
+		@Override
+		protected A compute() {
+			if (end - start > 1) {
+				final int mid = start + (end - start) / 2;
+				final Scan<A> left = new Scan<>(segment, from, to, start, mid, create, add, combine);
+				left.fork();
+				final A right = new Scan<>(segment, from, to, mid, end, create, add, combine).compute();
+				return combine.apply(left.join(), right);
+			}
+
+			final A accumulator = create.get();
+			for (int range = start; range < end; range++) {
+				try {
+					archive.scan(segment[range], from[range], to[range], record -> add.accept(accumulator, record));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return accumulator;
+		}
+	}
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.archive;
+
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.GameRecord;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Append-only archive of finished games, stored as GameRecords in memory-mapped segment files, with an index from
+ * position to every game that reached it.
+ * <p>
+ * Segments are fixed-size files named games-00000.seg, games-00001.seg and so on, filled one after the other. Each
+ * game is its record's length (4 bytes) followed by the record; a zero length marks the end of a segment's data. The
+ * length is written last, so a game only exists once it's completely written. A game is found by its offset: the
+ * segment number in the high 32 bits, the position in the segment in the low 32.
+ * <p>
+ * The position index maps BitBoard keys (position plus side to move) to offsets. It's kept per segment, so its
+ * postings are positions within a segment, and each segment's part is saved next to it as games-00000.idx when the
+ * segment fills up or the archive is closed. Opening an archive loads the saved parts and only replays the games
+ * appended since (or every game of a segment whose part is missing or unreadable). All methods are synchronized: one
+ * writer, any number of readers.
+ */
+public class GameArchive implements Closeable {
+
+	/**
+	 * Default segment size: 64 MiB, which holds about a million games
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+	private static final String PREFIX = "games-";
+	private static final String SUFFIX = ".seg";
+	private static final String INDEX_SUFFIX = ".idx";
+	private static final String TEMP = ".tmp";
+
+	private final Path directory;
+	private final int segmentSize;
+	private final List<MappedByteBuffer> segments;
+	private final List<PositionIndex> indexes;
+	private int position;
+	private long games;
+	private boolean closed;
+
+	/**
+	 * Open an archive with the default segment size, creating it if it doesn't exist.
+	 *
+	 * @param directory Directory to keep the segments in
+	 * @throws IOException Thrown if the archive can't be opened or is corrupt
+	 */
+	public GameArchive(Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Open an archive, creating it if it doesn't exist.
+	 *
+	 * @param directory   Directory to keep the segments in
+	 * @param segmentSize Size of new segment files in bytes; existing ones keep their size
+	 * @throws IOException Thrown if the archive can't be opened or is corrupt
+	 */
+	public GameArchive(Path directory, int segmentSize) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		segments = new ArrayList<>();
+		indexes = new ArrayList<>();
+		games = 0;
+		closed = false;
+
+		Files.createDirectories(directory);
+		final List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+			for (Path file : stream)
+				files.add(file);
+		}
+		files.sort(null);
+		for (int i = 0; i < files.size(); i++) {
+			if (!files.get(i).getFileName().toString().equals(segmentName(i)))
+				throw new IOException("Missing archive segment " + segmentName(i));
+			segments.add(map(files.get(i), 0));
+		}
+		if (segments.isEmpty())
+			segments.add(map(directory.resolve(segmentName(0)), segmentSize));
+
+		// Find the end of every segment's games, pick up its saved index if that ends on a game boundary, and index
+		// whatever the saved index doesn't cover
+		for (int segment = 0; segment < segments.size(); segment++) {
+			final MappedByteBuffer buffer = segments.get(segment);
+			PositionIndex index = load(segment);
+			boolean aligned = false;
+			int offset = 0;
+			while (true) {
+				if (index != null && offset == index.end())
+					aligned = true;
+				if (offset + Integer.BYTES > buffer.capacity())
+					break;
+				final int length = buffer.getInt(offset);
+				if (length == 0)
+					break;
+				if (length < 0 || offset + Integer.BYTES + length > buffer.capacity())
+					throw new IOException("Corrupt archive segment " + segmentName(segment) + " at " + offset);
+				offset += Integer.BYTES + length;
+			}
+			if (!aligned)
+				index = new PositionIndex();
+			indexes.add(index);
+			games += index.games();
+			for (int start = index.end(); start < offset; start += Integer.BYTES + buffer.getInt(start))
+				index(read(buffer, start), segment, start);
+			position = offset;
+		}
+	}
+
+	/**
+	 * Append a game.
+	 *
+	 * @param record Game to append
+	 * @return Offset of the game
+	 * @throws IOException Thrown if the game can't be written
+	 */
+	public synchronized long append(GameRecord record) throws IOException {
+		checkOpen();
+		final byte[] bytes = record.toBytes();
+		if (2 * Integer.BYTES + bytes.length > segmentSize)
+			throw new IOException("Game too big for a " + segmentSize + " byte segment");
+
+		// Always leave room for the zero length that ends a full segment; a full segment's index won't change again
+		MappedByteBuffer buffer = segments.get(segments.size() - 1);
+		if (position + 2 * Integer.BYTES + bytes.length > buffer.capacity()) {
+			save(segments.size() - 1);
+			buffer = map(directory.resolve(segmentName(segments.size())), segmentSize);
+			segments.add(buffer);
+			indexes.add(new PositionIndex());
+			position = 0;
+		}
+
+		final int segment = segments.size() - 1;
+		final int start = position;
+		final ByteBuffer data = buffer.duplicate();
+		data.position(start + Integer.BYTES);
+		data.put(bytes);
+		buffer.putInt(start, bytes.length);
+		position += Integer.BYTES + bytes.length;
+		index(record, segment, start);
+		return address(segment, start);
+	}
+
+	/**
+	 * Read a game back.
+	 *
+	 * @param offset Offset returned by append() or find()
+	 * @return The game
+	 * @throws IOException Thrown if there's no game at the offset
+	 */
+	public synchronized GameRecord read(long offset) throws IOException {
+		checkOpen();
+		final int segment = (int) (offset >>> 32);
+		final int start = (int) offset;
+		if (segment < 0 || segment >= segments.size() || start < 0
+				|| start + Integer.BYTES > segments.get(segment).capacity())
+			throw new IOException("No game at offset " + offset);
+		final MappedByteBuffer buffer = segments.get(segment);
+		final int length = buffer.getInt(start);
+		if (length <= 0 || start + Integer.BYTES + length > buffer.capacity())
+			throw new IOException("No game at offset " + offset);
+		return read(buffer, start);
+	}
+
+	/**
+	 * @param key Position key, as from BitBoard.getKey()
+	 * @return Offsets of every game that reached the position, oldest first
+	 */
+	public synchronized long[] find(long key) {
+		final int[][] found = new int[indexes.size()][];
+		int count = 0;
+		for (int segment = 0; segment < found.length; segment++) {
+			found[segment] = indexes.get(segment).get(key);
+			count += found[segment].length;
+		}
+		final long[] offsets = new long[count];
+		count = 0;
+		for (int segment = 0; segment < found.length; segment++) {
+			for (int start : found[segment])
+				offsets[count++] = address(segment, start);
+		}
+		return offsets;
+	}
+
+	/**
+	 * @param position Position to look for
+	 * @return Offsets of every game that reached the position, with the same side to move, oldest first
+	 */
+	public long[] find(BitBoard position) {
+		return find(position.getKey());
+	}
+
+	/**
+	 * Visit every game in a segment, oldest first, one at a time. Any number of threads can scan at once, alongside
+	 * appends; games appended after the scan starts may or may not be visited.
+	 *
+	 * @param segment Segment number, from zero to getSegments() - 1
+	 * @param visitor Called with every game
+	 * @throws IOException Thrown if a game can't be read
+	 */
+	public void scan(int segment, Consumer<GameRecord> visitor) throws IOException {
+		scan(segment, 0, Integer.MAX_VALUE, visitor);
+	}
+
+	/**
+	 * Visit the games that start within a range of a segment, oldest first, one at a time; see split().
+	 *
+	 * @param segment Segment number, from zero to getSegments() - 1
+	 * @param from    Where the range starts; must be where a game starts, e.g. one of split()'s boundaries
+	 * @param to      Where the range ends
+	 * @param visitor Called with every game
+	 * @throws IOException Thrown if a game can't be read
+	 */
+	public void scan(int segment, int from, int to, Consumer<GameRecord> visitor) throws IOException {
+		final MappedByteBuffer buffer = segment(segment);
+		final int limit = limit(segment);
+		int offset = from;
+		while (offset < to && offset + Integer.BYTES <= limit) {
+			final int length = buffer.getInt(offset);
+			if (length == 0)
+				break;
+			visitor.accept(read(buffer, offset));
+			offset += Integer.BYTES + length;
+		}
+	}
+
+	/**
+	 * Cut a segment into ranges of whole games, so that several threads can scan one segment. Only the length
+	 * prefixes are read, not the games.
+	 *
+	 * @param segment Segment number, from zero to getSegments() - 1
+	 * @param bytes   Rough size of a range; each one ends at the first game boundary at or past that many bytes
+	 * @return Range boundaries: zero, then the end of every range, the last one being the end of the segment's games
+	 * @throws IOException Thrown if there's no such segment
+	 */
+	public int[] split(int segment, int bytes) throws IOException {
+		final MappedByteBuffer buffer = segment(segment);
+		final int limit = limit(segment);
+		int[] bounds = new int[8];
+		int count = 1;
+		int offset = 0;
+		while (offset + Integer.BYTES <= limit) {
+			final int length = buffer.getInt(offset);
+			if (length == 0)
+				break;
+			offset += Integer.BYTES + length;
+			if (offset - bounds[count - 1] >= bytes) {
+				if (count == bounds.length)
+					bounds = Arrays.copyOf(bounds, 2 * count);
+				bounds[count++] = offset;
+			}
+		}
+		if (offset != bounds[count - 1]) {
+			if (count == bounds.length)
+				bounds = Arrays.copyOf(bounds, count + 1);
+			bounds[count++] = offset;
+		}
+		return Arrays.copyOf(bounds, count);
+	}
+
+	/**
+	 * @param segment Segment number
+	 * @return The segment's mapping
+	 * @throws IOException Thrown if the archive is closed or there's no such segment
+	 */
+	private synchronized MappedByteBuffer segment(int segment) throws IOException {
+		checkOpen();
+		if (segment < 0 || segment >= segments.size())
+			throw new IOException("No segment " + segment);
+		return segments.get(segment);
+	}
+
+	/**
+	 * @param segment Segment number
+	 * @return How far into the segment games may be found right now
+	 */
+	private synchronized int limit(int segment) {
+		return segment == segments.size() - 1 ? position : segments.get(segment).capacity();
+	}
+
+	/**
+	 * @return Number of segment files
+	 */
+	public synchronized int getSegments() {
+		return segments.size();
+	}
+
+	/**
+	 * @return Number of games in the archive
+	 */
+	public synchronized long size() {
+		return games;
+	}
+
+	/**
+	 * @return Number of distinct positions in the index, counting a position once for every segment it's found in
+	 */
+	public synchronized long positions() {
+		long positions = 0;
+		for (PositionIndex index : indexes)
+			positions += index.positions();
+		return positions;
+	}
+
+	/**
+	 * Flush everything to disk, save the indexes and close the archive.
+	 *
+	 * @throws IOException Thrown if an index can't be saved
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			for (int segment = 0; segment < segments.size(); segment++)
+				save(segment);
+		} finally {
+			segments.clear();
+			indexes.clear();
+		}
+	}
+
+	/**
+	 * Add a game to its segment's index: the starting position, and the position after every move.
+	 *
+	 * @param record  Game
+	 * @param segment Segment the game is in
+	 * @param start   Position of the game in the segment
+	 */
+	private void index(GameRecord record, int segment, int start) {
+		final PositionIndex index = indexes.get(segment);
+		final BitBoard board = record.getSetup();
+		index.add(board.getKey(), start);
+		for (int i = 0; i < record.size(); i++) {
+			board.makeMove(record.getMove(i));
+			index.add(board.getKey(), start);
+		}
+		index.finishGame(start + Integer.BYTES + segments.get(segment).getInt(start));
+		games++;
+	}
+
+	/**
+	 * Save a segment's index next to it, unless it's already saved. The segment is forced to disk first, so an
+	 * index never lists games the segment lost in a crash.
+	 *
+	 * @param segment Segment number
+	 * @throws IOException Thrown if the index can't be written
+	 */
+	private void save(int segment) throws IOException {
+		final PositionIndex index = indexes.get(segment);
+		if (index.isSaved())
+			return;
+		segments.get(segment).force();
+		final Path file = directory.resolve(indexName(segment));
+		final Path temp = file.resolveSibling(file.getFileName() + TEMP);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			index.write(out);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Load a segment's saved index.
+	 *
+	 * @param segment Segment number
+	 * @return The index; null if there isn't one or it can't be read, in which case the segment gets reindexed
+	 */
+	private PositionIndex load(int segment) {
+		final Path file = directory.resolve(indexName(segment));
+		if (!Files.exists(file))
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			return PositionIndex.read(in);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Tiny, dumb helper for throwing exceptions once the archive is closed
+	 *
+	 * @throws IOException Thrown if the archive is closed
+	 */
+	private void checkOpen() throws IOException {
+		if (closed)
+			throw new IOException("Archive is closed");
+	}
+
+	/**
+	 * @param buffer Segment
+	 * @param offset Position of the game's length in the segment
+	 * @return The game
+	 * @throws IOException Thrown if the record can't be parsed
+	 */
+	private static GameRecord read(MappedByteBuffer buffer, int offset) throws IOException {
+		final byte[] bytes = new byte[buffer.getInt(offset)];
+		final ByteBuffer data = buffer.duplicate();
+		data.position(offset + Integer.BYTES);
+		data.get(bytes);
+		return GameRecord.fromBytes(bytes);
+	}
+
+	/**
+	 * Map a segment file.
+	 *
+	 * @param file Segment file
+	 * @param size Size to create it with; zero to map an existing file as it is
+	 * @return Mapping of the whole file
+	 * @throws IOException Thrown if the file can't be mapped
+	 */
+	private static MappedByteBuffer map(Path file, int size) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			if (size > 0)
+				raf.setLength(size);
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+		}
+	}
+
+	/**
+	 * @param segment Segment number
+	 * @param offset  Position in the segment
+	 * @return Offset of a game, as handed out to callers
+	 */
+	private static long address(int segment, int offset) {
+		return ((long) segment << 32) | offset;
+	}
+
+	/**
+	 * @param segment Segment number
+	 * @return File name of the segment
+	 */
+	private static String segmentName(int segment) {
+		return String.format("%s%05d%s", PREFIX, segment, SUFFIX);
+	}
+
+	/**
+	 * @param segment Segment number
+	 * @return File name of the segment's saved index
+	 */
+	private static String indexName(int segment) {
+		return String.format("%s%05d%s", PREFIX, segment, INDEX_SUFFIX);
+	}
+}
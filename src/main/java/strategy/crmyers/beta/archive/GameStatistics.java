@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.archive;
+
+import strategy.Piece;
+import strategy.StrategyGame;
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.GameRecord;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.PieceDefined;
+import strategy.crmyers.beta.RuleSet;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Running totals over any number of games, in a fixed amount of memory: strike outcomes for every pair of piece types,
+ * wins by starting lineup, game lengths and when the first capture happens. Add games one at a time with add(), and
+ * merge totals from other threads with combine().
+ * <p>
+ * Each side's setup is tracked on its own, told apart by the key of that side's pieces (see BitBoard.getKey(color)),
+ * so a red setup's record covers every blue setup it met and vice versa. Only the first MAX_LINEUPS setups of each
+ * side are tracked one by one; games from any others are only counted in getOtherLineupGames().
+ * <p>
+ * Histograms are sized from the rule set the totals are for (Beta's unless told otherwise), and every game added
+ * must be played under those rules; rule sets without a turn limit get UNLIMITED_PLIES buckets.
+ */
+public class GameStatistics {
+
+	/**
+	 * Most lineups tracked separately, per side
+	 */
+	public static final int MAX_LINEUPS = 1024;
+
+	/**
+	 * Histogram size, in plies, for rule sets without a turn limit; longer games share the last bucket
+	 */
+	public static final int UNLIMITED_PLIES = 1024;
+
+	// Strike outcomes, from the attacker's point of view
+	public static final int ATTACKER_WINS = 0;
+	public static final int DEFENDER_WINS = 1;
+	public static final int DRAW = 2;
+
+	// Per-lineup totals: games, red wins, blue wins
+	private static final int LINEUP_GAMES = 0;
+	private static final int LINEUP_RED = 1;
+	private static final int LINEUP_BLUE = 2;
+
+	private final RuleSet rules;
+	private final int plies;
+	private final long[] strikes;
+	private final long[] lengths;
+	private final long[] firstCaptures;
+	private final Map<Long, long[]> redLineups;
+	private final Map<Long, long[]> blueLineups;
+	private final long[] otherLineupGames;
+	private long games;
+	private long moves;
+	private long redWins;
+	private long blueWins;
+
+	/**
+	 * Empty totals for Beta games
+	 */
+	public GameStatistics() {
+		this(RuleSet.BETA);
+	}
+
+	/**
+	 * Empty totals
+	 *
+	 * @param rules Rule set every game will be played under
+	 */
+	public GameStatistics(RuleSet rules) {
+		this.rules = rules;
+		plies = rules.getTurnLimit() == RuleSet.NO_TURN_LIMIT ? UNLIMITED_PLIES : 2 * rules.getTurnLimit();
+		strikes = new long[BitBoard.TYPES * BitBoard.TYPES * 3];
+		lengths = new long[plies + 2];
+		firstCaptures = new long[plies + 2];
+		redLineups = new HashMap<>();
+		blueLineups = new HashMap<>();
+		otherLineupGames = new long[2];
+		games = 0;
+		moves = 0;
+		redWins = 0;
+		blueWins = 0;
+	}
+
+	/**
+	 * Add a game, replaying it to see what happened.
+	 *
+	 * @param record Game to add
+	 * @throws IllegalArgumentException Thrown if the game wasn't played under these totals' rules
+	 */
+	public void add(GameRecord record) {
+		final BitBoard board = record.getSetup();
+		if (!rules.equals(board.getRules()))
+			throw new IllegalArgumentException("Game played under " + board.getRules() + ", not " + rules);
+		final long redLineup = board.getKey(Piece.PieceColor.RED);
+		final long blueLineup = board.getKey(Piece.PieceColor.BLUE);
+		int firstCapture = 0;
+		for (int i = 0; i < record.size(); i++) {
+			final int move = record.getMove(i);
+			final int attacker = board.getIndex(Move.from(move));
+			final int defender = board.getIndex(Move.to(move));
+			final PieceDefined.MoveResult result = board.makeMove(move);
+			if (attacker < 0 || defender < 0)
+				continue;
+
+			if (firstCapture == 0)
+				firstCapture = i + 1;
+			final Piece.PieceColor color = attacker < BitBoard.TYPES ? Piece.PieceColor.RED : Piece.PieceColor.BLUE;
+			final int outcome;
+			if (result == PieceDefined.MoveResult.STRIKE_DRAW)
+				outcome = DRAW;
+			else if (result == PieceDefined.MoveResult.RED_WINS || result == PieceDefined.MoveResult.BLUE_WINS
+					|| result == (color == Piece.PieceColor.RED ? PieceDefined.MoveResult.STRIKE_RED :
+					PieceDefined.MoveResult.STRIKE_BLUE))
+				outcome = ATTACKER_WINS;
+			else
+				outcome = DEFENDER_WINS;
+			strikes[strikeIndex(attacker % BitBoard.TYPES, defender % BitBoard.TYPES, outcome)]++;
+		}
+
+		games++;
+		moves += record.size();
+		lengths[Math.min(record.size(), plies + 1)]++;
+		firstCaptures[firstCapture == 0 ? plies + 1 : Math.min(firstCapture, plies)]++;
+
+		final StrategyGame.MoveResult result = record.getResult();
+		if (result == StrategyGame.MoveResult.RED_WINS)
+			redWins++;
+		else if (result == StrategyGame.MoveResult.BLUE_WINS)
+			blueWins++;
+		count(Piece.PieceColor.RED, redLineup, result);
+		count(Piece.PieceColor.BLUE, blueLineup, result);
+	}
+
+	/**
+	 * Count a game's result against one side's setup.
+	 */
+	private void count(Piece.PieceColor side, long lineup, StrategyGame.MoveResult result) {
+		final long[] totals = lineup(side, lineup);
+		if (totals == null) {
+			otherLineupGames[side.ordinal()]++;
+			return;
+		}
+		totals[LINEUP_GAMES]++;
+		if (result == StrategyGame.MoveResult.RED_WINS)
+			totals[LINEUP_RED]++;
+		else if (result == StrategyGame.MoveResult.BLUE_WINS)
+			totals[LINEUP_BLUE]++;
+	}
+
+	/**
+	 * Merge another set of totals into this one.
+	 *
+	 * @param other Totals to add; not changed
+	 * @return This, for convenience
+	 * @throws IllegalArgumentException Thrown if the totals are for different rules
+	 */
+	public GameStatistics combine(GameStatistics other) {
+		if (!rules.equals(other.rules))
+			throw new IllegalArgumentException("Can't combine totals for " + other.rules + " with " + rules);
+		for (int i = 0; i < strikes.length; i++)
+			strikes[i] += other.strikes[i];
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] += other.lengths[i];
+			firstCaptures[i] += other.firstCaptures[i];
+		}
+		for (Piece.PieceColor side : Piece.PieceColor.values()) {
+			for (Map.Entry<Long, long[]> entry : other.lineups(side).entrySet()) {
+				final long[] totals = lineup(side, entry.getKey());
+				if (totals == null) {
+					otherLineupGames[side.ordinal()] += entry.getValue()[LINEUP_GAMES];
+					continue;
+				}
+				for (int i = 0; i < totals.length; i++)
+					totals[i] += entry.getValue()[i];
+			}
+			otherLineupGames[side.ordinal()] += other.otherLineupGames[side.ordinal()];
+		}
+		games += other.games;
+		moves += other.moves;
+		redWins += other.redWins;
+		blueWins += other.blueWins;
+		return this;
+	}
+
+	/**
+	 * @param side Side whose setups to look up
+	 * @return That side's table of lineups
+	 */
+	private Map<Long, long[]> lineups(Piece.PieceColor side) {
+		return side == Piece.PieceColor.RED ? redLineups : blueLineups;
+	}
+
+	/**
+	 * @param side Side the setup belongs to
+	 * @param key  Key of the side's setup
+	 * @return Totals for the lineup, created if there's room; null if there isn't
+	 */
+	private long[] lineup(Piece.PieceColor side, long key) {
+		final Map<Long, long[]> lineups = lineups(side);
+		long[] totals = lineups.get(key);
+		if (totals == null && lineups.size() < MAX_LINEUPS) {
+			totals = new long[3];
+			lineups.put(key, totals);
+		}
+		return totals;
+	}
+
+	/**
+	 * @return Index of a strike outcome counter
+	 */
+	private static int strikeIndex(int attacker, int defender, int outcome) {
+		return (attacker * BitBoard.TYPES + defender) * 3 + outcome;
+	}
+
+	/**
+	 * @return Rule set the totals are for
+	 */
+	public RuleSet getRules() {
+		return rules;
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public long getRedWins() {
+		return redWins;
+	}
+
+	public long getBlueWins() {
+		return blueWins;
+	}
+
+	/**
+	 * @return Average number of moves (plies) per game
+	 */
+	public double getMeanLength() {
+		return games == 0 ? 0 : (double) moves / games;
+	}
+
+	/**
+	 * @return Number of games of every length in plies; the last entry counts anything longer than the turn limit
+	 * allows, or than UNLIMITED_PLIES without one
+	 */
+	public long[] getLengths() {
+		return lengths.clone();
+	}
+
+	/**
+	 * @return Number of games by the ply (from one) of their first capture; the last entry counts games without any
+	 */
+	public long[] getFirstCaptures() {
+		return firstCaptures.clone();
+	}
+
+	/**
+	 * @return Average ply of the first capture, over games that had one
+	 */
+	public double getMeanFirstCapture() {
+		long count = 0, total = 0;
+		for (int ply = 1; ply <= plies; ply++) {
+			count += firstCaptures[ply];
+			total += ply * firstCaptures[ply];
+		}
+		return count == 0 ? 0 : (double) total / count;
+	}
+
+	/**
+	 * @param attacker Attacking type
+	 * @param defender Defending type
+	 * @param outcome  ATTACKER_WINS, DEFENDER_WINS or DRAW
+	 * @return Number of strikes between the two types that ended that way
+	 */
+	public long getStrikes(Piece.PieceType attacker, Piece.PieceType defender, int outcome) {
+		return strikes[strikeIndex(attacker.ordinal(), defender.ordinal(), outcome)];
+	}
+
+	/**
+	 * @param side Side to look up
+	 * @return Setup keys (see BitBoard.getKey(color)) of every one of that side's lineups tracked separately
+	 */
+	public Set<Long> getLineups(Piece.PieceColor side) {
+		return Collections.unmodifiableSet(lineups(side).keySet());
+	}
+
+	/**
+	 * @param side   Side the setup belongs to
+	 * @param lineup Setup key
+	 * @return Number of games that side played from the setup
+	 */
+	public long getLineupGames(Piece.PieceColor side, long lineup) {
+		final long[] totals = lineups(side).get(lineup);
+		return totals == null ? 0 : totals[LINEUP_GAMES];
+	}
+
+	/**
+	 * @param side   Side the setup belongs to
+	 * @param lineup Setup key
+	 * @return Fraction of the setup's games that red won
+	 */
+	public double getLineupRedWinRate(Piece.PieceColor side, long lineup) {
+		final long[] totals = lineups(side).get(lineup);
+		return totals == null || totals[LINEUP_GAMES] == 0 ? 0 : (double) totals[LINEUP_RED] / totals[LINEUP_GAMES];
+	}
+
+	/**
+	 * @param side   Side the setup belongs to
+	 * @param lineup Setup key
+	 * @return Fraction of the setup's games that blue won
+	 */
+	public double getLineupBlueWinRate(Piece.PieceColor side, long lineup) {
+		final long[] totals = lineups(side).get(lineup);
+		return totals == null || totals[LINEUP_GAMES] == 0 ? 0 : (double) totals[LINEUP_BLUE] / totals[LINEUP_GAMES];
+	}
+
+	/**
+	 * @param side Side to look up
+	 * @return Number of games from that side's setups that didn't fit in the table
+	 */
+	public long getOtherLineupGames(Piece.PieceColor side) {
+		return otherLineupGames[side.ordinal()];
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.archive;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Hash index from position keys to the games in one archive segment that reached them, in plain arrays: an
+ * open-addressed table of keys, each pointing at the newest entry of a singly linked list of postings. Adding a
+ * posting never moves the old ones, so the only allocation is the occasional doubling of an array.
+ * <p>
+ * Postings are positions within the segment, so they fit in an int, and so does their count: every posting is the
+ * starting position or a move of a game, and every move takes two bytes of the segment. The index also remembers
+ * how far into the segment it has got, so that one written out by write() can be picked up again and topped up with
+ * whatever was appended after it.
+ */
+class PositionIndex {
+
+	private static final int FORMAT = 1;
+	private static final int NONE = -1;
+
+	// Table: key -> newest posting; an empty slot has head NONE
+	private long[] keys;
+	private int[] heads;
+	private int used;
+
+	// Postings: game position in the segment, and the next (older) posting for the same key
+	private int[] offsets;
+	private int[] next;
+	private int postings;
+
+	// How much of the segment is indexed: number of games, and where the next one starts
+	private int games;
+	private int end;
+	private boolean saved;
+
+	PositionIndex() {
+		keys = new long[1024];
+		heads = new int[keys.length];
+		Arrays.fill(heads, NONE);
+		used = 0;
+		offsets = new int[1024];
+		next = new int[offsets.length];
+		postings = 0;
+		games = 0;
+		end = 0;
+		saved = false;
+	}
+
+	/**
+	 * @return Number of distinct positions in the index
+	 */
+	int positions() {
+		return used;
+	}
+
+	/**
+	 * @return Number of games indexed
+	 */
+	int games() {
+		return games;
+	}
+
+	/**
+	 * @return Where in the segment the first game that isn't indexed starts
+	 */
+	int end() {
+		return end;
+	}
+
+	/**
+	 * @return Whether nothing has been added since the index was last written or read
+	 */
+	boolean isSaved() {
+		return saved;
+	}
+
+	/**
+	 * Note that a game reached a position. Adding the same game twice in a row for one key is a no-op, so a game
+	 * that repeats a position only shows up once.
+	 *
+	 * @param key    Position key
+	 * @param offset Position of the game in the segment
+	 */
+	void add(long key, int offset) {
+		if (2 * (used + 1) > keys.length)
+			rehash(2 * keys.length);
+		final int slot = find(keys, heads, key);
+		if (heads[slot] == NONE)
+			used++;
+		else if (offsets[heads[slot]] == offset)
+			return;
+
+		if (postings == offsets.length) {
+			offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+			next = Arrays.copyOf(next, offsets.length);
+		}
+		keys[slot] = key;
+		offsets[postings] = offset;
+		next[postings] = heads[slot];
+		heads[slot] = postings++;
+		saved = false;
+	}
+
+	/**
+	 * Note that a game has been added in full.
+	 *
+	 * @param end Where in the segment the game ends
+	 */
+	void finishGame(int end) {
+		games++;
+		this.end = end;
+		saved = false;
+	}
+
+	/**
+	 * @param key Position key
+	 * @return Positions in the segment of every game that reached the position, oldest first
+	 */
+	int[] get(long key) {
+		final int slot = find(keys, heads, key);
+		int count = 0;
+		for (int posting = heads[slot]; posting != NONE; posting = next[posting])
+			count++;
+		final int[] result = new int[count];
+		for (int posting = heads[slot]; posting != NONE; posting = next[posting])
+			result[--count] = offsets[posting];
+		return result;
+	}
+
+	/**
+	 * Write the index out. Format, big-endian as written by DataOutput: format version (1 byte), number of games and
+	 * end (4 bytes each), number of keys (4 bytes), then for every key: the key (8 bytes), its number of postings (4
+	 * bytes) and the postings, oldest first (4 bytes each).
+	 *
+	 * @param out Where to write it
+	 * @throws IOException Thrown if writing fails
+	 */
+	void write(DataOutput out) throws IOException {
+		out.writeByte(FORMAT);
+		out.writeInt(games);
+		out.writeInt(end);
+		out.writeInt(used);
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (heads[slot] == NONE)
+				continue;
+			final int[] list = get(keys[slot]);
+			out.writeLong(keys[slot]);
+			out.writeInt(list.length);
+			for (int offset : list)
+				out.writeInt(offset);
+		}
+		saved = true;
+	}
+
+	/**
+	 * Read an index written by write().
+	 *
+	 * @param in Where to read it from
+	 * @return The index
+	 * @throws IOException Thrown if reading fails or the data isn't an index
+	 */
+	static PositionIndex read(DataInput in) throws IOException {
+		final int format = in.readUnsignedByte();
+		if (format != FORMAT)
+			throw new IOException("Unknown position index format " + format);
+		final PositionIndex index = new PositionIndex();
+		index.games = in.readInt();
+		index.end = in.readInt();
+		final int count = in.readInt();
+		if (index.games < 0 || index.end < 0 || count < 0)
+			throw new IOException("Bad position index header");
+		for (int i = 0; i < count; i++) {
+			final long key = in.readLong();
+			final int length = in.readInt();
+			if (length <= 0)
+				throw new IOException("Bad posting list of " + length);
+			for (int j = 0; j < length; j++)
+				index.add(key, in.readInt());
+		}
+		index.saved = true;
+		return index;
+	}
+
+	/**
+	 * Linear probing
+	 *
+	 * @return Slot holding the key, or the empty slot where it would go
+	 */
+	private static int find(long[] keys, int[] heads, long key) {
+		final int mask = keys.length - 1;
+		int slot = (int) (key ^ (key >>> 32)) & mask;
+		while (heads[slot] != NONE && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	/**
+	 * Grow the table; postings stay where they are.
+	 *
+	 * @param size New table size, a power of two
+	 */
+	private void rehash(int size) {
+		final long[] newKeys = new long[size];
+		final int[] newHeads = new int[size];
+		Arrays.fill(newHeads, NONE);
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (heads[slot] == NONE)
+				continue;
+			final int newSlot = find(newKeys, newHeads, keys[slot]);
+			newKeys[newSlot] = keys[slot];
+			newHeads[newSlot] = heads[slot];
+		}
+		keys = newKeys;
+		heads = newHeads;
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.log;
+
+import strategy.Piece;
+import strategy.StrategyGame;
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.GameListener;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.MoveStatus;
+import strategy.crmyers.beta.PieceDefined;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Asynchronous move log. Game threads pack each event into a single long and drop it into a fixed-size ring buffer;
+ * one background thread drains the ring and does all of the formatting and printing. Games never block on the log:
+ * if the ring is full, or the log has been closed, the event is dropped and counted instead. An idle drainer parks for
+ * longer and longer, up to MAX_PARK_NANOS, so an open log with nothing to do costs about a hundred wakeups a second.
+ * <p>
+ * Attach it to a game with BetaGame.addListener(log.listener(gameId)); any number of games may share one log.
+ */
+public class AsyncLog implements Closeable {
+
+	// Event kinds
+	private static final int MOVE = 1;
+	private static final int ILLEGAL = 2;
+	private static final int GAME_OVER = 3;
+
+	// Event layout: payload (move without flags, or ordinal; 14 bits), result (3), color (1), kind (2), turn (12),
+	// game id (31), and the top bit set so that an event is never zero, which marks an empty slot.
+	private static final int RESULT_SHIFT = 14;
+	private static final int COLOR_SHIFT = 17;
+	private static final int KIND_SHIFT = 18;
+	private static final int TURN_SHIFT = 20;
+	private static final int GAME_SHIFT = 32;
+	private static final long PRESENT = 1L << 63;
+
+	// Idle backoff for the drainer
+	private static final long MIN_PARK_NANOS = 10_000;
+	private static final long MAX_PARK_NANOS = 10_000_000;
+
+	private static final PieceDefined.MoveResult[] RESULTS = PieceDefined.MoveResult.values();
+	private static final MoveStatus[] STATUSES = MoveStatus.values();
+	private static final StrategyGame.MoveResult[] GAME_RESULTS = StrategyGame.MoveResult.values();
+
+	private final AtomicLongArray ring;
+	private final int mask;
+	private final AtomicLong head;
+	private final AtomicLong dropped;
+	private final AtomicInteger offering;
+	private volatile long tail;
+	private volatile boolean running;
+
+	private final PrintStream out;
+	private final Thread drainer;
+
+	/**
+	 * Start a log.
+	 *
+	 * @param capacity Number of events the ring can hold; rounded up to a power of two
+	 * @param out      Stream to print to
+	 */
+	public AsyncLog(int capacity, PrintStream out) {
+		final int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+		ring = new AtomicLongArray(size);
+		mask = size - 1;
+		head = new AtomicLong();
+		dropped = new AtomicLong();
+		offering = new AtomicInteger();
+		tail = 0;
+		running = true;
+
+		this.out = out;
+		drainer = new Thread(this::drain, "strategy-async-log");
+		drainer.setDaemon(true);
+		drainer.start();
+	}
+
+	/**
+	 * Make a listener that tags everything it logs with a game id.
+	 *
+	 * @param gameId Id to tag events with
+	 * @return Listener for one game
+	 */
+	public GameListener listener(int gameId) {
+		final long tag = ((long) gameId & 0x7FFFFFFFL) << GAME_SHIFT;
+		return new GameListener() {
+			@Override
+			public void moveMade(BetaGame game, Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+				offer(tag, MOVE, game.getTurns(), color, Move.squares(move), result.ordinal());
+			}
+
+			@Override
+			public void illegalMove(BetaGame game, Piece.PieceColor color, MoveStatus status) {
+				offer(tag, ILLEGAL, game.getTurns(), color, status.ordinal(), 0);
+			}
+
+			@Override
+			public void gameOver(BetaGame game, StrategyGame.MoveResult result) {
+				offer(tag, GAME_OVER, game.getTurns(), game.getColorTurn(), result.ordinal(), 0);
+			}
+		};
+	}
+
+	/**
+	 * @return Number of events dropped because the ring was full or the log was closed
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Pack an event and put it in the ring, unless the ring is full or the log is closed. Producers announce
+	 * themselves in "offering" before looking at "running", so the drainer can't finish while one of them is between
+	 * seeing the log open and publishing its event; every event is either printed or counted as dropped.
+	 */
+	private void offer(long tag, int kind, int turn, Piece.PieceColor color, int payload, int result) {
+		offering.incrementAndGet();
+		try {
+			if (!running) {
+				dropped.incrementAndGet();
+				return;
+			}
+			publish(tag, kind, turn, color, payload, result);
+		} finally {
+			offering.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Claim a slot and write the event into it, or count it as dropped if the ring is full.
+	 */
+	private void publish(long tag, int kind, int turn, Piece.PieceColor color, int payload, int result) {
+		final long event = PRESENT | tag | ((long) (turn & 0xFFF) << TURN_SHIFT) | ((long) kind << KIND_SHIFT)
+				| ((color == RED ? 0L : 1L) << COLOR_SHIFT) | ((long) result << RESULT_SHIFT) | payload;
+
+		long seq;
+		do {
+			seq = head.get();
+			if (seq - tail > mask) {
+				dropped.incrementAndGet();
+				return;
+			}
+		} while (!head.compareAndSet(seq, seq + 1));
+		ring.lazySet((int) (seq & mask), event);
+	}
+
+	/**
+	 * Background thread body: print events in order until closed and empty.
+	 */
+	private void drain() {
+		long park = MIN_PARK_NANOS;
+		while (true) {
+			final int slot = (int) (tail & mask);
+			final long event = ring.get(slot);
+			if (event == 0) {
+				// Closed, nobody left halfway through offer(), and nothing claimed but unpublished: done
+				if (!running && offering.get() == 0 && head.get() == tail)
+					break;
+				LockSupport.parkNanos(park);
+				park = Math.min(2 * park, MAX_PARK_NANOS);
+				continue;
+			}
+
+			park = MIN_PARK_NANOS;
+			ring.lazySet(slot, 0);
+			tail = tail + 1;
+			out.println(format(event));
+		}
+		out.flush();
+	}
+
+	/**
+	 * Turn an event back into text.
+	 *
+	 * @param event Packed event
+	 * @return Log line
+	 */
+	private static String format(long event) {
+		final int payload = (int) (event & 0x3FFF);
+		final int gameId = (int) ((event >>> GAME_SHIFT) & 0x7FFFFFFF);
+		final int turn = (int) ((event >>> TURN_SHIFT) & 0xFFF);
+		final String color = ((event >>> COLOR_SHIFT) & 1) == 0 ? "RED" : "BLUE";
+
+		final StringBuilder line = new StringBuilder();
+		line.append("Game ").append(gameId).append(", turn ").append(turn).append(", ").append(color).append(": ");
+		switch ((int) ((event >>> KIND_SHIFT) & 3)) {
+			case MOVE:
+				line.append(Move.from(payload)).append(" -> ").append(Move.to(payload)).append(' ')
+						.append(RESULTS[(int) ((event >>> RESULT_SHIFT) & 7)].name());
+				break;
+			case ILLEGAL:
+				line.append(STATUSES[payload].getMessage());
+				break;
+			default:
+				line.append("game over, ").append(GAME_RESULTS[payload].name());
+				break;
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Stop the log, after printing everything that made it into the ring.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		LockSupport.unpark(drainer);
+		try {
+			drainer.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.log;
+
+import strategy.Piece;
+import strategy.StrategyGame;
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.GameListener;
+import strategy.crmyers.beta.MoveStatus;
+import strategy.crmyers.beta.PieceDefined;
+
+import java.io.PrintStream;
+
+/**
+ * Listener that prints the board after every move, straight to a stream. This is the old debugging output that
+ * BetaGame used to print unconditionally; it's handy in tests, but far too slow to leave on for real games.
+ */
+public class PrintListener implements GameListener {
+
+	private final PrintStream out;
+
+	/**
+	 * Print to standard out.
+	 */
+	public PrintListener() {
+		this(System.out);
+	}
+
+	/**
+	 * @param out Stream to print to
+	 */
+	public PrintListener(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void moveMade(BetaGame game, Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+		out.println("Turn " + game.getTurns() + ", color: " + game.getColorTurn().name());
+		out.println(game.toString());
+	}
+
+	@Override
+	public void illegalMove(BetaGame game, Piece.PieceColor color, MoveStatus status) {
+		out.println(status.getMessage());
+	}
+
+	@Override
+	public void gameOver(BetaGame game, StrategyGame.MoveResult result) {
+		out.println("Game over: " + result.name());
+	}
+}
@@ -23,9 +23,6 @@
 
 package strategy.crmyers.beta.pieces;
 
-import strategy.Piece;
-import strategy.StrategyException;
-import strategy.crmyers.beta.BetaBoard;
 import strategy.crmyers.beta.PieceDefined;
 
 /**
@@ -37,33 +34,6 @@ public class Flag extends PieceDefined {
 		super(color);
 	}
 
-	/**
-	 * Move the piece.
-	 *
-	 * @param board BetaBoard to move on
-	 * @param fr    From row
-	 * @param fc    From column
-	 * @param tr    To row
-	 * @param tc    To column
-	 * @return Result of move
-	 * @throws StrategyException Thrown if move is invalid for any reason (e.g. out of bounds)
-	 */
-	@Override
-	public MoveResult move(BetaBoard board, int fr, int fc, int tr, int tc) throws StrategyException {
-		throw new StrategyException("Flags cannot move");
-	}
-
-	/**
-	 * Determine the outcome of a particular strike.
-	 *
-	 * @param target Targeted piece.
-	 * @return Result of the strike!
-	 */
-	@Override
-	public MoveResult strike(Piece target) {
-		throw new StrategyException("Flags cannot strike");
-	}
-
 	public String toString() {
 		return getColorStr() + "F";
 	}
@@ -23,11 +23,10 @@
 
 package strategy.crmyers.beta.pieces;
 
-import strategy.Piece;
 import strategy.crmyers.beta.PieceDefined;
 
 /**
- * Class to represent a Miner piece.
+ * Class to represent a Miner piece. Miners can defuse bombs; that special case lives in StrikeTable.
  */
 public class Miner extends PieceDefined {
 
@@ -35,20 +34,6 @@ public class Miner extends PieceDefined {
 		super(color);
 	}
 
-	/**
-	 * Determine the outcome of a particular strike.
-	 *
-	 * @param target Targeted piece.
-	 * @return Result of the strike!
-	 */
-	@Override
-	public MoveResult strike(Piece target) {
-		// Miners have the ability to attack bombs, so we perform that check before defaulting to regular strike rules
-		if (target.getPieceType() == PieceType.BOMB)
-			return pieceVictory();
-		return super.strike(target);
-	}
-
 	@Override
 	public String toString() {
 		return getColorStr() + "M";
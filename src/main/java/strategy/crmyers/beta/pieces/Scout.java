@@ -23,8 +23,6 @@
 
 package strategy.crmyers.beta.pieces;
 
-import strategy.StrategyException;
-import strategy.crmyers.beta.BetaBoard;
 import strategy.crmyers.beta.PieceDefined;
 
 /**
@@ -36,34 +34,6 @@ public class Scout extends PieceDefined {
 		super(color);
 	}
 
-	/**
-	 * Move the piece.
-	 *
-	 * @param board BetaBoard to move on
-	 * @param fr    From row
-	 * @param fc    From column
-	 * @param tr    To row
-	 * @param tc    To column
-	 * @return Result of move
-	 * @throws StrategyException Thrown if move is invalid for any reason (e.g. out of bounds)
-	 */
-	@Override
-	public MoveResult move(BetaBoard board, int fr, int fc, int tr, int tc) throws StrategyException {
-		// Disabled for beta strategy
-		// if (moveRepetition(fr, fc, tr, tc))
-		//	 throw new StrategyException("Move repeated");
-		int dx = tc - fc;
-		int dy = tr - fr;
-		dx /= (dx == 0 ? 1 : Math.abs(dx));
-		dy /= (dy == 0 ? 1 : Math.abs(dy));
-
-		for (int r = fr + dy, c = fc + dx; r != tr || c != tc; r += dy, c += dx) {
-			if (board.getPieceAt(r, c) != null || board.getSquareTypeAt(r, c) != strategy.Board.SquareType.NORMAL)
-				throw new StrategyException("Scout cannot jump over pieces/chokepoints");
-		}
-		return super.move(board, fr, fc, tr, tc);
-	}
-
 	@Override
 	public String toString() {
 		return getColorStr() + "U";
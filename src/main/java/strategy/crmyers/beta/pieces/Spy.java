@@ -23,11 +23,10 @@
 
 package strategy.crmyers.beta.pieces;
 
-import strategy.Piece;
 import strategy.crmyers.beta.PieceDefined;
 
 /**
- * Class to represent a Spy piece
+ * Class to represent a Spy piece. A spy's one trick, taking out marshals, lives in StrikeTable.
  */
 public class Spy extends PieceDefined {
 
@@ -35,20 +34,6 @@ public class Spy extends PieceDefined {
 		super(color);
 	}
 
-	/**
-	 * Determine the outcome of a particular strike.
-	 *
-	 * @param target Targeted piece.
-	 * @return Result of the strike!
-	 */
-	@Override
-	public MoveResult strike(Piece target) {
-		// Spies can only attack marshals, so perform that check before resorting to default
-		if (target.getPieceType() == PieceType.MARSHAL)
-			return pieceVictory();
-		return super.strike(target);
-	}
-
 	@Override
 	public String toString() {
 		return getColorStr() + "Y";
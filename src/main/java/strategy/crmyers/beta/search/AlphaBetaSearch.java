@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.search;
+
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.MoveGenerator;
+import strategy.crmyers.beta.PieceDefined;
+import strategy.crmyers.beta.RepetitionHistory;
+import strategy.crmyers.beta.RuleSet;
+
+import java.util.Arrays;
+
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Alpha-beta (negamax) search with iterative deepening, a transposition table and a hard wall-clock budget. Picks the
+ * best move for the side to move, searching on the board in place with makeMove()/unmakeMove().
+ * <p>
+ * Moves are ordered with the transposition table's best move first, then strikes (most valuable victim first), then
+ * quiet moves by history score. The clock is checked every few thousand nodes; when time runs out, the result of the
+ * last finished iteration is returned.
+ * <p>
+ * The game's recent history and the current line are kept in a RepetitionHistory. Under rules with the repetition rule,
+ * moves that break it are skipped. Under rules without a turn limit, going back to a position seen before scores as a
+ * draw, which cuts off cycles that could otherwise be searched forever. Both depend on how the position was reached,
+ * not just on the position, so a score that leaned on either is never stored in the transposition table, where another
+ * line (or another search sharing the table) could pick it up.
+ * <p>
+ * A search object is not thread-safe, but any number of them (one per thread) can share a transposition table.
+ */
+public class AlphaBetaSearch {
+
+	/**
+	 * Score of a win on the spot; wins further away score a little lower, so shorter wins are preferred.
+	 */
+	public static final int WIN = 30000;
+
+	/**
+	 * Deepest the search will go, in plies
+	 */
+	public static final int MAX_PLY = 64;
+
+	private static final int INFINITY = WIN + 1;
+	private static final int CHECK_INTERVAL = 4095;
+
+	// Move ordering keys
+	private static final int HASH_MOVE = 1 << 30;
+	private static final int STRIKE = 1 << 20;
+
+	private final TranspositionTable table;
+	private final int[][] moves;
+	private final int[][] keys;
+	private final int[][] pv;
+	private final int[] pvLength;
+	private final boolean[] pathDependent;
+	private final int[] history;
+
+	private BitBoard board;
+	private RepetitionHistory repetitions;
+	private long deadline;
+	private boolean aborted;
+	private long nodes;
+
+	/**
+	 * @param table Transposition table; may be shared with other searches
+	 */
+	public AlphaBetaSearch(TranspositionTable table) {
+		this.table = table;
+		moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+		keys = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+		pv = new int[MAX_PLY][MAX_PLY];
+		pvLength = new int[MAX_PLY];
+		pathDependent = new boolean[MAX_PLY];
+		history = new int[BitBoard.MAX_SQUARES * BitBoard.MAX_SQUARES];
+	}
+
+	/**
+	 * Search a game's current position.
+	 *
+	 * @param game         Game to find a move in; not changed
+	 * @param budgetMillis Wall-clock budget in milliseconds
+	 * @return Search result; the move is zero if the game is over or the side to move has no moves
+	 */
+	public SearchResult search(BetaGame game, long budgetMillis) {
+		if (game.isOver())
+			return new SearchResult(0, 0, 0, new int[0], 0);
+		return search(game.copyBoard(), game.copyRepetitions(), budgetMillis, MAX_PLY - 1);
+	}
+
+	/**
+	 * Search a position.
+	 *
+	 * @param board        Board to search; it's used as scratch space, but is always left as it was found
+	 * @param budgetMillis Wall-clock budget in milliseconds
+	 * @param maxDepth     Deepest iteration to run, in plies
+	 * @return Search result; the move is zero if the side to move has no moves
+	 */
+	public SearchResult search(BitBoard board, long budgetMillis, int maxDepth) {
+		final RepetitionHistory repetitions = new RepetitionHistory();
+		repetitions.push(board.getKey(), Move.NONE);
+		return search(board, repetitions, budgetMillis, maxDepth);
+	}
+
+	/**
+	 * Search a position reached over the course of a game.
+	 *
+	 * @param board        Board to search; it's used as scratch space, but is always left as it was found
+	 * @param repetitions  History of the game up to and including the position; also used as scratch space
+	 * @param budgetMillis Wall-clock budget in milliseconds
+	 * @param maxDepth     Deepest iteration to run, in plies
+	 * @return Search result; the move is zero if the side to move has no moves
+	 */
+	public SearchResult search(BitBoard board, RepetitionHistory repetitions, long budgetMillis, int maxDepth) {
+		this.board = board;
+		this.repetitions = repetitions;
+		deadline = System.nanoTime() + budgetMillis * 1_000_000;
+		aborted = false;
+		nodes = 0;
+		table.newSearch();
+		Arrays.fill(history, 0);
+
+		SearchResult result = null;
+		for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+			final int score = negamax(depth, 0, -INFINITY, INFINITY);
+			if (aborted)
+				break;
+			result = new SearchResult(pvLength[0] > 0 ? pv[0][0] : 0, score, depth,
+					Arrays.copyOf(pv[0], pvLength[0]), nodes);
+
+			// No point searching deeper once the outcome is certain
+			if (result.isDecisive())
+				break;
+		}
+
+		// Ran out of time before the first iteration even finished; take whatever move comes first
+		if (result == null) {
+			final int count = MoveGenerator.generate(board, board.getColorTurn(), moves[0]);
+			result = count == 0 ? new SearchResult(0, -WIN, 0, new int[0], nodes) :
+					new SearchResult(moves[0][0], Evaluator.evaluate(board), 0, new int[]{moves[0][0]}, nodes);
+		}
+		this.board = null;
+		this.repetitions = null;
+		return result;
+	}
+
+	/**
+	 * The search proper.
+	 *
+	 * @param depth Remaining depth
+	 * @param ply   Distance from the root
+	 * @param alpha Lower bound
+	 * @param beta  Upper bound
+	 * @return Score from the point of view of the side to move; pathDependent[ply] says whether it relied on the
+	 * repetition history
+	 */
+	private int negamax(int depth, int ply, int alpha, int beta) {
+		pvLength[ply] = 0;
+		pathDependent[ply] = false;
+		if ((++nodes & CHECK_INTERVAL) == 0 && System.nanoTime() > deadline)
+			aborted = true;
+		if (aborted)
+			return 0;
+
+		// Red wins once the turn limit is up
+		if (board.getTurns() >= board.getRules().getTurnLimit())
+			return board.getColorTurn() == RED ? WIN - ply : ply - WIN;
+
+		// Without a turn limit, coming back to a position is a draw; with one, the turn count tells them apart
+		if (ply > 0 && board.getRules().getTurnLimit() == RuleSet.NO_TURN_LIMIT
+				&& repetitions.occurrences(board.getKey()) > 1) {
+			pathDependent[ply] = true;
+			return 0;
+		}
+
+		// Transposition table: always use the move for ordering, but only cut off away from the root
+		final long key = TranspositionTable.key(board);
+		final long entry = table.probe(key);
+		int hashMove = 0;
+		if (entry != 0) {
+			hashMove = TranspositionTable.move(entry);
+			if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+				final int score = fromTable(TranspositionTable.score(entry), ply);
+				final int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT ||
+						(bound == TranspositionTable.LOWER && score >= beta) ||
+						(bound == TranspositionTable.UPPER && score <= alpha))
+					return score;
+			}
+		}
+
+		// No moves means the side to move has lost
+		final int[] list = moves[ply];
+		final int count = MoveGenerator.generate(board, board.getColorTurn(), list);
+		if (count == 0)
+			return ply - WIN;
+		if (depth == 0 || ply == MAX_PLY - 1)
+			return Evaluator.evaluate(board);
+
+		order(ply, count, hashMove);
+		final int originalAlpha = alpha;
+		int bestScore = -INFINITY;
+		int bestMove = 0;
+		final boolean repetition = board.getRules().hasRepetitionRule();
+		for (int i = 0; i < count; i++) {
+			final int move = pick(ply, i, count);
+			if (repetition && repetitions.repeatsMove(move)) {
+				pathDependent[ply] = true;
+				continue;
+			}
+			final PieceDefined.MoveResult result = board.makeMove(move);
+			repetitions.push(board.getKey(), move);
+			final int score;
+			if (result == PieceDefined.MoveResult.RED_WINS || result == PieceDefined.MoveResult.BLUE_WINS)
+				score = WIN - ply - 1;
+			else {
+				score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+				pathDependent[ply] |= pathDependent[ply + 1];
+			}
+			repetitions.pop();
+			board.unmakeMove();
+			if (aborted)
+				return 0;
+
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+
+					// New principal variation: this move, then whatever the child found
+					pv[ply][0] = move;
+					final int childLength = ply + 1 < MAX_PLY ? pvLength[ply + 1] : 0;
+					if (result == PieceDefined.MoveResult.RED_WINS || result == PieceDefined.MoveResult.BLUE_WINS)
+						pvLength[ply] = 1;
+					else {
+						System.arraycopy(pv[ply + 1], 0, pv[ply], 1, childLength);
+						pvLength[ply] = childLength + 1;
+					}
+
+					if (alpha >= beta) {
+						if (board.getIndex(Move.to(move)) < 0)
+							history[Move.from(move) * BitBoard.MAX_SQUARES + Move.to(move)] +=
+									depth * depth;
+						break;
+					}
+				}
+			}
+		}
+
+		// Every move broke the repetition rule, so there was nothing legal to play after all
+		if (bestMove == 0)
+			return ply - WIN;
+
+		// Scores that came from repetitions only hold for this line
+		if (!pathDependent[ply]) {
+			final int bound = bestScore >= beta ? TranspositionTable.LOWER :
+					bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+			table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+		}
+		return bestScore;
+	}
+
+	/**
+	 * Give every move an ordering key.
+	 *
+	 * @param ply      Ply whose move list to order
+	 * @param count    Number of moves
+	 * @param hashMove Best move from the transposition table, or zero
+	 */
+	private void order(int ply, int count, int hashMove) {
+		final int[] list = moves[ply];
+		final int[] order = keys[ply];
+		for (int i = 0; i < count; i++) {
+			final int move = list[i];
+			final int victim = board.getIndex(Move.to(move));
+			if (move == hashMove)
+				order[i] = HASH_MOVE;
+			else if (victim >= 0)
+				order[i] = STRIKE + 16 * Evaluator.value(victim) - Evaluator.value(board.getIndex(Move.from(move)));
+			else
+				order[i] = Math.min(history[Move.from(move) * BitBoard.MAX_SQUARES + Move.to(move)],
+						STRIKE - 1);
+		}
+	}
+
+	/**
+	 * Selection sort, one step at a time: swap the best remaining move into position i and return it. Most nodes cut
+	 * off after a move or two, so sorting the whole list up front would be wasted effort.
+	 *
+	 * @param ply   Ply whose move list to pick from
+	 * @param i     Position to fill
+	 * @param count Number of moves
+	 * @return Best remaining move
+	 */
+	private int pick(int ply, int i, int count) {
+		final int[] list = moves[ply];
+		final int[] order = keys[ply];
+		int best = i;
+		for (int j = i + 1; j < count; j++) {
+			if (order[j] > order[best])
+				best = j;
+		}
+		final int move = list[best];
+		list[best] = list[i];
+		list[i] = move;
+		final int key = order[best];
+		order[best] = order[i];
+		order[i] = key;
+		return move;
+	}
+
+	/**
+	 * Win/loss scores are relative to the root; the table stores them relative to the position instead.
+	 */
+	private static int toTable(int score, int ply) {
+		if (score > WIN - MAX_PLY)
+			return score + ply;
+		if (score < MAX_PLY - WIN)
+			return score - ply;
+		return score;
+	}
+
+	/**
+	 * Inverse of toTable()
+	 */
+	private static int fromTable(int score, int ply) {
+		if (score > WIN - MAX_PLY)
+			return score - ply;
+		if (score < MAX_PLY - WIN)
+			return score + ply;
+		return score;
+	}
+}
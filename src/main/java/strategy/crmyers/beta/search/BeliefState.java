@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.search;
+
+import strategy.Piece;
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.GameListener;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.PieceDefined;
+import strategy.crmyers.beta.RuleSet;
+import strategy.crmyers.beta.StrikeTable;
+
+import java.util.Arrays;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * One player's beliefs about the other's pieces: for every enemy piece, the probability of it being each piece type.
+ * <p>
+ * Beliefs start out from the enemy's army, which is public knowledge: every piece is equally likely to be any of the
+ * pieces in it. After that they're updated from what the player sees. A piece that moves isn't a bomb or a flag, and
+ * one that moves more than one square is a scout; a strike rules out every type that would have given a different
+ * result against the known piece on the other side. Every update is followed by a few passes of proportional
+ * fitting, so no type is believed in more often than it's left in the enemy's army (if a piece is known to be the
+ * marshal, the others can't be).
+ * <p>
+ * Beliefs are a flat MAX_SQUARES by TYPES matrix of doubles, indexed by square and type ordinal, and follow the
+ * pieces as they move. Attach the tracker to a game as a listener to keep it up to date; updates don't allocate.
+ */
+public class BeliefState implements GameListener {
+
+	private static final Piece.PieceType[] TYPES = Piece.PieceType.values();
+	private static final int FITTING_PASSES = 4;
+
+	private final Piece.PieceColor observer;
+	private final Piece.PieceColor enemy;
+	private final double[] beliefs;
+	private final double[] remaining;
+	private final byte[] own;
+	private final RuleSet rules;
+	private long enemies;
+
+	/**
+	 * Start tracking from a board at the start of the game.
+	 *
+	 * @param board    Board to start from; only the observer's pieces and the makeup of the enemy's army are looked at
+	 * @param observer Color whose beliefs these are
+	 */
+	public BeliefState(BitBoard board, Piece.PieceColor observer) {
+		this.observer = observer;
+		rules = board.getRules();
+		enemy = observer == RED ? BLUE : RED;
+		beliefs = new double[BitBoard.MAX_SQUARES * BitBoard.TYPES];
+		remaining = new double[BitBoard.TYPES];
+		own = new byte[BitBoard.MAX_SQUARES];
+		Arrays.fill(own, (byte) -1);
+
+		double total = 0;
+		for (int type = 0; type < BitBoard.TYPES; type++) {
+			remaining[type] = Long.bitCount(board.getPieces(enemy, TYPES[type]));
+			total += remaining[type];
+			for (long bits = board.getPieces(observer, TYPES[type]); bits != 0; bits &= bits - 1)
+				own[Long.numberOfTrailingZeros(bits)] = (byte) type;
+		}
+
+		enemies = board.getOccupied(enemy);
+		for (long bits = enemies; bits != 0; bits &= bits - 1) {
+			final int base = Long.numberOfTrailingZeros(bits) * BitBoard.TYPES;
+			for (int type = 0; type < BitBoard.TYPES; type++)
+				beliefs[base + type] = remaining[type] / total;
+		}
+	}
+
+	public Piece.PieceColor getObserver() {
+		return observer;
+	}
+
+	/**
+	 * @return Mask of squares holding enemy pieces
+	 */
+	public long getEnemies() {
+		return enemies;
+	}
+
+	/**
+	 * @param square Square
+	 * @param type   Piece type
+	 * @return Probability of the piece on the square being of the given type; zero if there's no enemy piece there
+	 */
+	public double probability(int square, Piece.PieceType type) {
+		return beliefs[square * BitBoard.TYPES + type.ordinal()];
+	}
+
+	/**
+	 * @param square Square
+	 * @return Most likely type of the enemy piece on the square; null if there's no enemy piece there
+	 */
+	public Piece.PieceType mostLikely(int square) {
+		if ((enemies & (1L << square)) == 0)
+			return null;
+		final int base = square * BitBoard.TYPES;
+		int best = 0;
+		for (int type = 1; type < BitBoard.TYPES; type++) {
+			if (beliefs[base + type] > beliefs[base + best])
+				best = type;
+		}
+		return TYPES[best];
+	}
+
+	/**
+	 * @param type Piece type
+	 * @return Expected number of enemy pieces of that type still on the board
+	 */
+	public double getRemaining(Piece.PieceType type) {
+		return remaining[type.ordinal()];
+	}
+
+	@Override
+	public void moveMade(BetaGame game, Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+		observe(color, move, result);
+	}
+
+	/**
+	 * Update beliefs after a move.
+	 *
+	 * @param color  Color that moved
+	 * @param move   Packed move
+	 * @param result Result of the move, as reported by the game
+	 */
+	public void observe(Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+		final int from = Move.from(move);
+		final int to = Move.to(move);
+		final boolean enemyMoved = color == enemy;
+
+		// What the enemy piece's movement gives away
+		if (enemyMoved) {
+			if (rules.distance(move) > 1)
+				only(from, Piece.PieceType.SCOUT.ordinal());
+			else {
+				beliefs[from * BitBoard.TYPES + Piece.PieceType.BOMB.ordinal()] = 0;
+				beliefs[from * BitBoard.TYPES + Piece.PieceType.FLAG.ordinal()] = 0;
+			}
+		}
+
+		if (result == PieceDefined.MoveResult.OK) {
+			if (enemyMoved)
+				moveEnemy(from, to);
+			else
+				moveOwn(from, to);
+			fit();
+			return;
+		}
+
+		// A strike: rule out every type that would have lost (or won) differently against our piece
+		final int enemySquare = enemyMoved ? from : to;
+		final int ownType = own[enemyMoved ? to : from];
+		final int base = enemySquare * BitBoard.TYPES;
+		if (ownType >= 0) {
+			for (int type = 0; type < BitBoard.TYPES; type++) {
+				final PieceDefined.MoveResult expected = enemyMoved ?
+						StrikeTable.get(color, TYPES[type], TYPES[ownType]) :
+						StrikeTable.get(color, TYPES[ownType], TYPES[type]);
+				if (expected != result)
+					beliefs[base + type] = 0;
+			}
+			normalize(enemySquare);
+		}
+
+		// Clear out the loser(s); attacker wins move in, defender wins move back to the attacker's square
+		final boolean attackerWon = result == PieceDefined.MoveResult.RED_WINS
+				|| result == PieceDefined.MoveResult.BLUE_WINS
+				|| result == (color == RED ? PieceDefined.MoveResult.STRIKE_RED : PieceDefined.MoveResult.STRIKE_BLUE);
+		final boolean defenderWon = result == (color == RED ? PieceDefined.MoveResult.STRIKE_BLUE :
+				PieceDefined.MoveResult.STRIKE_RED);
+		if (attackerWon) {
+			if (enemyMoved) {
+				own[to] = -1;
+				moveEnemy(from, to);
+			} else {
+				removeEnemy(to);
+				moveOwn(from, to);
+			}
+		} else if (defenderWon) {
+			if (enemyMoved) {
+				removeEnemy(from);
+				moveOwn(to, from);
+			} else {
+				own[from] = -1;
+				moveEnemy(to, from);
+			}
+		} else {
+			removeEnemy(enemySquare);
+			own[enemyMoved ? to : from] = -1;
+		}
+		fit();
+	}
+
+	/**
+	 * Tiny, dumb helper: the piece on a square is known to be of a given type.
+	 */
+	private void only(int square, int type) {
+		final int base = square * BitBoard.TYPES;
+		Arrays.fill(beliefs, base, base + BitBoard.TYPES, 0);
+		beliefs[base + type] = 1;
+	}
+
+	/**
+	 * Move an enemy piece, beliefs and all.
+	 *
+	 * @param from From square
+	 * @param to   To square
+	 */
+	private void moveEnemy(int from, int to) {
+		System.arraycopy(beliefs, from * BitBoard.TYPES, beliefs, to * BitBoard.TYPES, BitBoard.TYPES);
+		Arrays.fill(beliefs, from * BitBoard.TYPES, (from + 1) * BitBoard.TYPES, 0);
+		enemies = (enemies & ~(1L << from)) | (1L << to);
+	}
+
+	/**
+	 * Move one of the observer's own pieces.
+	 *
+	 * @param from From square
+	 * @param to   To square
+	 */
+	private void moveOwn(int from, int to) {
+		own[to] = own[from];
+		own[from] = -1;
+	}
+
+	/**
+	 * An enemy piece is gone; take what it probably was out of the enemy's army.
+	 *
+	 * @param square Square it was on
+	 */
+	private void removeEnemy(int square) {
+		final int base = square * BitBoard.TYPES;
+		for (int type = 0; type < BitBoard.TYPES; type++) {
+			remaining[type] = Math.max(0, remaining[type] - beliefs[base + type]);
+			beliefs[base + type] = 0;
+		}
+		enemies &= ~(1L << square);
+	}
+
+	/**
+	 * Scale a piece's beliefs back up to add to one. If everything has been ruled out (which only happens if the
+	 * game broke its own rules), fall back on the makeup of the enemy's army.
+	 *
+	 * @param square Square the piece is on
+	 */
+	private void normalize(int square) {
+		final int base = square * BitBoard.TYPES;
+		double sum = 0;
+		for (int type = 0; type < BitBoard.TYPES; type++)
+			sum += beliefs[base + type];
+		if (sum <= 0) {
+			System.arraycopy(remaining, 0, beliefs, base, BitBoard.TYPES);
+			for (int type = 0; type < BitBoard.TYPES; type++)
+				sum += remaining[type];
+			if (sum <= 0)
+				return;
+		}
+		for (int type = 0; type < BitBoard.TYPES; type++)
+			beliefs[base + type] /= sum;
+	}
+
+	/**
+	 * Proportional fitting: scale every type's column to the number of that type left, then every piece's row back
+	 * to one.
+	 */
+	private void fit() {
+		for (int pass = 0; pass < FITTING_PASSES; pass++) {
+			for (int type = 0; type < BitBoard.TYPES; type++) {
+				double sum = 0;
+				for (long bits = enemies; bits != 0; bits &= bits - 1)
+					sum += beliefs[Long.numberOfTrailingZeros(bits) * BitBoard.TYPES + type];
+				if (sum <= 0)
+					continue;
+				final double scale = remaining[type] / sum;
+				for (long bits = enemies; bits != 0; bits &= bits - 1)
+					beliefs[Long.numberOfTrailingZeros(bits) * BitBoard.TYPES + type] *= scale;
+			}
+			for (long bits = enemies; bits != 0; bits &= bits - 1)
+				normalize(Long.numberOfTrailingZeros(bits));
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.search;
+
+import strategy.Piece;
+import strategy.crmyers.beta.BitBoard;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Static evaluation of a position: a simple material count.
+ */
+public final class Evaluator {
+
+	/**
+	 * Material value of each piece type, indexed by ordinal. Spies are worth more than their rank suggests, since they
+	 * are the only thing that can take out a marshal on the attack; flags are handled as wins and losses instead.
+	 */
+	private static final int[] VALUES = new int[BitBoard.TYPES];
+	private static final Piece.PieceType[] TYPES = Piece.PieceType.values();
+
+	static {
+		VALUES[Piece.PieceType.FLAG.ordinal()] = 0;
+		VALUES[Piece.PieceType.BOMB.ordinal()] = 60;
+		VALUES[Piece.PieceType.SPY.ordinal()] = 120;
+		VALUES[Piece.PieceType.SCOUT.ordinal()] = 60;
+		VALUES[Piece.PieceType.MINER.ordinal()] = 80;
+		VALUES[Piece.PieceType.SERGEANT.ordinal()] = 70;
+		VALUES[Piece.PieceType.LIEUTENANT.ordinal()] = 90;
+		VALUES[Piece.PieceType.CAPTAIN.ordinal()] = 120;
+		VALUES[Piece.PieceType.MAJOR.ordinal()] = 150;
+		VALUES[Piece.PieceType.COLONEL.ordinal()] = 200;
+		VALUES[Piece.PieceType.GENERAL.ordinal()] = 300;
+		VALUES[Piece.PieceType.MARSHAL.ordinal()] = 400;
+	}
+
+	private Evaluator() {
+	}
+
+	/**
+	 * @param index Piece index, as returned by BitBoard.getIndex()
+	 * @return Material value of the piece
+	 */
+	public static int value(int index) {
+		return VALUES[index % BitBoard.TYPES];
+	}
+
+	/**
+	 * Evaluate a position.
+	 *
+	 * @param board Board to evaluate
+	 * @return Score from the point of view of the side to move; positive is good for them
+	 */
+	public static int evaluate(BitBoard board) {
+		int score = 0;
+		for (int type = 0; type < BitBoard.TYPES; type++) {
+			score += VALUES[type] * (Long.bitCount(board.getPieces(RED, TYPES[type]))
+					- Long.bitCount(board.getPieces(BLUE, TYPES[type])));
+		}
+		return board.getColorTurn() == RED ? score : -score;
+	}
+}
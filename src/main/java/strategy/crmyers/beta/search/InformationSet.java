@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.search;
+
+import strategy.Piece;
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.GameListener;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.PieceDefined;
+
+import java.util.SplittableRandom;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * What one player knows about the other's pieces. At the start of the game every enemy piece is hidden; a piece is
+ * revealed when it's part of a strike, and a piece that has moved is known not to be a bomb or a flag. Attach it to a
+ * game as a listener to keep it up to date.
+ * <p>
+ * Knowledge is kept as two masks of enemy squares, which follow the pieces around as they move. sample() turns the
+ * real board into one the observer can't tell apart from it, by shuffling the hidden enemy pieces around the hidden
+ * squares in place; searching enough of those samples is the determinized flavour of information-set MCTS, see
+ * MonteCarloSearch.
+ */
+public class InformationSet implements GameListener {
+
+	private final Piece.PieceColor observer;
+	private long revealed;
+	private long moved;
+
+	/**
+	 * @param observer Color whose knowledge this is
+	 */
+	public InformationSet(Piece.PieceColor observer) {
+		this.observer = observer;
+		revealed = 0;
+		moved = 0;
+	}
+
+	public Piece.PieceColor getObserver() {
+		return observer;
+	}
+
+	/**
+	 * @return Mask of squares whose pieces are known to the observer, if they hold enemy pieces
+	 */
+	public long getRevealed() {
+		return revealed;
+	}
+
+	/**
+	 * @return Mask of squares whose pieces have moved, if they hold enemy pieces
+	 */
+	public long getMoved() {
+		return moved;
+	}
+
+	@Override
+	public void moveMade(BetaGame game, Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+		observe(color, move, result);
+	}
+
+	/**
+	 * Take note of a move.
+	 *
+	 * @param color  Color that moved
+	 * @param move   Packed move
+	 * @param result Result of the move; anything but OK means there was a strike
+	 */
+	public void observe(Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+		final long from = 1L << Move.from(move);
+		final long to = 1L << Move.to(move);
+
+		// Knowledge travels with the piece
+		if ((revealed & from) != 0)
+			revealed = (revealed & ~from) | to;
+		else
+			revealed &= ~to;
+		moved = (moved & ~from & ~to) | (color != observer ? to : 0);
+
+		// Both pieces in a strike are shown. Whichever survives ends up on one of the two squares; knowledge about
+		// empty or friendly squares is ignored when sampling, so both can just be marked.
+		if (result != PieceDefined.MoveResult.OK)
+			revealed |= from | to;
+	}
+
+	/**
+	 * Make a board consistent with what the observer knows: its own pieces and revealed enemy pieces stay put, and
+	 * hidden enemy pieces are shuffled uniformly among the hidden squares, with movable pieces on squares whose piece
+	 * has moved.
+	 *
+	 * @param board  Real board; not changed
+	 * @param random Random number generator
+	 * @return Sampled board, with the same side to move and turn count as the real one
+	 */
+	public BitBoard sample(BitBoard board, SplittableRandom random) {
+		final BitBoard sample = new BitBoard(board);
+		final long hidden = board.getOccupied(observer == RED ? BLUE : RED) & ~revealed;
+		final int count = Long.bitCount(hidden);
+		if (count < 2)
+			return sample;
+
+		// Sort the hidden squares and pieces: squares that have moved (which need movable pieces) first, and
+		// movable pieces first
+		final int[] squares = new int[count];
+		final PieceDefined[] pieces = new PieceDefined[count];
+		int movedSquares = 0;
+		for (long bits = hidden & moved; bits != 0; bits &= bits - 1)
+			squares[movedSquares++] = Long.numberOfTrailingZeros(bits);
+		int next = movedSquares;
+		for (long bits = hidden & ~moved; bits != 0; bits &= bits - 1)
+			squares[next++] = Long.numberOfTrailingZeros(bits);
+
+		next = 0;
+		int immobile = count;
+		for (long bits = hidden; bits != 0; bits &= bits - 1) {
+			final PieceDefined piece = board.getPieceAt(Long.numberOfTrailingZeros(bits));
+			if (isMovable(piece))
+				pieces[next++] = piece;
+			else
+				pieces[--immobile] = piece;
+		}
+		final int movable = next;
+
+		// Moved squares get a random selection of movable pieces; everything left over is shuffled onto the rest
+		for (int i = 0; i < movedSquares; i++)
+			swap(pieces, i, i + random.nextInt(movable - i));
+		for (int i = movedSquares; i < count - 1; i++)
+			swap(pieces, i, i + random.nextInt(count - i));
+		for (int i = 0; i < count; i++)
+			sample.put(pieces[i], squares[i]);
+		return sample;
+	}
+
+	/**
+	 * @param piece Piece to check
+	 * @return Whether the piece can ever move
+	 */
+	private static boolean isMovable(PieceDefined piece) {
+		return piece.getPieceType() != Piece.PieceType.BOMB && piece.getPieceType() != Piece.PieceType.FLAG;
+	}
+
+	/**
+	 * Tiny, dumb helper for shuffling
+	 */
+	private static void swap(PieceDefined[] pieces, int i, int j) {
+		final PieceDefined piece = pieces[i];
+		pieces[i] = pieces[j];
+		pieces[j] = piece;
+	}
+}
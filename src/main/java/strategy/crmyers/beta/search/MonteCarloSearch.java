@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.search;
+
+import strategy.Piece;
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.MoveGenerator;
+import strategy.crmyers.beta.PieceDefined;
+import strategy.crmyers.beta.RepetitionHistory;
+import strategy.crmyers.beta.sim.Playout;
+import strategy.crmyers.beta.sim.Policy;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Monte Carlo tree search (UCT), for positions too big to search full-width.
+ * <p>
+ * Parallelism is root-parallel: every thread grows its own tree from its own copy of the position, with its own random
+ * number generator, and the visit counts at the root are added up at the end. Nothing is shared while searching, so
+ * there are no locks or virtual losses to deal with. Rollouts are Playout.play() on the tree's board, which steps with
+ * makeMove()/unmakeMove() and never copies.
+ * <p>
+ * Under the repetition rule, each tree keeps the game's history plus the line it's walking down in a RepetitionHistory,
+ * and moves that break the two-square rule are left out of the tree and out of rollouts. Walks stop at the history's
+ * capacity, so popping the line back off always restores the game's window.
+ * <p>
+ * With an InformationSet, every tree searches a different sample of the enemy's hidden pieces instead (determinized
+ * information-set MCTS). Samples are made by shuffling pieces around on the tree's own board copy, so they cost no more
+ * than the copy every tree makes anyway.
+ * <p>
+ * Trees are stored as flat arrays indexed by node number; a node's children sit next to each other, in the order the
+ * move generator produced them.
+ */
+public class MonteCarloSearch {
+
+	/**
+	 * UCT exploration constant
+	 */
+	public static final double EXPLORATION = Math.sqrt(2);
+
+	private static final int CHECK_INTERVAL = 63;
+	private static final int UNKNOWN = -1;
+
+	private final Policy policy;
+	private final ForkJoinPool pool;
+	private final int trees;
+
+	/**
+	 * Random rollouts, one tree per thread of the common fork/join pool.
+	 */
+	public MonteCarloSearch() {
+		this(Policy.RANDOM, ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism());
+	}
+
+	/**
+	 * @param policy Rollout policy; shared between threads, so it must be thread-safe
+	 * @param pool   Pool to search on
+	 * @param trees  Number of independent trees to grow
+	 */
+	public MonteCarloSearch(Policy policy, ForkJoinPool pool, int trees) {
+		if (trees < 1)
+			throw new IllegalArgumentException("Need at least one tree");
+		this.policy = policy;
+		this.pool = pool;
+		this.trees = trees;
+	}
+
+	/**
+	 * Search a game's current position.
+	 *
+	 * @param game         Game to find a move in; not changed
+	 * @param budgetMillis Wall-clock budget in milliseconds
+	 * @param iterations   Total number of rollouts, across all trees
+	 * @param seed         Seed for the random number generators; with enough time, a seed always gives the same move
+	 * @return Search result; see search(BitBoard, long, long, long)
+	 */
+	public SearchResult search(BetaGame game, long budgetMillis, long iterations, long seed) {
+		if (game.isOver())
+			return new SearchResult(0, 0, 0, new int[0], 0);
+		return search(game.copyBoard(), game.copyRepetitions(), null, budgetMillis, iterations, seed);
+	}
+
+	/**
+	 * Search a position, stopping after the given number of rollouts or when time runs out, whichever comes first.
+	 *
+	 * @param board        Position to search; not changed
+	 * @param budgetMillis Wall-clock budget in milliseconds
+	 * @param iterations   Total number of rollouts, across all trees
+	 * @param seed         Seed for the random number generators; with enough time, a seed always gives the same move
+	 * @return Search result: the most visited move, its win rate for the side to move scaled from -1000 (always lost)
+	 * to 1000 (always won), the deepest the tree grew, the most visited line in the first tree, and the number of
+	 * rollouts made. The move is zero if there are no legal moves.
+	 */
+	public SearchResult search(BitBoard board, long budgetMillis, long iterations, long seed) {
+		return search(board, null, budgetMillis, iterations, seed);
+	}
+
+	/**
+	 * Search a position the side to move can only partly see. Every tree searches its own sample of the hidden enemy
+	 * pieces, drawn from what the side to move knows, so more trees means more samples; the root moves only depend
+	 * on the side to move's own pieces, so the trees' visit counts can still be added up.
+	 *
+	 * @param board        Real position; not changed, and only looked at through the information set
+	 * @param info         What the side to move knows; null to search the real position
+	 * @param budgetMillis Wall-clock budget in milliseconds
+	 * @param iterations   Total number of rollouts, across all trees
+	 * @param seed         Seed for the random number generators
+	 * @return Search result; see search(BitBoard, long, long, long)
+	 * @throws IllegalArgumentException Thrown if the information set doesn't belong to the side to move
+	 */
+	public SearchResult search(BitBoard board, InformationSet info, long budgetMillis, long iterations, long seed) {
+		final RepetitionHistory repetitions = new RepetitionHistory();
+		repetitions.push(board.getKey(), Move.NONE);
+		return search(board, repetitions, info, budgetMillis, iterations, seed);
+	}
+
+	/**
+	 * Search a position reached over the course of a game; see search(BitBoard, InformationSet, long, long, long).
+	 *
+	 * @param board        Position to search; not changed
+	 * @param repetitions  History of the game up to and including the position; not changed
+	 * @param info         What the side to move knows; null to search the real position
+	 * @param budgetMillis Wall-clock budget in milliseconds
+	 * @param iterations   Total number of rollouts, across all trees
+	 * @param seed         Seed for the random number generators
+	 * @return Search result
+	 */
+	private SearchResult search(BitBoard board, RepetitionHistory repetitions, InformationSet info, long budgetMillis,
+	                            long iterations, long seed) {
+		if (info != null && info.getObserver() != board.getColorTurn())
+			throw new IllegalArgumentException("Information set belongs to the wrong player");
+
+		final long deadline = System.nanoTime() + budgetMillis * 1_000_000;
+		final SplittableRandom random = new SplittableRandom(seed);
+		final Tree[] forest = new Tree[trees];
+		for (int i = 0; i < trees; i++) {
+			final long share = iterations / trees + (i < iterations % trees ? 1 : 0);
+			final SplittableRandom treeRandom = random.split();
+			final BitBoard treeBoard = info == null ? new BitBoard(board) : info.sample(board, treeRandom);
+			forest[i] = new Tree(treeBoard, new RepetitionHistory(repetitions), treeRandom, share, deadline);
+		}
+		for (Tree tree : forest)
+			pool.execute(tree);
+		for (Tree tree : forest)
+			tree.join();
+
+		// Every tree expanded the root with the same moves in the same order, so their children line up
+		final Tree first = forest[0];
+		final int count = first.size > 1 ? first.childCount[0] : 0;
+		if (count == 0)
+			return new SearchResult(0, 0, 0, new int[0], 0);
+
+		long rollouts = 0;
+		int depth = 0;
+		final long[] visits = new long[count];
+		final long[] wins = new long[count];
+		for (Tree tree : forest) {
+			rollouts += tree.rollouts;
+			depth = Math.max(depth, tree.depth);
+			for (int i = 0; i < count && tree.size > 1; i++) {
+				visits[i] += tree.visits[tree.firstChild[0] + i];
+				wins[i] += tree.wins[tree.firstChild[0] + i];
+			}
+		}
+		int best = 0;
+		for (int i = 1; i < count; i++) {
+			if (visits[i] > visits[best])
+				best = i;
+		}
+
+		// Wins are kept in half points, so draws count for half
+		final int score = visits[best] == 0 ? 0 : (int) Math.round(1000.0 * (wins[best] - visits[best]) / visits[best]);
+		return new SearchResult(first.move[first.firstChild[0] + best], score, depth,
+				first.line(first.firstChild[0] + best), rollouts);
+	}
+
+	/**
+	 * One search tree, grown by one thread.
+	 */
+	private final class Tree extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final BitBoard board;
+		private final RepetitionHistory line;
+		private final boolean repetition;
+		private final SplittableRandom random;
+		private final long budget;
+		private final long deadline;
+		private final int[] moves;
+		private int[] path;
+
+		// Nodes; node 0 is the root. Wins are in half points, from the point of view of whoever made the node's move.
+		private int size;
+		private int[] move;
+		private int[] firstChild;
+		private int[] childCount;
+		private int[] visits;
+		private int[] wins;
+		private int[] outcome;
+
+		private long rollouts;
+		private int depth;
+
+		Tree(BitBoard board, RepetitionHistory line, SplittableRandom random, long budget, long deadline) {
+			this.board = board;
+			this.line = line;
+			repetition = board.getRules().hasRepetitionRule();
+			this.random = random;
+			this.budget = budget;
+			this.deadline = deadline;
+			moves = new int[MoveGenerator.MAX_MOVES];
+			path = new int[2 * Math.min(board.getRules().getTurnLimit(), BetaGame.TURN_LIMIT) + 1];
+
+			size = 0;
+			move = new int[1024];
+			firstChild = new int[move.length];
+			childCount = new int[move.length];
+			visits = new int[move.length];
+			wins = new int[move.length];
+			outcome = new int[move.length];
+			add(0);
+		}
+
+		@Override
+		protected void compute() {
+			expand(0);
+			if (childCount[0] == 0)
+				return;
+			while (rollouts < budget) {
+				if ((rollouts & CHECK_INTERVAL) == 0 && System.nanoTime() > deadline)
+					break;
+				iterate();
+				rollouts++;
+			}
+		}
+
+		/**
+		 * Selection, expansion, rollout and backup, all in one.
+		 */
+		private void iterate() {
+			final int start = board.getDepth();
+			int length = 0;
+			int node = 0;
+			path[length++] = node;
+
+			// Walk down the tree until we reach a leaf, the end of the game or as far as the line can go
+			while (outcome[node] == UNKNOWN && childCount[node] > 0 && length <= RepetitionHistory.DEFAULT_CAPACITY) {
+				node = select(node);
+				final PieceDefined.MoveResult result = board.makeMove(move[node]);
+				line.push(board.getKey(), move[node]);
+				if (result == PieceDefined.MoveResult.RED_WINS)
+					outcome[node] = Playout.RED_WINS;
+				else if (result == PieceDefined.MoveResult.BLUE_WINS)
+					outcome[node] = Playout.BLUE_WINS;
+				if (length == path.length)
+					path = Arrays.copyOf(path, 2 * path.length);
+				path[length++] = node;
+
+				// Grow the tree by one level at every leaf that's been visited before
+				if (outcome[node] == UNKNOWN && childCount[node] == 0 && visits[node] > 0)
+					expand(node);
+			}
+			depth = Math.max(depth, length - 1);
+
+			// Play it out if the game isn't already decided
+			final int result = outcome[node] != UNKNOWN ? outcome[node] :
+					Playout.outcome(Playout.play(board, line, policy, random, moves));
+
+			// Back up: the player who made each node's move scores the result. Colors alternate every ply.
+			Piece.PieceColor mover = board.getColorTurn() == RED ? Piece.PieceColor.BLUE : RED;
+			for (int i = length - 1; i >= 0; i--) {
+				final int current = path[i];
+				visits[current]++;
+				if (result == Playout.DRAW)
+					wins[current] += 1;
+				else if ((result == Playout.RED_WINS) == (mover == RED))
+					wins[current] += 2;
+				mover = mover == RED ? Piece.PieceColor.BLUE : RED;
+			}
+
+			while (board.getDepth() > start) {
+				line.pop();
+				board.unmakeMove();
+			}
+		}
+
+		/**
+		 * Pick a child to descend into: unvisited children first, then by UCT score.
+		 *
+		 * @param node Node to pick a child of
+		 * @return Child picked
+		 */
+		private int select(int node) {
+			final double logVisits = Math.log(Math.max(visits[node], 1));
+			int best = firstChild[node];
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+				if (visits[child] == 0)
+					return child;
+				final double score = wins[child] / (2.0 * visits[child])
+						+ EXPLORATION * Math.sqrt(logVisits / visits[child]);
+				if (score > bestScore) {
+					bestScore = score;
+					best = child;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Give a node its children, or mark it as the end of the game if it has none.
+		 *
+		 * @param node Node to expand; the board must be at its position
+		 */
+		private void expand(int node) {
+			if (board.getTurns() >= board.getRules().getTurnLimit()) {
+				outcome[node] = Playout.RED_WINS;
+				return;
+			}
+			final int count = MoveGenerator.generate(board, board.getColorTurn(), moves);
+			int kept = 0;
+			for (int i = 0; i < count; i++) {
+				if (!repetition || !line.repeatsMove(moves[i]))
+					moves[kept++] = moves[i];
+			}
+			if (kept == 0) {
+				outcome[node] = board.getColorTurn() == RED ? Playout.BLUE_WINS : Playout.RED_WINS;
+				return;
+			}
+			firstChild[node] = size;
+			childCount[node] = kept;
+			for (int i = 0; i < kept; i++)
+				add(moves[i]);
+		}
+
+		/**
+		 * Add a node, growing the arrays if they're full.
+		 *
+		 * @param nodeMove Move leading to the node
+		 */
+		private void add(int nodeMove) {
+			if (size == move.length) {
+				final int length = 2 * move.length;
+				move = Arrays.copyOf(move, length);
+				firstChild = Arrays.copyOf(firstChild, length);
+				childCount = Arrays.copyOf(childCount, length);
+				visits = Arrays.copyOf(visits, length);
+				wins = Arrays.copyOf(wins, length);
+				outcome = Arrays.copyOf(outcome, length);
+			}
+			move[size] = nodeMove;
+			firstChild[size] = 0;
+			childCount[size] = 0;
+			visits[size] = 0;
+			wins[size] = 0;
+			outcome[size] = UNKNOWN;
+			size++;
+		}
+
+		/**
+		 * @param node Node to start at
+		 * @return Moves along the most visited line from the node down
+		 */
+		private int[] line(int node) {
+			final int[] line = new int[path.length];
+			int length = 0;
+			while (length < line.length) {
+				line[length++] = move[node];
+				if (childCount[node] == 0)
+					break;
+				int best = firstChild[node];
+				for (int child = best + 1; child < firstChild[node] + childCount[node]; child++) {
+					if (visits[child] > visits[best])
+						best = child;
+				}
+				if (visits[best] == 0)
+					break;
+				node = best;
+			}
+			return Arrays.copyOf(line, length);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.search;
+
+import java.util.Arrays;
+
+/**
+ * Outcome of a search: the best move, its score and the line of play the search expects to follow it.
+ */
+public class SearchResult {
+
+	private final int move;
+	private final int score;
+	private final int depth;
+	private final int[] principalVariation;
+	private final long nodes;
+
+	/**
+	 * @param move               Best move, packed as in Move; zero if there are no legal moves
+	 * @param score              Score of the best move, from the point of view of the side to move
+	 * @param depth              Deepest iteration that finished
+	 * @param principalVariation Expected line of play, starting with the best move
+	 * @param nodes              Number of positions visited
+	 */
+	public SearchResult(int move, int score, int depth, int[] principalVariation, long nodes) {
+		this.move = move;
+		this.score = score;
+		this.depth = depth;
+		this.principalVariation = principalVariation;
+		this.nodes = nodes;
+	}
+
+	public int getMove() {
+		return move;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return Copy of the principal variation
+	 */
+	public int[] getPrincipalVariation() {
+		return principalVariation.clone();
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return Whether the score is a proven win or loss rather than an estimate
+	 */
+	public boolean isDecisive() {
+		return Math.abs(score) > AlphaBetaSearch.WIN - AlphaBetaSearch.MAX_PLY;
+	}
+
+	@Override
+	public String toString() {
+		return "move " + move + ", score " + score + ", depth " + depth + ", pv " + Arrays.toString(principalVariation)
+				+ ", " + nodes + " nodes";
+	}
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.search;
+
+import strategy.Piece;
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.MoveGenerator;
+import strategy.crmyers.beta.PieceDefined;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Exact solver. Beta Strategy games can't last longer than the rule set's turn limit and can't be drawn, so every
+ * position is a win for one side or the other; this works out which, by searching the whole game tree.
+ * <p>
+ * The tree is an AND/OR tree: a position is won if any move leads to a position lost for the opponent, and a node
+ * stops searching as soon as it finds one. Near the root, every move gets its own fork/join task, working on its own
+ * copy of the board, so idle threads steal whole subtrees; once a task finds a winning move, the rest of its subtrees
+ * notice and give up. Deeper down, each task searches on its own board with makeMove()/unmakeMove().
+ * <p>
+ * Solved positions are cached in a TranspositionTable shared by all threads, with a score of +1 (won for the side to
+ * move) or -1 (lost). Those scores mean nothing to AlphaBetaSearch, so don't share a table between the two. Entries
+ * stay valid between solves, so solving positions from the same game one after another gets cheaper as it goes. That
+ * only works because a position's value doesn't depend on how it was reached, so rule sets with the repetition rule,
+ * where it does, are turned away.
+ */
+public class Solver {
+
+	/**
+	 * Number of plies at the top of the tree that get a task per move; below that, each task works alone.
+	 */
+	private static final int SPLIT_PLIES = 2;
+
+	/**
+	 * Longest turn limit the solver takes on; the table only has room for 255 plies of depth
+	 */
+	public static final int MAX_TURNS = 127;
+
+	private static final int CHECK_INTERVAL = 4095;
+
+	// Packed results: move in the low bits, plus a flag if the side to move wins. Losing positions keep a move too, so
+	// the principal variation can be followed to the end of the game.
+	private static final int MOVE_MASK = 0xFFFF;
+	private static final int WON = 1 << 16;
+	private static final int CANCELLED = -1;
+
+	private final TranspositionTable table;
+	private final ForkJoinPool pool;
+	private final LongAdder nodes;
+
+	/**
+	 * Solver with its own 1M-entry table, running on the common fork/join pool.
+	 */
+	public Solver() {
+		this(new TranspositionTable(1 << 20), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param table Table to cache solved positions in; may be reused between solvers, but not with AlphaBetaSearch
+	 * @param pool  Pool to search on
+	 */
+	public Solver(TranspositionTable table, ForkJoinPool pool) {
+		this.table = table;
+		this.pool = pool;
+		nodes = new LongAdder();
+	}
+
+	/**
+	 * Solve a game's current position.
+	 *
+	 * @param game Game to solve; not changed
+	 * @return Solution; see solve(BitBoard)
+	 */
+	public SearchResult solve(BetaGame game) {
+		if (game.isOver())
+			return new SearchResult(0, 0, 0, new int[0], 0);
+		return solve(game.copyBoard());
+	}
+
+	/**
+	 * Solve a position. Only one solve should run on a solver at a time, though solvers may share a table.
+	 *
+	 * @param board Position to solve; not changed
+	 * @return Solution: the score is AlphaBetaSearch.WIN if the side to move wins and -WIN if it loses, the move is a
+	 * winning move (or, when lost, just some legal move; zero if there are none), the depth is the number of plies
+	 * left in the game, and the principal variation is the line the solver would play for both sides
+	 * @throws IllegalArgumentException Thrown if the board's rules allow more than MAX_TURNS turns, or have the
+	 *                                  repetition rule
+	 */
+	public SearchResult solve(BitBoard board) {
+		if (board.getRules().getTurnLimit() > MAX_TURNS)
+			throw new IllegalArgumentException("Can only solve games of up to " + MAX_TURNS + " turns");
+		if (board.getRules().hasRepetitionRule())
+			throw new IllegalArgumentException("Can't solve games with the repetition rule");
+		nodes.reset();
+		final int result = pool.invoke(new Task(new BitBoard(board), null));
+		final int move = result & MOVE_MASK;
+		return new SearchResult(move, (result & WON) != 0 ? AlphaBetaSearch.WIN : -AlphaBetaSearch.WIN,
+				remaining(board), principalVariation(new BitBoard(board)), nodes.sum());
+	}
+
+	/**
+	 * Follow the table's moves from a solved position to the end of the game.
+	 *
+	 * @param board Solved position; used as scratch space
+	 * @return Moves for both sides
+	 */
+	private int[] principalVariation(BitBoard board) {
+		final int[] line = new int[Math.max(remaining(board), 0)];
+		int length = 0;
+		while (length < line.length && board.getTurns() < board.getRules().getTurnLimit()) {
+			final long entry = table.probe(TranspositionTable.key(board));
+			final int move = TranspositionTable.move(entry);
+			if (entry == 0 || move == 0)
+				break;
+
+			line[length++] = move;
+			final PieceDefined.MoveResult result = board.makeMove(move);
+			if (result == PieceDefined.MoveResult.RED_WINS || result == PieceDefined.MoveResult.BLUE_WINS)
+				break;
+		}
+		return Arrays.copyOf(line, length);
+	}
+
+	/**
+	 * @param board Board to look at
+	 * @return Number of plies left before the turn limit ends the game
+	 */
+	private static int remaining(BitBoard board) {
+		return 2 * (board.getRules().getTurnLimit() - board.getTurns()) - (board.getColorTurn() == BLUE ? 1 : 0);
+	}
+
+	/**
+	 * @param board Board to look at
+	 * @param move  Packed move
+	 * @return Whether the move takes the opponent's flag, which wins on the spot no matter what makes the capture
+	 */
+	private static boolean takesFlag(BitBoard board, int move) {
+		final Piece.PieceColor opponent = board.getColorTurn() == RED ? BLUE : RED;
+		return (board.getPieces(opponent, Piece.PieceType.FLAG) & (1L << Move.to(move))) != 0;
+	}
+
+	/**
+	 * Cache a solved position.
+	 *
+	 * @param key   Table key of the position
+	 * @param board Board, positioned at the solved position
+	 * @param won   Whether the side to move wins
+	 * @param move  Winning move, or any move if lost
+	 * @return Packed result
+	 */
+	private int store(long key, BitBoard board, boolean won, int move) {
+		table.store(key, move, won ? 1 : -1, remaining(board), TranspositionTable.EXACT);
+		return (won ? WON : 0) | move;
+	}
+
+	/**
+	 * Solve a position.
+	 *
+	 * @param board Board to solve on; left as it was found
+	 * @param task  Task doing the solving, for node counts and cancellation
+	 * @param moves Move lists, one per ply below the task's root
+	 * @param ply   Plies below the task's root
+	 * @return Packed result, or CANCELLED if the result isn't needed any more
+	 */
+	private int solve(BitBoard board, Task task, int[][] moves, int ply) {
+		if ((++task.nodes & CHECK_INTERVAL) == 0 && task.cancelled())
+			task.aborted = true;
+		if (task.aborted)
+			return CANCELLED;
+
+		// Red wins once the turn limit is up
+		if (board.getTurns() >= board.getRules().getTurnLimit())
+			return board.getColorTurn() == RED ? WON : 0;
+
+		final long key = TranspositionTable.key(board);
+		final long entry = table.probe(key);
+		if (entry != 0)
+			return (TranspositionTable.score(entry) > 0 ? WON : 0) | TranspositionTable.move(entry);
+
+		// No moves means the side to move has lost
+		final int[] list = moves[ply];
+		final int count = MoveGenerator.generate(board, board.getColorTurn(), list);
+		if (count == 0)
+			return store(key, board, false, 0);
+
+		// Taking the flag is the cheapest win there is, so look for it before anything else
+		for (int i = 0; i < count; i++) {
+			if (takesFlag(board, list[i]))
+				return store(key, board, true, list[i]);
+		}
+
+		if (ply == 0 && task.level < SPLIT_PLIES)
+			return split(board, task, key, list, count);
+
+		for (int i = 0; i < count; i++) {
+			final PieceDefined.MoveResult result = board.makeMove(list[i]);
+			final int child = result == PieceDefined.MoveResult.RED_WINS || result == PieceDefined.MoveResult.BLUE_WINS ?
+					0 : solve(board, task, moves, ply + 1);
+			board.unmakeMove();
+			if (child == CANCELLED)
+				return CANCELLED;
+			if ((child & WON) == 0)
+				return store(key, board, true, list[i]);
+		}
+		return store(key, board, false, list[0]);
+	}
+
+	/**
+	 * Solve every move in its own task.
+	 *
+	 * @param board Board to solve
+	 * @param task  Task doing the solving; its subtasks give up once it has found a win
+	 * @param key   Table key of the position
+	 * @param list  Legal moves
+	 * @param count Number of legal moves
+	 * @return Packed result, or CANCELLED if the result isn't needed any more
+	 */
+	private int split(BitBoard board, Task task, long key, int[] list, int count) {
+		final List<Task> children = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			final BitBoard child = new BitBoard(board);
+			child.makeMove(list[i]);
+			children.add(new Task(child, task));
+		}
+		for (int i = count - 1; i >= 0; i--)
+			children.get(i).fork();
+
+		// Join in order, stopping the rest at the first win; they still get joined, so none outlive this call
+		int winner = -1;
+		for (int i = 0; i < count; i++) {
+			final int child = children.get(i).join();
+			if (winner < 0 && child != CANCELLED && (child & WON) == 0) {
+				winner = i;
+				task.done = true;
+			}
+		}
+
+		if (winner >= 0)
+			return store(key, board, true, list[winner]);
+		if (task.cancelled())
+			return CANCELLED;
+		return store(key, board, false, list[0]);
+	}
+
+	/**
+	 * Solves one subtree
+	 */
+	private final class Task extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+
+		private final BitBoard board;
+		private final Task parent;
+		private final int level;
+
+		// Set once this task has its answer, to stop its subtasks
+		private volatile boolean done;
+
+		// Only touched by the thread running the task
+		private long nodes;
+		private boolean aborted;
+
+		private Task(BitBoard board, Task parent) {
+			this.board = board;
+			this.parent = parent;
+			level = parent == null ? 0 : parent.level + 1;
+		}
+
+		/**
+		 * @return Whether some task above this one already has its answer, making this one pointless
+		 */
+		private boolean cancelled() {
+			for (Task task = parent; task != null; task = task.parent) {
+				if (task.done)
+					return true;
+			}
+			return false;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (cancelled())
+				return CANCELLED;
+			final int result = solve(board, this, new int[Math.max(remaining(board), 0) + 1][MoveGenerator.MAX_MOVES], 0);
+			Solver.this.nodes.add(nodes);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.search;
+
+import strategy.crmyers.beta.BitBoard;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table, keyed by Zobrist key (see BitBoard.getKey()), meant to be shared by any number of
+ * search threads without locking.
+ * <p>
+ * Each entry is two longs: the key XORed with the data, and the data itself. A reader only accepts an entry if XORing
+ * the two gives back the key it's looking for, so an entry torn by two threads writing at once just reads as a miss
+ * instead of handing back another position's data. Entries are replaced depth-first: a shallower result never
+ * overwrites a deeper one for a different position, unless the deeper one is left over from an older search.
+ * <p>
+ * Probing returns the packed data word (zero on a miss); use the static accessors to pull it apart.
+ */
+public class TranspositionTable {
+
+	// Bound types; zero is reserved for "no entry"
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;
+	public static final int UPPER = 3;
+
+	// Data word layout: move (16 bits), score (16), depth (8), bound (2), generation (8)
+	private static final int SCORE_SHIFT = 16;
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int GENERATION_SHIFT = 42;
+
+	private final long[] table;
+	private final int mask;
+	private volatile int generation;
+
+	/**
+	 * Create a table.
+	 *
+	 * @param entries Number of entries; rounded down to a power of two
+	 */
+	public TranspositionTable(int entries) {
+		if (entries < 1)
+			throw new IllegalArgumentException("Transposition table needs at least one entry");
+		final int size = Integer.highestOneBit(entries);
+		table = new long[2 * size];
+		mask = size - 1;
+		generation = 0;
+	}
+
+	/**
+	 * @return Number of entries in the table
+	 */
+	public int size() {
+		return mask + 1;
+	}
+
+	/**
+	 * Mark the start of a new search; entries from earlier searches become fair game for replacement.
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	/**
+	 * Wipe the table.
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+	}
+
+	/**
+	 * Look up a position.
+	 *
+	 * @param key Zobrist key of the position
+	 * @return Packed entry, or zero if the position isn't in the table
+	 */
+	public long probe(long key) {
+		final int slot = 2 * (int) (key & mask);
+		final long data = table[slot + 1];
+		return (table[slot] ^ data) == key ? data : 0;
+	}
+
+	/**
+	 * Store a search result.
+	 *
+	 * @param key   Zobrist key of the position
+	 * @param move  Best move found, packed as in Move; zero if none
+	 * @param score Score of the position
+	 * @param depth Depth the position was searched to
+	 * @param bound EXACT, LOWER or UPPER
+	 */
+	public void store(long key, int move, int score, int depth, int bound) {
+		final int slot = 2 * (int) (key & mask);
+		final long oldData = table[slot + 1];
+		final boolean samePosition = (table[slot] ^ oldData) == key;
+		if (!samePosition && oldData != 0 && depth(oldData) > depth && generation(oldData) == generation)
+			return;
+
+		// Keep the old best move around if we don't have one of our own
+		if (move == 0 && samePosition)
+			move = move(oldData);
+
+		final long data = (move & 0xFFFFL)
+				| ((score & 0xFFFFL) << SCORE_SHIFT)
+				| ((long) Math.min(Math.max(depth, 0), 0xFF) << DEPTH_SHIFT)
+				| ((long) bound << BOUND_SHIFT)
+				| ((long) generation << GENERATION_SHIFT);
+		table[slot] = key ^ data;
+		table[slot + 1] = data;
+	}
+
+	/**
+	 * Key for a position. The turn count matters because of the turn limit, so it's mixed into the board's Zobrist
+	 * key; the side to move is already part of it.
+	 *
+	 * @param board Board to get the key of
+	 * @return Key for the table
+	 */
+	public static long key(BitBoard board) {
+		return board.getKey() ^ (board.getTurns() * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * @param entry Packed entry
+	 * @return Best move stored in the entry
+	 */
+	public static int move(long entry) {
+		return (int) (entry & 0xFFFF);
+	}
+
+	/**
+	 * @param entry Packed entry
+	 * @return Score stored in the entry
+	 */
+	public static int score(long entry) {
+		return (short) (entry >>> SCORE_SHIFT);
+	}
+
+	/**
+	 * @param entry Packed entry
+	 * @return Depth stored in the entry
+	 */
+	public static int depth(long entry) {
+		return (int) ((entry >>> DEPTH_SHIFT) & 0xFF);
+	}
+
+	/**
+	 * @param entry Packed entry
+	 * @return Bound type stored in the entry; zero for a miss
+	 */
+	public static int bound(long entry) {
+		return (int) ((entry >>> BOUND_SHIFT) & 3);
+	}
+
+	/**
+	 * @param entry Packed entry
+	 * @return Search generation the entry was stored in
+	 */
+	private static int generation(long entry) {
+		return (int) ((entry >>> GENERATION_SHIFT) & 0xFF);
+	}
+}
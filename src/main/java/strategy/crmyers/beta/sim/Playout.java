@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.sim;
+
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.MoveGenerator;
+import strategy.crmyers.beta.PieceDefined;
+import strategy.crmyers.beta.RepetitionHistory;
+
+import java.util.SplittableRandom;
+
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Plays a game out to the end on a BitBoard, following the same rules as BetaGame: capturing the flag wins, a player
+ * with no legal moves loses, and red wins once the rule set's turn limit has gone by. Under the repetition rule, moves
+ * that break the two-square rule are never picked, so a player left with only those loses, just as it would by making
+ * one in BetaGame. Rule sets without a turn limit can shuffle forever, so a game still going after MAX_PLIES moves is
+ * called a draw. The board is stepped forwards with makeMove() and put back with unmakeMove(), and the last few moves
+ * are kept in locals, so nothing is copied or allocated.
+ * <p>
+ * Results are packed into an int: the outcome in the low two bits, the number of moves made above them.
+ */
+public final class Playout {
+
+	public static final int RED_WINS = 0;
+	public static final int BLUE_WINS = 1;
+	public static final int DRAW = 2;
+
+	/**
+	 * Most moves (plies) a game is played for before it's called a draw; far longer than any turn limit Beta allows
+	 */
+	public static final int MAX_PLIES = 4096;
+
+	private Playout() {
+	}
+
+	/**
+	 * Play a game out from the board's current position and then restore it, as if the game had started there.
+	 *
+	 * @param board  Board to play on
+	 * @param policy Policy picking moves for both sides
+	 * @param random Random number generator for the policy
+	 * @param moves  Scratch array of at least MoveGenerator.MAX_MOVES entries
+	 * @return Packed result
+	 */
+	public static int play(BitBoard board, Policy policy, SplittableRandom random, int[] moves) {
+		return play(board, null, policy, random, moves);
+	}
+
+	/**
+	 * Play a game out from the board's current position and then restore it.
+	 *
+	 * @param board       Board to play on
+	 * @param repetitions History of the game up to the position, for the two-square rule; only its last four plies
+	 *                    are looked at, and it's not changed. Null if the game starts here.
+	 * @param policy      Policy picking moves for both sides
+	 * @param random      Random number generator for the policy
+	 * @param moves       Scratch array of at least MoveGenerator.MAX_MOVES entries
+	 * @return Packed result
+	 */
+	public static int play(BitBoard board, RepetitionHistory repetitions, Policy policy, SplittableRandom random,
+	                       int[] moves) {
+		final int start = board.getDepth();
+		final boolean repetition = board.getRules().hasRepetitionRule();
+		int back1 = Move.NONE, back2 = Move.NONE, back3 = Move.NONE, back4 = Move.NONE;
+		if (repetitions != null) {
+			back1 = repetitions.getMove(1);
+			back2 = repetitions.getMove(2);
+			back3 = repetitions.getMove(3);
+			back4 = repetitions.getMove(4);
+		}
+		int outcome;
+		while (true) {
+			if (board.getTurns() >= board.getRules().getTurnLimit()) {
+				outcome = RED_WINS;
+				break;
+			}
+			if (board.getDepth() - start >= MAX_PLIES) {
+				outcome = DRAW;
+				break;
+			}
+
+			int count = MoveGenerator.generate(board, board.getColorTurn(), moves);
+			if (repetition)
+				count = dropRepeats(moves, count, back2, back4);
+			if (count == 0) {
+				outcome = board.getColorTurn() == RED ? BLUE_WINS : RED_WINS;
+				break;
+			}
+
+			final int move = policy.choose(board, moves, count, random);
+			back4 = back3;
+			back3 = back2;
+			back2 = back1;
+			back1 = Move.squares(move);
+			final PieceDefined.MoveResult result = board.makeMove(move);
+			if (result == PieceDefined.MoveResult.RED_WINS) {
+				outcome = RED_WINS;
+				break;
+			} else if (result == PieceDefined.MoveResult.BLUE_WINS) {
+				outcome = BLUE_WINS;
+				break;
+			}
+		}
+
+		final int length = board.getDepth() - start;
+		while (board.getDepth() > start)
+			board.unmakeMove();
+		return (length << 2) | outcome;
+	}
+
+	/**
+	 * Take the moves that break the two-square rule out of a list, keeping the rest in order.
+	 *
+	 * @param moves    Moves
+	 * @param count    Number of moves in the list
+	 * @param twoBack  Squares of the side to move's last move
+	 * @param fourBack Squares of the side to move's move before that
+	 * @return Number of moves left
+	 */
+	private static int dropRepeats(int[] moves, int count, int twoBack, int fourBack) {
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (!RepetitionHistory.repeats(moves[i], twoBack, fourBack))
+				moves[kept++] = moves[i];
+		}
+		return kept;
+	}
+
+	/**
+	 * @param result Packed result
+	 * @return RED_WINS, BLUE_WINS or DRAW
+	 */
+	public static int outcome(int result) {
+		return result & 3;
+	}
+
+	/**
+	 * @param result Packed result
+	 * @return Number of moves (plies) the game lasted
+	 */
+	public static int length(int result) {
+		return result >>> 2;
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.sim;
+
+import strategy.crmyers.beta.BitBoard;
+
+import java.util.SplittableRandom;
+
+/**
+ * Strategy for picking moves during a playout.
+ */
+public interface Policy {
+
+	/**
+	 * Picks uniformly at random.
+	 */
+	Policy RANDOM = (board, moves, count, random) -> moves[random.nextInt(count)];
+
+	/**
+	 * Pick a move. Called once per ply, so implementations shouldn't allocate.
+	 *
+	 * @param board  Board, with the side to move given by board.getColorTurn(); must be left as it was found
+	 * @param moves  Legal moves, packed as in Move
+	 * @param count  Number of legal moves; always at least one
+	 * @param random Random number generator belonging to the calling thread
+	 * @return The move to make, one of the given moves
+	 */
+	int choose(BitBoard board, int[] moves, int count, SplittableRandom random);
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.sim;
+
+/**
+ * Totals from a batch of simulated games.
+ */
+public class SimulationResult {
+
+	private final long games;
+	private final long redWins;
+	private final long blueWins;
+	private final long draws;
+	private final long moves;
+
+	/**
+	 * @param games    Number of games played
+	 * @param redWins  Number of games red won
+	 * @param blueWins Number of games blue won
+	 * @param draws    Number of drawn games
+	 * @param moves    Total number of moves (plies) across all games
+	 */
+	public SimulationResult(long games, long redWins, long blueWins, long draws, long moves) {
+		this.games = games;
+		this.redWins = redWins;
+		this.blueWins = blueWins;
+		this.draws = draws;
+		this.moves = moves;
+	}
+
+	/**
+	 * Add two sets of totals together.
+	 *
+	 * @param other Other totals
+	 * @return Combined totals
+	 */
+	public SimulationResult combine(SimulationResult other) {
+		return new SimulationResult(games + other.games, redWins + other.redWins, blueWins + other.blueWins,
+				draws + other.draws, moves + other.moves);
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public long getRedWins() {
+		return redWins;
+	}
+
+	public long getBlueWins() {
+		return blueWins;
+	}
+
+	/**
+	 * @return Number of drawn games; Beta Strategy games always have a winner, so this is zero for them.
+	 */
+	public long getDraws() {
+		return draws;
+	}
+
+	public long getMoves() {
+		return moves;
+	}
+
+	/**
+	 * @return Fraction of games red won
+	 */
+	public double getRedWinRate() {
+		return games == 0 ? 0 : (double) redWins / games;
+	}
+
+	/**
+	 * @return Fraction of games blue won
+	 */
+	public double getBlueWinRate() {
+		return games == 0 ? 0 : (double) blueWins / games;
+	}
+
+	/**
+	 * @return Fraction of games drawn
+	 */
+	public double getDrawRate() {
+		return games == 0 ? 0 : (double) draws / games;
+	}
+
+	/**
+	 * @return Mean number of moves (plies) per game
+	 */
+	public double getMeanLength() {
+		return games == 0 ? 0 : (double) moves / games;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d games: red %.4f, blue %.4f, draw %.4f, mean length %.2f moves",
+				games, getRedWinRate(), getBlueWinRate(), getDrawRate(), getMeanLength());
+	}
+}
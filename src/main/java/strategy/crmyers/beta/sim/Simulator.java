@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.sim;
+
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.MoveGenerator;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Headless, parallel game simulator. Plays a large number of games from one starting setup across every core with
+ * fork/join, and totals up who won and how long games took.
+ * <p>
+ * Runs are reproducible: the range of games is split in half recursively, and every split hands the new half a
+ * SplittableRandom split off its parent's. The tree of splits depends only on the number of games, so the same seed
+ * gives the same totals no matter how many threads run it or which thread steals what.
+ */
+public class Simulator {
+
+	/**
+	 * Ranges of games at most this big are played on one thread instead of being split further.
+	 */
+	private static final long LEAF_GAMES = 1024;
+
+	private final BitBoard setup;
+	private final Policy policy;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Simulate random games on the common fork/join pool.
+	 *
+	 * @param setup Starting board; red moves first
+	 */
+	public Simulator(strategy.Board setup) {
+		this(setup, Policy.RANDOM, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param setup  Starting board; red moves first. A BitBoard keeps its rule set, anything else is played under Beta's
+	 * @param policy Policy picking moves for both sides; shared between threads, so it must be thread-safe
+	 * @param pool   Pool to run games on
+	 */
+	public Simulator(strategy.Board setup, Policy policy, ForkJoinPool pool) {
+		this.setup = setup instanceof BitBoard ? new BitBoard((BitBoard) setup) : new BitBoard(setup);
+		this.policy = policy;
+		this.pool = pool;
+	}
+
+	/**
+	 * Play games.
+	 *
+	 * @param games Number of games to play
+	 * @param seed  Seed for the whole run
+	 * @return Totals
+	 */
+	public SimulationResult run(long games, long seed) {
+		return pool.invoke(new Batch(0, games, new SplittableRandom(seed)));
+	}
+
+	/**
+	 * A range of games; either splits itself or plays them all.
+	 */
+	private class Batch extends RecursiveTask<SimulationResult> {
+		private static final long serialVersionUID = 1L;
+
+		private final long start;
+		private final long end;
+		private final SplittableRandom random;
+
+		Batch(long start, long end, SplittableRandom random) {
+			this.start = start;
+			this.end = end;
+			this.random = random;
+		}
+
+		@Override
+		protected SimulationResult compute() {
+			if (end - start > LEAF_GAMES) {
+				final long mid = start + (end - start) / 2;
+				final Batch left = new Batch(start, mid, random.split());
+				left.fork();
+				final SimulationResult right = new Batch(mid, end, random).compute();
+				return left.join().combine(right);
+			}
+
+			// Every leaf gets its own board and scratch space; playouts restore the board when they're done.
+			final BitBoard board = new BitBoard(setup);
+			final int[] moves = new int[MoveGenerator.MAX_MOVES];
+			long redWins = 0, blueWins = 0, draws = 0, length = 0;
+			for (long i = start; i < end; i++) {
+				final int result = Playout.play(board, policy, random, moves);
+				length += Playout.length(result);
+				switch (Playout.outcome(result)) {
+					case Playout.RED_WINS:
+						redWins++;
+						break;
+					case Playout.BLUE_WINS:
+						blueWins++;
+						break;
+					default:
+						draws++;
+						break;
+				}
+			}
+			return new SimulationResult(end - start, redWins, blueWins, draws, length);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+package strategy.crmyers.beta.store;
+
+import strategy.Piece;
+import strategy.StrategyGame;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.MoveStatus;
+import strategy.crmyers.beta.PieceDefined;
+import strategy.crmyers.beta.RuleSet;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+
+/**
+ * Packed game events, one int each, so an event log is just a run of ints. The kind lives in the top bits:
+ * <ul>
+ * <li>MOVE: the move (16 bits, see Move), its result (PieceDefined.MoveResult ordinal, so a strike's outcome) and the
+ * color that moved</li>
+ * <li>TURN: a new full turn started; the turn count</li>
+ * <li>ILLEGAL: someone tried an illegal move; the MoveStatus ordinal and the color that tried it</li>
+ * <li>END: the game ended; the StrategyGame.MoveResult ordinal</li>
+ * </ul>
+ * Zero isn't an event, so it can mark "nothing".
+ */
+public final class GameEvent {
+
+	public static final int MOVE = 1;
+	public static final int TURN = 2;
+	public static final int ILLEGAL = 3;
+	public static final int END = 4;
+
+	private static final int KIND_SHIFT = 28;
+	private static final int RESULT_SHIFT = 16;
+	private static final int COLOR_SHIFT = 20;
+	private static final int PAYLOAD_MASK = (1 << RESULT_SHIFT) - 1;
+	private static final PieceDefined.MoveResult[] MOVE_RESULTS = PieceDefined.MoveResult.values();
+	private static final MoveStatus[] STATUSES = MoveStatus.values();
+	private static final StrategyGame.MoveResult[] RESULTS = StrategyGame.MoveResult.values();
+
+	private GameEvent() {
+	}
+
+	/**
+	 * @param color  Color that moved
+	 * @param move   Packed move; flags are dropped
+	 * @param result Result of the move
+	 * @return MOVE event
+	 */
+	public static int move(Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+		return (MOVE << KIND_SHIFT) | (color(color) << COLOR_SHIFT) | (result.ordinal() << RESULT_SHIFT)
+				| Move.squares(move);
+	}
+
+	/**
+	 * @param turns Number of full turns made so far
+	 * @return TURN event
+	 */
+	public static int turn(int turns) {
+		return (TURN << KIND_SHIFT) | (turns & PAYLOAD_MASK);
+	}
+
+	/**
+	 * @param color  Color that tried the move
+	 * @param status Why the move was illegal
+	 * @return ILLEGAL event
+	 */
+	public static int illegal(Piece.PieceColor color, MoveStatus status) {
+		return (ILLEGAL << KIND_SHIFT) | (color(color) << COLOR_SHIFT) | status.ordinal();
+	}
+
+	/**
+	 * @param result Final result
+	 * @return END event
+	 */
+	public static int end(StrategyGame.MoveResult result) {
+		return (END << KIND_SHIFT) | result.ordinal();
+	}
+
+	/**
+	 * @param event Packed event
+	 * @return MOVE, TURN, ILLEGAL or END; anything else means the event is garbage
+	 */
+	public static int kind(int event) {
+		return event >>> KIND_SHIFT;
+	}
+
+	/**
+	 * @param event MOVE event
+	 * @return The move, without flags
+	 */
+	public static int getMove(int event) {
+		return event & PAYLOAD_MASK;
+	}
+
+	/**
+	 * @param event MOVE event
+	 * @return Result of the move
+	 */
+	public static PieceDefined.MoveResult getMoveResult(int event) {
+		return MOVE_RESULTS[(event >>> RESULT_SHIFT) & 0xF];
+	}
+
+	/**
+	 * @param event MOVE or ILLEGAL event
+	 * @return Color that moved or tried to
+	 */
+	public static Piece.PieceColor getColor(int event) {
+		return ((event >>> COLOR_SHIFT) & 1) == 0 ? RED : BLUE;
+	}
+
+	/**
+	 * @param event TURN event
+	 * @return Turn count
+	 */
+	public static int getTurns(int event) {
+		return event & PAYLOAD_MASK;
+	}
+
+	/**
+	 * @param event ILLEGAL event
+	 * @return Why the move was illegal
+	 */
+	public static MoveStatus getStatus(int event) {
+		return STATUSES[event & PAYLOAD_MASK];
+	}
+
+	/**
+	 * @param event END event
+	 * @return Final result
+	 */
+	public static StrategyGame.MoveResult getResult(int event) {
+		return RESULTS[event & PAYLOAD_MASK];
+	}
+
+	/**
+	 * Check that an event read back from disk decodes to something sensible.
+	 *
+	 * @param event Packed event
+	 * @return Whether it's a well-formed event
+	 */
+	public static boolean isValid(int event) {
+		final int payload = event & PAYLOAD_MASK;
+		switch (kind(event)) {
+			case MOVE:
+				return ((event >>> RESULT_SHIFT) & 0xF) < MOVE_RESULTS.length && (event & 0x0FE0C000) == 0;
+			case TURN:
+				return (event & 0x0FFF0000) == 0;
+			case ILLEGAL:
+				return payload < STATUSES.length && (event & 0x0FEF0000) == 0;
+			case END:
+				return payload < RESULTS.length && (event & 0x0FFF0000) == 0;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @param event Packed event
+	 * @param rules Rules of the game the event came from, to turn squares back into rows and columns
+	 * @return Readable description, for logs and debugging
+	 */
+	public static String toString(int event, RuleSet rules) {
+		switch (kind(event)) {
+			case MOVE:
+				return getColor(event) + " " + rules.toString(getMove(event)) + " " + getMoveResult(event);
+			case TURN:
+				return "turn " + getTurns(event);
+			case ILLEGAL:
+				return getColor(event) + " " + getStatus(event);
+			case END:
+				return "end " + getResult(event);
+			default:
+				return "garbage " + Integer.toHexString(event);
+		}
+	}
+
+	private static int color(Piece.PieceColor color) {
+		return color == RED ? 0 : 1;
+	}
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+package strategy.crmyers.beta.store;
+
+import strategy.Piece;
+import strategy.StrategyGame;
+import strategy.crmyers.beta.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Durable store for games in progress: every game gets an append-only event log (see GameEvent) plus a binary snapshot
+ * of its board, so a game can be recovered after a restart by loading the snapshot and replaying only the events
+ * since, instead of the whole game.
+ * <p>
+ * A game "id" is kept in two files. id.snap holds the latest snapshot: a format byte, the number of events it covers
+ * (8 bytes), whether the game was over (1 byte), the position as written by BitBoard.write() and the game's
+ * repetition window as written by RepetitionHistory.write(), so the repetition rule survives a restart. Snapshots
+ * from before the window was saved (format 1) still load, with the window starting afresh. id.log holds the
+ * number of events before its first one (8 bytes), then the events, 4 bytes each. Every few hundred events the
+ * recorder writes a new snapshot and then compacts the log down to nothing; both are replaced with an atomic rename,
+ * and a crash between the two just leaves some already-snapshotted events at the front of the log, which recovery
+ * skips. A torn event at the end of the log (the process died mid-write) is ignored.
+ * <p>
+ * A recorder keeps its game's log open between events, so a game in progress holds one file handle; it's let go when
+ * the game ends, when the game is removed or tracked again, or when the store is closed. Writes go to the OS but
+ * aren't forced to the disk, which is enough to survive the process dying. Only one recorder per id is live at a
+ * time: tracking or recovering an id stops the recorder that had it, which ignores anything its game does after.
+ * <p>
+ * Only BetaGame has the listener hooks a recorder needs, so VariantGame (Delta) games can't be stored yet.
+ */
+public class GameStore implements Closeable {
+
+	/**
+	 * Default number of events between snapshots
+	 */
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 256;
+
+	private static final int FORMAT = 2;
+	private static final int FORMAT_NO_HISTORY = 1;
+	private static final String LOG = ".log";
+	private static final String SNAPSHOT = ".snap";
+	private static final String TEMP = ".tmp";
+	private static final Pattern ID = Pattern.compile("[A-Za-z0-9_-]+");
+
+	private final Path directory;
+	private final int snapshotInterval;
+	private final Map<String, Recorder> recorders;
+
+	/**
+	 * Open a store with the default snapshot interval, creating it if it doesn't exist.
+	 *
+	 * @param directory Directory to keep games in
+	 * @throws IOException Thrown if the directory can't be created
+	 */
+	public GameStore(Path directory) throws IOException {
+		this(directory, DEFAULT_SNAPSHOT_INTERVAL);
+	}
+
+	/**
+	 * Open a store, creating it if it doesn't exist.
+	 *
+	 * @param directory        Directory to keep games in
+	 * @param snapshotInterval Number of events between snapshots; at least one
+	 * @throws IOException Thrown if the directory can't be created
+	 */
+	public GameStore(Path directory, int snapshotInterval) throws IOException {
+		if (snapshotInterval < 1)
+			throw new IllegalArgumentException("Snapshot interval must be at least one event");
+		this.directory = directory;
+		this.snapshotInterval = snapshotInterval;
+		recorders = new ConcurrentHashMap<>();
+		Files.createDirectories(directory);
+	}
+
+	/**
+	 * Start storing a game: write its first snapshot and attach a recorder to it. Replaces anything stored under the
+	 * same id.
+	 *
+	 * @param id   Game id; letters, digits, '_' and '-' only
+	 * @param game Game to store; has to be a BetaGame
+	 * @return The recorder, which is now one of the game's listeners; anything else listening keeps listening
+	 * @throws IOException              Thrown if the game can't be written
+	 * @throws IllegalArgumentException Thrown if the game isn't a BetaGame, e.g. a Delta game from StrategyGameFactory
+	 */
+	public Recorder track(String id, StrategyGame game) throws IOException {
+		checkId(id);
+		if (!(game instanceof BetaGame))
+			throw new IllegalArgumentException("Only BetaGame can be stored; " + game.getClass().getSimpleName()
+					+ " has no listener hooks");
+		final BetaGame beta = (BetaGame) game;
+		final Recorder recorder = new Recorder(id, beta.getTurns(), 0);
+		start(recorder, beta);
+		beta.addListener(recorder);
+		return recorder;
+	}
+
+	/**
+	 * Recover a stored game: load its snapshot, replay the events logged since and attach a recorder so that it
+	 * carries on being stored. The recovered position is snapshotted straight away, which compacts the log and gets
+	 * rid of any torn event at its end before anything is appended after it.
+	 *
+	 * @param id Game id
+	 * @return The game, as of its last logged event
+	 * @throws IOException Thrown if the game isn't stored, can't be read or doesn't replay
+	 */
+	public BetaGame recover(String id) throws IOException {
+		checkId(id);
+		final Snapshot snapshot = readSnapshot(id);
+		final int[] tail = readTail(id, snapshot.events);
+
+		final BitBoard board = snapshot.board;
+		final RepetitionHistory repetitions = snapshot.repetitions;
+		boolean over = snapshot.over;
+		for (int event : tail) {
+			switch (GameEvent.kind(event)) {
+				case GameEvent.MOVE:
+					if (board.makeMove(GameEvent.getMove(event)) != GameEvent.getMoveResult(event))
+						throw new IOException("Game " + id + " doesn't replay: " + GameEvent.toString(event, board.getRules()));
+					repetitions.push(board.getKey(), GameEvent.getMove(event));
+					break;
+				case GameEvent.TURN:
+					if (board.getTurns() != GameEvent.getTurns(event))
+						throw new IOException("Game " + id + " doesn't replay: " + GameEvent.toString(event, board.getRules()));
+					break;
+				case GameEvent.END:
+					over = true;
+					break;
+				default:
+					break;
+			}
+		}
+
+		final BetaGame game = new BetaGame(board, repetitions, over);
+		final Recorder recorder = new Recorder(id, board.getTurns(), snapshot.events + tail.length);
+		start(recorder, game);
+		game.addListener(recorder);
+		return game;
+	}
+
+	/**
+	 * @param id Game id
+	 * @return Events logged since the game's latest snapshot, i.e. what recover() would have to replay
+	 * @throws IOException Thrown if the game isn't stored or can't be read
+	 */
+	public int[] tail(String id) throws IOException {
+		checkId(id);
+		return readTail(id, readSnapshot(id).events);
+	}
+
+	/**
+	 * @return Ids of every stored game, sorted
+	 * @throws IOException Thrown if the directory can't be read
+	 */
+	public List<String> games() throws IOException {
+		final List<String> ids = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SNAPSHOT)) {
+			for (Path file : stream) {
+				final String name = file.getFileName().toString();
+				ids.add(name.substring(0, name.length() - SNAPSHOT.length()));
+			}
+		}
+		ids.sort(null);
+		return ids;
+	}
+
+	/**
+	 * Forget a game, e.g. once it's finished and archived.
+	 *
+	 * @param id Game id
+	 * @throws IOException Thrown if the files can't be deleted
+	 */
+	public void remove(String id) throws IOException {
+		checkId(id);
+		final Recorder recorder = recorders.remove(id);
+		if (recorder != null)
+			recorder.close();
+		Files.deleteIfExists(directory.resolve(id + SNAPSHOT));
+		Files.deleteIfExists(directory.resolve(id + LOG));
+	}
+
+	/**
+	 * Stop every recorder, closing the logs they have open. Games carry on, but aren't stored any more.
+	 *
+	 * @throws IOException Thrown if a log can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (String id : recorders.keySet()) {
+			final Recorder recorder = recorders.remove(id);
+			try {
+				if (recorder != null)
+					recorder.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Write a new recorder's first snapshot, then make it the id's live recorder and stop the one before it.
+	 *
+	 * @param recorder Recorder
+	 * @param game     Game it's about to record
+	 * @throws IOException Thrown if the snapshot can't be written, or the old recorder's log can't be closed
+	 */
+	private void start(Recorder recorder, BetaGame game) throws IOException {
+		final Recorder old = recorders.remove(recorder.id);
+		if (old != null)
+			old.close();
+		recorder.snapshot(game);
+		recorders.put(recorder.id, recorder);
+	}
+
+	/**
+	 * Listener that logs a game's events to the store and snapshots the game every few hundred events. Listener
+	 * methods can't throw IOExceptions, so write failures come out as UncheckedIOExceptions on the thread making the
+	 * move.
+	 */
+	public final class Recorder implements GameListener {
+
+		private final String id;
+		private final int[] pending;
+		private final ByteBuffer buffer;
+		private FileChannel log;
+		private boolean closed;
+		private int count;
+		private int turns;
+		private long events;
+		private long snapshotted;
+
+		private Recorder(String id, int turns, long events) {
+			this.id = id;
+			pending = new int[2];
+			buffer = ByteBuffer.allocate(pending.length * Integer.BYTES);
+			closed = false;
+			count = 0;
+			this.turns = turns;
+			this.events = events;
+			snapshotted = events;
+		}
+
+		/**
+		 * @return Number of events logged for the game, ever
+		 */
+		public long getEvents() {
+			return events;
+		}
+
+		@Override
+		public void moveMade(BetaGame game, Piece.PieceColor color, int move, PieceDefined.MoveResult result) {
+			pending[count++] = GameEvent.move(color, move, result);
+			if (game.getTurns() != turns) {
+				turns = game.getTurns();
+				pending[count++] = GameEvent.turn(turns);
+			}
+			flush(game);
+		}
+
+		@Override
+		public void illegalMove(BetaGame game, Piece.PieceColor color, MoveStatus status) {
+			pending[count++] = GameEvent.illegal(color, status);
+			flush(game);
+		}
+
+		@Override
+		public void gameOver(BetaGame game, StrategyGame.MoveResult result) {
+			pending[count++] = GameEvent.end(result);
+			flush(game);
+		}
+
+		/**
+		 * @return Whether the recorder has stopped, because its game ended or the store let go of it
+		 */
+		public synchronized boolean isClosed() {
+			return closed;
+		}
+
+		/**
+		 * Append pending events to the log, then snapshot if enough have piled up (or the game just ended). The log is
+		 * opened on the first append after a snapshot, since compacting it swaps in a new file.
+		 *
+		 * @param game Game the events came from
+		 */
+		private synchronized void flush(BetaGame game) {
+			if (closed) {
+				count = 0;
+				return;
+			}
+			try {
+				buffer.clear();
+				for (int i = 0; i < count; i++)
+					buffer.putInt(pending[i]);
+				buffer.flip();
+				if (log == null)
+					log = FileChannel.open(directory.resolve(id + LOG), StandardOpenOption.WRITE,
+							StandardOpenOption.APPEND);
+				while (buffer.hasRemaining())
+					log.write(buffer);
+				events += count;
+				count = 0;
+
+				if (events - snapshotted >= snapshotInterval || game.isOver())
+					snapshot(game);
+				if (game.isOver()) {
+					close();
+					recorders.remove(id, this);
+				}
+			} catch (IOException e) {
+				count = 0;
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * Write a snapshot of the game as of every event logged so far, then compact the log.
+		 *
+		 * @param game Game to snapshot
+		 * @throws IOException Thrown if either file can't be written
+		 */
+		private synchronized void snapshot(BetaGame game) throws IOException {
+			closeLog();
+			final BitBoard board = game.copyBoard();
+			final RepetitionHistory repetitions = game.copyRepetitions();
+			final boolean over = game.isOver();
+			replace(directory.resolve(id + SNAPSHOT), out -> {
+				out.writeByte(FORMAT);
+				out.writeLong(events);
+				out.writeBoolean(over);
+				board.write(out);
+				repetitions.write(out);
+			});
+			replace(directory.resolve(id + LOG), out -> out.writeLong(events));
+			snapshotted = events;
+		}
+
+		/**
+		 * Stop recording and close the log. Events after this are ignored.
+		 *
+		 * @throws IOException Thrown if the log can't be closed
+		 */
+		private synchronized void close() throws IOException {
+			closed = true;
+			closeLog();
+		}
+
+		private void closeLog() throws IOException {
+			if (log == null)
+				return;
+			try {
+				log.close();
+			} finally {
+				log = null;
+			}
+		}
+	}
+
+	/**
+	 * Snapshot as read back from disk
+	 */
+	private static class Snapshot {
+		final long events;
+		final boolean over;
+		final BitBoard board;
+		final RepetitionHistory repetitions;
+
+		Snapshot(long events, boolean over, BitBoard board, RepetitionHistory repetitions) {
+			this.events = events;
+			this.over = over;
+			this.board = board;
+			this.repetitions = repetitions;
+		}
+	}
+
+	/**
+	 * Something that writes a file's contents
+	 */
+	private interface Writer {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * Replace a file in one go: write a temporary file next to it, then rename it over the original.
+	 *
+	 * @param file   File to replace
+	 * @param writer Writes the new contents
+	 * @throws IOException Thrown if writing or renaming fails
+	 */
+	private static void replace(Path file, Writer writer) throws IOException {
+		final Path temp = file.resolveSibling(file.getFileName() + TEMP);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			writer.write(out);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private Snapshot readSnapshot(String id) throws IOException {
+		final Path file = directory.resolve(id + SNAPSHOT);
+		if (!Files.exists(file))
+			throw new FileNotFoundException("No stored game " + id);
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+			final int format = in.readUnsignedByte();
+			if (format != FORMAT && format != FORMAT_NO_HISTORY)
+				throw new IOException("Unknown snapshot format " + format + " for game " + id);
+			final long events = in.readLong();
+			final boolean over = in.readBoolean();
+			final BitBoard board = BitBoard.read(in);
+			final RepetitionHistory repetitions;
+			if (format == FORMAT)
+				repetitions = RepetitionHistory.read(in);
+			else {
+				repetitions = new RepetitionHistory();
+				repetitions.push(board.getKey(), Move.NONE);
+			}
+			return new Snapshot(events, over, board, repetitions);
+		}
+	}
+
+	/**
+	 * @param id    Game id
+	 * @param after Number of events covered by the snapshot
+	 * @return Every logged event after the first "after" of them
+	 * @throws IOException Thrown if the log can't be read, is corrupt or doesn't reach back to the snapshot
+	 */
+	private int[] readTail(String id, long after) throws IOException {
+		final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(id + LOG)));
+		if (bytes.remaining() < Long.BYTES)
+			throw new IOException("Truncated event log for game " + id);
+		final long first = bytes.getLong();
+		if (first > after)
+			throw new IOException("Event log for game " + id + " starts after its snapshot");
+
+		// Skip what the snapshot already covers; a partial event at the very end is a torn write, so drop it
+		final long skip = (after - first) * Integer.BYTES;
+		if (skip > bytes.remaining())
+			throw new IOException("Event log for game " + id + " ends before its snapshot");
+		bytes.position(bytes.position() + (int) skip);
+		final int[] tail = new int[bytes.remaining() / Integer.BYTES];
+		for (int i = 0; i < tail.length; i++) {
+			tail[i] = bytes.getInt();
+			if (!GameEvent.isValid(tail[i]))
+				throw new IOException("Corrupt event " + (after + i) + " in the log for game " + id);
+		}
+		return tail;
+	}
+
+	private static void checkId(String id) {
+		if (id == null || !ID.matcher(id).matches())
+			throw new IllegalArgumentException("Bad game id " + id);
+	}
+}
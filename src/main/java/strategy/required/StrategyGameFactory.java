@@ -29,6 +29,8 @@ import strategy.StrategyGame;
 import strategy.StrategyGame.Version;
 import strategy.crmyers.alpha.AlphaGame;
 import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.RuleSet;
+import strategy.crmyers.beta.VariantGame;
 
 /**
  * Factory for creating Strategy games.
@@ -42,6 +44,41 @@ public class StrategyGameFactory {
 				return new AlphaGame();
 			case BETA:
 				return new BetaGame(board);
+			case GAMMA:
+				return makeGame(version, board, RuleSet.GAMMA);
+			case DELTA:
+				return makeGame(version, board, RuleSet.DELTA);
+			default:
+				throw new NotImplementedException(
+						"StrategyGameFactory.makeGame for version " + version);
+		}
+	}
+
+	/**
+	 * Make a game played by a custom rule set. Choke points come from the board, and the setup is checked against
+	 * the rule set's piece counts.
+	 *
+	 * @param version Version of the game the rules are a variant of
+	 * @param board   Starting position
+	 * @param rules   Rules to play by
+	 * @return New game
+	 */
+	public static StrategyGame makeGame(Version version, Board board, RuleSet rules) {
+		switch (version) {
+			case ALPHA:
+				return new AlphaGame();
+			case BETA:
+				rules = rules.withChokes(board);
+				rules.checkLineup(board);
+				return new BetaGame(rules, board);
+			case GAMMA:
+			case DELTA:
+				// Anything that fits into a word plays on the bitboard; only bigger boards need VariantGame
+				rules = rules.withChokes(board);
+				rules.checkLineup(board);
+				if (rules.fitsInWord())
+					return new BetaGame(rules, board);
+				return new VariantGame(rules, board);
 			default:
 				throw new NotImplementedException(
 						"StrategyGameFactory.makeGame for version " + version);
@@ -29,7 +29,15 @@ import org.junit.jupiter.api.Test;
 import strategy.Board;
 import strategy.Piece;
 import strategy.StrategyException;
+import strategy.StrategyGame;
 import strategy.crmyers.beta.pieces.*;
+import strategy.gpollice.testutil.TestBoard;
+import strategy.required.StrategyGameFactory;
+
+import java.io.*;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -87,7 +95,6 @@ class BetaTest {
 	void setup_local() {
 		board = new BetaBoard();
 
-		// These pieces are stateful, so we have to recreate them each time
 		marshal = new Marshal(RED);
 		general = new General(BLUE);
 		colonel = new Colonel(RED);
@@ -206,6 +213,403 @@ class BetaTest {
 		assertThat(realBoard.getSquareTypeAt(5, 5), equalTo(Board.SquareType.NORMAL));
 		assertThat(realBoard.getSquareTypeAt(3, 3), equalTo(Board.SquareType.NORMAL));
 		assertThat(realBoard.getSquareTypeAt(1, 1), equalTo(Board.SquareType.CHOKE));
+
+		// Pieces are shared flyweights, equal to any other piece of the same color and type
+		assertThat(new BetaBoard(mockBoard).getPieceAt(0, 0), is(sameInstance(realBoard.getPieceAt(0, 0))));
+		assertThat(new BitBoard(mockBoard).getPieceAt(5, 5), is(sameInstance(realBoard.getPieceAt(5, 5))));
+		assertThat(realBoard.getPieceAt(5, 5), is(equalTo(new Captain(RED))));
+		assertThat(realBoard.getPieceAt(5, 5), is(not(equalTo(new Captain(BLUE)))));
+	}
+
+	/**
+	 * BitBoard should behave just like BetaBoard from the outside
+	 */
+	@Test
+	void bitBoardSanity() {
+		BitBoard bitBoard = new BitBoard();
+		assertAll("BitBoard bounds sanity",
+				() -> assertThrows(StrategyException.class, () -> bitBoard.getPieceAt(-1, -1)),
+				() -> assertThrows(StrategyException.class, () -> bitBoard.getPieceAt(6, 0)),
+				() -> assertThrows(StrategyException.class, () -> bitBoard.getSquareTypeAt(0, 6)),
+				() -> assertThrows(StrategyException.class, () -> bitBoard.put(m1, -1, 0))
+		);
+
+		bitBoard.put(marshal, 0, 0);
+		bitBoard.put(spy, 5, 5);
+		assertThat(bitBoard.getPieceAt(0, 0), is(equalTo(marshal)));
+		assertThat(bitBoard.getPieceAt(5, 5), is(equalTo(spy)));
+		assertThat(bitBoard.getSquareTypeAt(3, 3), is(equalTo(Board.SquareType.NORMAL)));
+
+		// Copying a BetaBoard should give us the same pieces in the same places
+		board.put(marshal, 0, 0);
+		board.put(spy, 5, 5);
+		assertThat(new BitBoard(board), is(equalTo(bitBoard)));
+		assertThat(new BitBoard(board).toString(), is(equalTo(board.toString())));
+
+		// Replacing and removing pieces has to keep the masks in sync
+		bitBoard.put(general, 0, 0);
+		bitBoard.put(null, 5, 5);
+		assertThat(bitBoard.getPieces(RED, MARSHAL), is(0L));
+		assertThat(bitBoard.getPieces(BLUE, GENERAL), is(1L));
+		assertThat(bitBoard.getOccupied(), is(1L));
+	}
+
+	/**
+	 * Mask-based path and friendly fire checks
+	 */
+	@Test
+	void bitBoardMasks() {
+		BitBoard bitBoard = new BitBoard();
+		bitBoard.put(scout, 0, 0);
+		bitBoard.put(colonel, 0, 3);
+		bitBoard.put(miner, 3, 0);
+
+		assertTrue(bitBoard.isPathClear(0, 0, 0, 3));
+		assertFalse(bitBoard.isPathClear(0, 0, 0, 5));
+		assertTrue(bitBoard.isPathClear(0, 0, 3, 0));
+		assertFalse(bitBoard.isPathClear(0, 0, 5, 0));
+		assertTrue(bitBoard.isFriendly(RED, 0, 3));
+		assertFalse(bitBoard.isFriendly(RED, 3, 0));
+
+		assertThrows(StrategyException.class, () -> scout.move(bitBoard, 0, 0, 0, 5));
+		assertThrows(StrategyException.class, () -> scout.move(bitBoard, 0, 0, 0, 3));
+		assertThat(scout.move(bitBoard, 0, 0, 3, 0), is(equalTo(scout.pieceLoss())));
+		assertThrows(StrategyException.class, () -> bomb.move(bitBoard, 0, 0, 1, 0));
+		assertThrows(StrategyException.class, () -> flag.move(bitBoard, 0, 0, 1, 0));
+	}
+
+	/**
+	 * The move generator should produce exactly the moves that PieceDefined.move() accepts
+	 */
+	@Test
+	void moveGenerator() {
+		BitBoard bitBoard = new BitBoard();
+		bitBoard.put(new Flag(RED), 0, 0);
+		bitBoard.put(new Bomb(RED), 1, 0);
+		bitBoard.put(new Scout(RED), 0, 1);
+		bitBoard.put(new Marshal(RED), 2, 2);
+		bitBoard.put(new Scout(RED), 5, 0);
+		bitBoard.put(new Miner(BLUE), 2, 0);
+		bitBoard.put(new Spy(BLUE), 0, 4);
+		bitBoard.put(new Flag(BLUE), 5, 5);
+
+		for (Piece.PieceColor color : Piece.PieceColor.values()) {
+			final int[] moves = new int[MoveGenerator.MAX_MOVES];
+			final int count = MoveGenerator.generate(bitBoard, color, moves);
+
+			int expected = 0;
+			for (int from = 0; from < BitBoard.SQUARES; from++) {
+				final PieceDefined piece = bitBoard.getPieceAt(from / BetaBoard.COLS, from % BetaBoard.COLS);
+				if (piece == null || piece.getPieceColor() != color)
+					continue;
+				for (int to = 0; to < BitBoard.SQUARES; to++) {
+					try {
+						piece.move(bitBoard, from / BetaBoard.COLS, from % BetaBoard.COLS,
+								to / BetaBoard.COLS, to % BetaBoard.COLS);
+					} catch (StrategyException ex) {
+						continue;
+					}
+					expected++;
+
+					boolean found = false;
+					for (int i = 0; i < count; i++)
+						found |= moves[i] == Move.pack(from, to);
+					assertTrue(found, "Missing move " + from + " -> " + to);
+				}
+			}
+			assertThat(count, is(equalTo(expected)));
+		}
+	}
+
+	/**
+	 * Perft: the move generator has to count the same game tree as PieceDefined.move() does, serially, in parallel
+	 * and per root move
+	 */
+	@Test
+	void perft() {
+		TestBoard master = MasterGame.board();
+		BitBoard bitBoard = new BitBoard(master);
+		assertThat(Perft.perft(bitBoard, 0), is(1L));
+		assertThat(Perft.perft(bitBoard, 1), is(5L));
+		assertThat(Perft.perft(bitBoard, 2), is(30L));
+		for (int depth = 1; depth <= 4; depth++)
+			assertThat(Perft.perft(bitBoard, depth), is(referencePerft(bitBoard, depth)));
+
+		// Scouts, bombs, miners and flags in reach
+		BitBoard mixed = new BitBoard();
+		mixed.put(new Flag(RED), 0, 0);
+		mixed.put(new Bomb(RED), 1, 0);
+		mixed.put(new Scout(RED), 0, 1);
+		mixed.put(new Marshal(RED), 2, 2);
+		mixed.put(new Scout(RED), 5, 0);
+		mixed.put(new Miner(BLUE), 2, 0);
+		mixed.put(new Spy(BLUE), 0, 4);
+		mixed.put(new Scout(BLUE), 3, 5);
+		mixed.put(new Flag(BLUE), 5, 5);
+		final long expected = referencePerft(mixed, 4);
+		assertThat(Perft.perft(mixed, 4), is(expected));
+		final ForkJoinPool pool = new ForkJoinPool(3);
+		assertThat(new Perft(pool).count(mixed, 4), is(expected));
+		pool.shutdown();
+		long total = 0;
+		for (Map.Entry<Integer, Long> entry : new Perft().divide(mixed, 4).entrySet()) {
+			mixed.makeMove(entry.getKey());
+			assertThat(entry.getValue(), is(referencePerft(mixed, 3)));
+			mixed.unmakeMove();
+			total += entry.getValue();
+		}
+		assertThat(total, is(expected));
+	}
+
+	/**
+	 * @return Whether either flag is gone
+	 */
+	private static boolean isOver(BitBoard bitBoard) {
+		return bitBoard.getPieces(RED, FLAG) == 0 || bitBoard.getPieces(BLUE, FLAG) == 0;
+	}
+
+	/**
+	 * Slow perft, trying every from/to pair with PieceDefined.move()
+	 */
+	private static long referencePerft(BitBoard bitBoard, int depth) {
+		if (depth == 0)
+			return 1;
+		if (bitBoard.getTurns() >= BetaGame.TURN_LIMIT || isOver(bitBoard))
+			return 0;
+
+		long nodes = 0;
+		for (int from = 0; from < BitBoard.SQUARES; from++) {
+			final PieceDefined piece = bitBoard.getPieceAt(from);
+			if (piece == null || piece.getPieceColor() != bitBoard.getColorTurn())
+				continue;
+			for (int to = 0; to < BitBoard.SQUARES; to++) {
+				try {
+					piece.move(bitBoard, from / BetaBoard.COLS, from % BetaBoard.COLS,
+							to / BetaBoard.COLS, to % BetaBoard.COLS);
+				} catch (StrategyException ex) {
+					continue;
+				}
+				bitBoard.makeMove(Move.pack(from, to));
+				nodes += referencePerft(bitBoard, depth - 1);
+				bitBoard.unmakeMove();
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Packed moves: squares, flags, and the trip through a short
+	 */
+	@Test
+	void moveEncoding() {
+		final int move = RuleSet.BETA.pack(5, 5, 0, 5);
+		assertThat(Move.from(move), is(35));
+		assertThat(Move.to(move), is(5));
+		assertThat(RuleSet.BETA.distance(move), is(5));
+		assertThat(RuleSet.BETA.toString(move), is("(5, 5) -> (0, 5)"));
+
+		// Other geometries number their squares by their own width
+		final RuleSet wide = new RuleSet(7, 9, new BitSet(), 8, false, new int[12]);
+		final int across = wide.pack(1, 8, 1, 0);
+		assertThat(Move.from(across), is(17));
+		assertThat(Move.to(across), is(9));
+		assertThat(wide.distance(across), is(8));
+		assertThat(wide.toString(across), is("(1, 8) -> (1, 0)"));
+
+		final int flagged = Move.withFlags(move, Move.STRIKE | Move.LONG);
+		assertThat(Move.squares(flagged), is(move));
+		assertThat(Move.flags(flagged), is(Move.STRIKE | Move.LONG));
+		assertThat(Move.to(flagged), is(5));
+		assertThat(Move.fromShort(Move.toShort(flagged)), is(flagged));
+		assertThat(Move.NONE, is(Move.pack(0, 0)));
+	}
+
+	/**
+	 * Record a whole game through the listener, write it out and read it back
+	 */
+	@Test
+	void gameRecord() throws java.io.IOException {
+		TestBoard master = MasterGame.board();
+		BetaGame game = new BetaGame(master);
+		GameRecord record = GameRecord.attach(game);
+		for (int i = 0; i < 4; i++) {
+			game.move(1, 1, 2, 1);
+			game.move(4, 2, 3, 2);
+			game.move(2, 1, 1, 1);
+			game.move(3, 2, 4, 2);
+		}
+		assertThat(record.size(), is(16));
+		assertThat(record.getResult(), is(StrategyGame.MoveResult.RED_WINS));
+		assertThat(record.getMove(0), is(RuleSet.BETA.pack(1, 1, 2, 1)));
+		assertThat(record.replay(), is(equalTo(game.copyBoard())));
+
+		final byte[] bytes = record.toBytes();
+		assertThat(bytes.length, is(lessThan(70)));
+		GameRecord copy = GameRecord.fromBytes(bytes);
+		assertThat(copy.size(), is(16));
+		assertThat(copy.getResult(), is(StrategyGame.MoveResult.RED_WINS));
+		assertThat(copy.getSetup(), is(equalTo(record.getSetup())));
+		assertThat(copy.replay(), is(equalTo(game.copyBoard())));
+		assertThat(copy.toBytes(), is(equalTo(bytes)));
+
+		// Strikes, scout runs and choke points survive the trip too
+		BitBoard choked = new BitBoard(1L << 14);
+		choked.put(new Scout(RED), 5, 0);
+		choked.put(new Flag(RED), 5, 5);
+		choked.put(new Sergeant(BLUE), 0, 0);
+		choked.put(new Flag(BLUE), 0, 5);
+		record = new GameRecord(choked);
+		record.add(Move.withFlags(RuleSet.BETA.pack(5, 0, 0, 0), Move.STRIKE | Move.LONG));
+		copy = GameRecord.fromBytes(record.toBytes());
+		assertThat(copy.getSetup().getSquareTypeAt(2, 2), is(Board.SquareType.CHOKE));
+		assertThat(Move.flags(copy.getMove(0)), is(Move.STRIKE | Move.LONG));
+		assertThat(copy.getResult(), is(nullValue()));
+		assertThat(copy.replay().getPieceAt(5, 0), is(instanceOf(Sergeant.class)));
+		assertThrows(java.io.IOException.class, () -> GameRecord.fromBytes(new byte[]{9}));
+
+		// Delta games have no listener hooks to record through
+		final StrategyGame delta = new VariantGame(RuleSet.DELTA, new BetaBoard(RuleSet.DELTA));
+		assertThrows(IllegalArgumentException.class, () -> GameRecord.attach(delta));
+
+		// Move counts past what a short holds still come back whole
+		record = new GameRecord(choked);
+		for (int i = 0; i < 70000; i++)
+			record.add(RuleSet.BETA.pack(5, 0, 4, 0));
+		assertThat(GameRecord.fromBytes(record.toBytes()).size(), is(70000));
+
+		// Format 1 records (fixed two-byte count) are still readable
+		final int countAt = bytes.length - 2 * 16 - 1;
+		final byte[] old = new byte[bytes.length + 1];
+		System.arraycopy(bytes, 0, old, 0, countAt);
+		old[0] = 1;
+		old[countAt + 1] = 16;
+		System.arraycopy(bytes, countAt + 1, old, countAt + 2, 2 * 16);
+		copy = GameRecord.fromBytes(old);
+		assertThat(copy.size(), is(16));
+		assertThat(copy.replay(), is(equalTo(game.copyBoard())));
+	}
+
+	/**
+	 * Making and then unmaking every legal move should always get us back where we started
+	 */
+	@Test
+	void makeUnmake() throws IOException {
+		BitBoard bitBoard = new BitBoard();
+		bitBoard.put(new Marshal(RED), 0, 0);
+		bitBoard.put(new Scout(RED), 0, 5);
+		bitBoard.put(new Spy(RED), 2, 2);
+		bitBoard.put(new Marshal(BLUE), 1, 0);
+		bitBoard.put(new General(BLUE), 2, 3);
+		bitBoard.put(new Flag(BLUE), 5, 5);
+		final String before = bitBoard.toString();
+
+		final int[] moves = new int[MoveGenerator.MAX_MOVES];
+		final int count = MoveGenerator.generate(bitBoard, RED, moves);
+		for (int i = 0; i < count; i++) {
+			final PieceDefined.MoveResult result = bitBoard.makeMove(moves[i]);
+			assertThat(bitBoard.getColorTurn(), is(equalTo(BLUE)));
+			assertThat(bitBoard.unmakeMove(), is(equalTo(result)));
+			assertThat(bitBoard.toString(), is(equalTo(before)));
+			assertThat(bitBoard.getColorTurn(), is(equalTo(RED)));
+		}
+
+		// Draw takes both marshals off the board, and a blue reply finishes the turn
+		assertThat(bitBoard.makeMove(Move.pack(0, 6)), is(equalTo(PieceDefined.MoveResult.STRIKE_DRAW)));
+		assertThat(bitBoard.getOccupied(), is(equalTo(bit(0, 5) | bit(2, 2) | bit(2, 3) | bit(5, 5))));
+		bitBoard.makeMove(RuleSet.BETA.pack(2, 3, 2, 2));
+		assertThat(bitBoard.getTurns(), is(1));
+		assertThat(bitBoard.getPieceAt(2, 2).getPieceType(), is(equalTo(GENERAL)));
+
+		bitBoard.unmakeMove();
+		bitBoard.unmakeMove();
+		assertThat(bitBoard.toString(), is(equalTo(before)));
+		assertThat(bitBoard.getTurns(), is(0));
+		assertThrows(StrategyException.class, bitBoard::unmakeMove);
+
+		// Long games: the turn count survives unmaking and writing out, however big it gets
+		for (int i = 0; i < 35000; i++) {
+			bitBoard.makeMove(RuleSet.BETA.pack(0, 5, 1, 5));
+			bitBoard.makeMove(RuleSet.BETA.pack(2, 3, 3, 3));
+			bitBoard.makeMove(RuleSet.BETA.pack(1, 5, 0, 5));
+			bitBoard.makeMove(RuleSet.BETA.pack(3, 3, 2, 3));
+		}
+		assertThat(bitBoard.getTurns(), is(70000));
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bitBoard.write(new DataOutputStream(bytes));
+		final BitBoard copy = BitBoard.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertThat(copy.getTurns(), is(70000));
+		assertThat(copy, is(equalTo(bitBoard)));
+		for (int i = 0; i < 140000; i++)
+			bitBoard.unmakeMove();
+		assertThat(bitBoard.toString(), is(equalTo(before)));
+		assertThat(bitBoard.getTurns(), is(0));
+	}
+
+	/**
+	 * Zobrist keys have to follow the position no matter how it was reached
+	 */
+	@Test
+	void zobristKeys() {
+		board.put(marshal, 0, 0);
+		board.put(general, 1, 0);
+		board.put(scout, 0, 5);
+		BetaBoard board2 = new BetaBoard(board);
+		assertThat(board2.getKey(), is(equalTo(board.getKey())));
+		assertThat(board2.hashCode(), is(equalTo(board.hashCode())));
+
+		// Moving a piece changes the key, moving it back restores it
+		final long start = board.getKey();
+		board.put(null, 0, 5);
+		board.put(scout, 3, 5);
+		assertThat(board.getKey(), is(not(equalTo(start))));
+		board.put(null, 3, 5);
+		board.put(scout, 0, 5);
+		assertThat(board.getKey(), is(equalTo(start)));
+
+		// Same thing on a BitBoard, where the side to move is part of the key too
+		BitBoard bitBoard = new BitBoard(board);
+		final long bitStart = bitBoard.getKey();
+		assertThat(bitStart, is(equalTo(start)));
+		bitBoard.makeMove(RuleSet.BETA.pack(0, 5, 3, 5));
+		assertThat(bitBoard.getKey(), is(not(equalTo(bitStart))));
+		bitBoard.makeMove(RuleSet.BETA.pack(1, 0, 2, 0));
+
+		// Two moves in, red is to move again, so a fresh copy of the position must have the same key
+		BitBoard copy = new BitBoard(bitBoard);
+		assertThat(copy.getKey(), is(equalTo(bitBoard.getKey())));
+		assertThat(copy, is(equalTo(bitBoard)));
+
+		bitBoard.unmakeMove();
+		bitBoard.unmakeMove();
+		assertThat(bitBoard.getKey(), is(equalTo(bitStart)));
+	}
+
+	/**
+	 * Validation reports why a move is illegal instead of throwing
+	 */
+	@Test
+	void moveValidation() {
+		BitBoard bitBoard = new BitBoard();
+		bitBoard.put(scout, 0, 0);
+		bitBoard.put(bomb, 1, 0);
+		bitBoard.put(marshal, 0, 3);
+		bitBoard.put(general, 3, 3);
+
+		assertThat(bitBoard.validate(0, 0, 0, 2), is(equalTo(MoveStatus.LEGAL)));
+		assertThat(bitBoard.validate(0, 3, 1, 3), is(equalTo(MoveStatus.LEGAL)));
+		assertThat(bitBoard.validate(-1, 0, 0, 0), is(equalTo(MoveStatus.OUT_OF_BOUNDS)));
+		assertThat(bitBoard.validate(0, 3, 0, 6), is(equalTo(MoveStatus.OUT_OF_BOUNDS)));
+		assertThat(bitBoard.validate(2, 2, 2, 3), is(equalTo(MoveStatus.NO_PIECE)));
+		assertThat(bitBoard.validate(3, 3, 2, 3), is(equalTo(MoveStatus.WRONG_COLOR)));
+		assertThat(bitBoard.validate(1, 0, 2, 0), is(equalTo(MoveStatus.IMMOBILE)));
+		assertThat(bitBoard.validate(0, 3, 1, 4), is(equalTo(MoveStatus.DIAGONAL)));
+		assertThat(bitBoard.validate(0, 3, 2, 3), is(equalTo(MoveStatus.TOO_FAR)));
+		assertThat(bitBoard.validate(0, 0, 0, 4), is(equalTo(MoveStatus.BLOCKED)));
+		assertThat(bitBoard.validate(0, 0, 1, 0), is(equalTo(MoveStatus.FRIENDLY_FIRE)));
+
+		// Pieces asked to move on a BitBoard only throw at the very end
+		assertThrows(StrategyException.class, () -> marshal.move(bitBoard, 0, 3, 2, 3));
+		assertThat(general.move(bitBoard, 3, 3, 2, 3), is(equalTo(PieceDefined.MoveResult.OK)));
 	}
 
 	/**
@@ -222,44 +626,29 @@ class BetaTest {
 		assertTrue(PieceDefined.isDiagonal(5, 0, 4, 1));
 		assertTrue(PieceDefined.isDiagonal(0, 5, 1, 4));
 		assertThrows(StrategyException.class, () -> marshal.move(board, 0, 0, 1, 1));
+
+		// Only scouts get to move more than one square at a time
+		assertTrue(PieceDefined.isLong(0, 0, 2, 0));
+		assertFalse(PieceDefined.isLong(0, 0, 0, 1));
+		assertThrows(StrategyException.class, () -> marshal.move(board, 0, 0, 2, 0));
 	}
 
 	/**
-	 * Make sure that piece repetition checking works. Totally not needed for this assignment, but it's simple to
-	 * implement, so why not?
+	 * Movement classes drive both boards: immobile pieces can't move or strike, only sliders go long
 	 */
 	@Test
-	void pieceCheckRepetition() {
-		// Use an anonymous class to define this piece since we really only care about moveRepetition()
-		PieceDefined mobilePiece = new PieceDefined(Piece.PieceColor.BLUE) {
-			@Override
-			public MoveResult move(BetaBoard board, int fr, int fc, int tr, int tc) throws StrategyException {
-				return null;
-			}
-
-			@Override
-			public MoveResult strike(Piece target) {
-				return null;
-			}
-
-			/**
-			 * @return Symbol that represents this piece
-			 */
-			@Override
-			public String toString() {
-				return "--";
-			}
-		};
-
-		// Make two moves to start the repetition, both are valid
-		assertFalse(mobilePiece.moveRepetition(0, 0, 1, 0));
-		assertFalse(mobilePiece.moveRepetition(0, 1, 0, 0));
-
-		//Completing the repetition fails...
-		assertTrue(mobilePiece.moveRepetition(0, 0, 1, 0));
-
-		//...but moving to a different square succeeds
-		assertFalse(mobilePiece.moveRepetition(0, 0, 0, 1));
+	void movementTable() {
+		for (Piece.PieceType type : Piece.PieceType.values()) {
+			final int expected = type == BOMB || type == FLAG ? MovementTable.IMMOBILE :
+					type == SCOUT ? MovementTable.SLIDE : MovementTable.STEP;
+			assertThat(MovementTable.get(type), is(expected));
+		}
+		assertThrows(StrategyException.class, () -> bomb.strike(spy));
+		assertThrows(StrategyException.class, () -> sergeant.move(board, 0, 0, 0, 2));
+		assertThat(scout.move(board, 0, 0, 0, 4), is(PieceDefined.MoveResult.OK));
+		board.put(spy, 0, 2);
+		assertThrows(StrategyException.class, () -> scout.move(board, 0, 0, 0, 4));
+		assertThat(scout.move(board, 0, 0, 0, 2), is(scout.pieceVictory()));
 	}
 
 	/**
@@ -394,6 +783,29 @@ class BetaTest {
 		assertThat(spy.strike(marshal), is(equalTo(spy.pieceVictory())));
 	}
 
+	/**
+	 * The precomputed strike table has to honor every special case
+	 */
+	@Test
+	void strikeTable() {
+		assertThat(StrikeTable.get(BLUE, SPY, MARSHAL), is(equalTo(PieceDefined.MoveResult.STRIKE_BLUE)));
+		assertThat(StrikeTable.get(RED, MARSHAL, SPY), is(equalTo(PieceDefined.MoveResult.STRIKE_RED)));
+		assertThat(StrikeTable.get(RED, MINER, BOMB), is(equalTo(PieceDefined.MoveResult.STRIKE_RED)));
+		assertThat(StrikeTable.get(RED, MARSHAL, BOMB), is(equalTo(PieceDefined.MoveResult.STRIKE_BLUE)));
+		assertThat(StrikeTable.get(BLUE, SCOUT, FLAG), is(equalTo(PieceDefined.MoveResult.BLUE_WINS)));
+		assertThat(StrikeTable.get(BLUE, CAPTAIN, CAPTAIN), is(equalTo(PieceDefined.MoveResult.STRIKE_DRAW)));
+		assertThat(StrikeTable.get(RED, BOMB, SPY), is(nullValue()));
+		assertThat(StrikeTable.get(BLUE, FLAG, SPY), is(nullValue()));
+
+		// The board uses the table directly
+		BitBoard bitBoard = new BitBoard();
+		bitBoard.put(spy, 0, 0);
+		bitBoard.put(marshal, 0, 1);
+		assertThat(bitBoard.makeMove(Move.pack(0, 1)), is(equalTo(PieceDefined.MoveResult.STRIKE_BLUE)));
+		assertThat(bitBoard.getPieceAt(0, 1), is(equalTo(spy)));
+		assertThat(bitBoard.getPieceAt(0, 0), is(nullValue()));
+	}
+
 	/**
 	 * Test bomb movement (or lack thereof)
 	 */
@@ -417,4 +829,202 @@ class BetaTest {
 		// Anything can take a flag
 		assertThat(spy.strike(flag), is(equalTo(PieceDefined.MoveResult.BLUE_WINS)));
 	}
+
+	/**
+	 * Rule sets compile their geometry into masks, survive serialization and drive boards of other sizes
+	 */
+	@Test
+	void ruleSet() throws IOException {
+		BitSet chokes = new BitSet();
+		chokes.set(27);
+		chokes.set(28);
+		RuleSet rules = new RuleSet(8, 8, chokes, 2, false, RuleSet.lineup(FLAG, MARSHAL, SCOUT, SCOUT));
+		assertThat(rules.fitsInWord(), is(true));
+		assertThat(rules.getChokes(), is((1L << 27) | (1L << 28)));
+		assertThat(rules.getBoard(), is(-1L));
+		assertThat(rules.getCount(SCOUT), is(2));
+		assertThat(rules.distance(rules.pack(0, 0, 7, 0)), is(7));
+		assertThat(RuleSet.BETA.getSquares(), is(BitBoard.SQUARES));
+		assertThat(new RuleSet(10, 10, new BitSet(), RuleSet.NO_TURN_LIMIT, true, new int[12]).fitsInWord(),
+				is(false));
+		assertThrows(IllegalArgumentException.class,
+				() -> new BitBoard(new RuleSet(10, 10, new BitSet(), 8, false, new int[12])));
+
+		// Serialization; Beta's rules come back as the shared instance
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		rules.write(new DataOutputStream(bytes));
+		RuleSet.BETA.write(new DataOutputStream(bytes));
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertThat(RuleSet.read(in), is(equalTo(rules)));
+		assertThat(RuleSet.read(in), is(sameInstance(RuleSet.BETA)));
+
+		// A scout in line with the choke points can't slide through them
+		BitBoard bitBoard = new BitBoard(rules);
+		bitBoard.put(new Scout(RED), 3, 0);
+		assertThat(MoveGenerator.generate(bitBoard, RED, new int[MoveGenerator.MAX_MOVES]), is(9));
+		assertThat(bitBoard.validate(3, 0, 3, 7), is(not(equalTo(MoveStatus.LEGAL))));
+		assertThat(bitBoard.validate(3, 0, 7, 0), is(equalTo(MoveStatus.LEGAL)));
+
+		// Whole games, with the rule set's turn limit and lineup
+		TestBoard master = new TestBoard(8, 8);
+		master.initialize(8, 8, master.makeLineup(RED, FLAG, MARSHAL, SCOUT),
+				master.makeLineup(BLUE, FLAG, MARSHAL, SCOUT));
+		RuleSet open = new RuleSet(8, 8, new BitSet(), 2, false, RuleSet.lineup(FLAG, MARSHAL, SCOUT, SCOUT));
+		StrategyGame game = StrategyGameFactory.makeGame(StrategyGame.Version.BETA, master, open);
+		assertThat(game.move(0, 1, 1, 1), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(game.move(7, 6, 6, 6), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(game.move(1, 1, 2, 1), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(game.move(6, 6, 5, 6), is(equalTo(StrategyGame.MoveResult.RED_WINS)));
+
+		RuleSet strict = new RuleSet(8, 8, new BitSet(), 2, false, RuleSet.lineup(FLAG, MARSHAL));
+		assertThrows(StrategyException.class,
+				() -> StrategyGameFactory.makeGame(StrategyGame.Version.BETA, master, strict));
+	}
+
+	/**
+	 * Gamma and Delta: choke points block moves and slides, the repetition rule is enforced, and a side with nothing
+	 * left to move loses as soon as it tries, same as in BetaGame
+	 */
+	@Test
+	void variantGame() {
+		// Delta, with the lakes in the middle of the 10x10 board
+		assertThat(playDelta(3, 2, 6, 2), is(equalTo(StrategyGame.MoveResult.BLUE_WINS)));
+		assertThat(playDelta(3, 2, 4, 2), is(equalTo(StrategyGame.MoveResult.BLUE_WINS)));
+		assertThat(playDelta(3, 2, 3, 9, 6, 0, 7, 0, 3, 9, 9, 9), is(equalTo(StrategyGame.MoveResult.RED_WINS)));
+		assertThat(playDelta(3, 2, 3, 9, 6, 0, 7, 0, 3, 9, 8, 9, 7, 0, 7, 1, 8, 9, 3, 9, 7, 1, 7, 2, 3, 9, 8, 9),
+				is(equalTo(StrategyGame.MoveResult.BLUE_WINS)));
+		assertThat(playDelta(3, 0, 4, 0, 6, 0, 5, 0, 4, 0, 5, 0, 9, 9, 8, 9),
+				is(equalTo(StrategyGame.MoveResult.RED_WINS)));
+
+		// Gamma's choke points sit in the middle of the 6x6 board
+		BetaBoard gamma = new BetaBoard(RuleSet.GAMMA);
+		gamma.put(BetaBoard.makePiece(FLAG, RED), 0, 0);
+		gamma.put(BetaBoard.makePiece(SERGEANT, RED), 1, 2);
+		gamma.put(BetaBoard.makePiece(FLAG, BLUE), 5, 5);
+		gamma.put(BetaBoard.makePiece(SERGEANT, BLUE), 4, 2);
+		StrategyGame game = StrategyGameFactory.makeGame(StrategyGame.Version.GAMMA, gamma);
+		assertThat(game, is(instanceOf(BetaGame.class)));
+		assertThat(game.move(1, 2, 2, 2), is(equalTo(StrategyGame.MoveResult.BLUE_WINS)));
+		assertThat(game.move(1, 2, 1, 3), is(equalTo(StrategyGame.MoveResult.GAME_OVER)));
+
+		gamma.put(BetaBoard.makePiece(FLAG, RED), 0, 1);
+		assertThrows(StrategyException.class, () -> StrategyGameFactory.makeGame(StrategyGame.Version.GAMMA, gamma));
+
+		// Pieces don't police repetition themselves; that's the games' two-square rule, on their RepetitionHistory
+		BetaBoard repeat = new BetaBoard(RuleSet.GAMMA);
+		repeat.put(captain, 0, 0);
+		assertThat(captain.move(repeat, 0, 0, 1, 0), is(equalTo(PieceDefined.MoveResult.OK)));
+		repeat.put(captain, 1, 0);
+		repeat.put(null, 0, 0);
+		assertThat(captain.move(repeat, 1, 0, 0, 0), is(equalTo(PieceDefined.MoveResult.OK)));
+		repeat.put(captain, 0, 0);
+		repeat.put(null, 1, 0);
+		assertThat(captain.move(repeat, 0, 0, 1, 0), is(equalTo(PieceDefined.MoveResult.OK)));
+	}
+
+	/**
+	 * The repetition history: the two-square rule, position counts, popping, and old plies falling out of the window
+	 */
+	@Test
+	void repetitionHistory() {
+		RepetitionHistory history = new RepetitionHistory(4);
+		history.push(1, Move.NONE);
+		history.push(2, Move.pack(0, 6));
+		history.push(3, Move.pack(35, 29));
+		history.push(4, Move.pack(6, 0));
+		assertThat(history.repeatsMove(Move.pack(0, 6)), is(false));
+		history.push(1, Move.pack(29, 35));
+		assertThat(history.size(), is(4));
+		assertThat(history.occurrences(1), is(1));
+		assertThat(history.occurrences(2), is(1));
+		assertThat(history.repeatsMove(Move.withFlags(Move.pack(0, 6), Move.STRIKE)), is(true));
+		assertThat(history.repeatsMove(Move.pack(0, 1)), is(false));
+		history.pop();
+		assertThat(history.occurrences(1), is(1));
+		assertThat(history.occurrences(4), is(1));
+		history.pop();
+		assertThat(history.occurrences(4), is(0));
+		assertThat(new RepetitionHistory(history).occurrences(3), is(1));
+		history.clear();
+		assertThrows(StrategyException.class, history::pop);
+
+		// Searching past a full window and backing out again leaves the window as it was
+		for (int key = 1; key <= 6; key++)
+			history.push(key, Move.NONE);
+		history.push(7, Move.NONE);
+		history.push(8, Move.NONE);
+		assertThat(history.occurrences(3), is(0));
+		assertThat(history.occurrences(4), is(0));
+		history.pop();
+		history.pop();
+		assertThat(history.size(), is(4));
+		assertThat(history.occurrences(3), is(1));
+		assertThat(history.occurrences(4), is(1));
+		assertThat(history.occurrences(2), is(0));
+		history.clear();
+		assertThrows(IllegalArgumentException.class, () -> new RepetitionHistory(6));
+
+		// Games count positions and, when the rules say so, enforce the two-square rule
+		TestBoard master = new TestBoard(6, 6);
+		master.initialize(6, 6, master.makeLineup(RED, FLAG, MARSHAL), master.makeLineup(BLUE, FLAG, MARSHAL));
+		RuleSet repeating = new RuleSet(6, 6, new BitSet(), RuleSet.NO_TURN_LIMIT, true, RuleSet.lineup(FLAG, MARSHAL));
+		BetaGame game = new BetaGame(repeating, master);
+		assertThat(game.move(0, 1, 1, 1), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(game.move(5, 4, 4, 4), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(game.move(1, 1, 0, 1), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(game.getRepetitions(), is(0));
+		assertThat(game.move(4, 4, 5, 4), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(game.getRepetitions(), is(1));
+		assertThat(game.move(0, 1, 1, 1), is(equalTo(StrategyGame.MoveResult.BLUE_WINS)));
+
+		// VariantGame goes by the same history, so both games accept the same moves
+		VariantGame variant = new VariantGame(repeating, master);
+		assertThat(variant.move(0, 1, 1, 1), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(variant.move(5, 4, 4, 4), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(variant.move(1, 1, 0, 1), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(variant.move(4, 4, 5, 4), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(variant.getRepetitions(), is(1));
+		assertThat(variant.move(0, 1, 1, 1), is(equalTo(StrategyGame.MoveResult.BLUE_WINS)));
+
+		// Beta has no repetition rule
+		BetaGame beta = new BetaGame(master);
+		assertThat(beta.move(0, 1, 1, 1), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(beta.move(5, 4, 4, 4), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(beta.move(1, 1, 0, 1), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(beta.move(4, 4, 5, 4), is(equalTo(StrategyGame.MoveResult.OK)));
+		assertThat(beta.move(0, 1, 1, 1), is(equalTo(StrategyGame.MoveResult.OK)));
+	}
+
+	/**
+	 * Tiny, dumb helper to play moves on a sparse Delta board
+	 *
+	 * @param moves From row, from column, to row and to column of each move
+	 * @return Result of the last move
+	 */
+	private static StrategyGame.MoveResult playDelta(int... moves) {
+		BetaBoard delta = new BetaBoard(RuleSet.DELTA);
+		delta.put(BetaBoard.makePiece(FLAG, RED), 0, 0);
+		delta.put(BetaBoard.makePiece(BOMB, RED), 0, 1);
+		delta.put(BetaBoard.makePiece(MARSHAL, RED), 3, 0);
+		delta.put(BetaBoard.makePiece(SCOUT, RED), 3, 2);
+		delta.put(BetaBoard.makePiece(FLAG, BLUE), 9, 9);
+		delta.put(BetaBoard.makePiece(SCOUT, BLUE), 6, 0);
+		StrategyGame game = StrategyGameFactory.makeGame(StrategyGame.Version.DELTA, delta);
+		StrategyGame.MoveResult result = null;
+		for (int i = 0; i < moves.length; i += 4) {
+			assertThat(result, is(anyOf(nullValue(), equalTo(StrategyGame.MoveResult.OK),
+					equalTo(StrategyGame.MoveResult.STRIKE_RED), equalTo(StrategyGame.MoveResult.STRIKE_BLUE))));
+			result = game.move(moves[i], moves[i + 1], moves[i + 2], moves[i + 3]);
+		}
+		return result;
+	}
+
+	/**
+	 * @param row    Row
+	 * @param column Column
+	 * @return Single-bit mask of a location on the Beta board
+	 */
+	private static long bit(int row, int column) {
+		return 1L << RuleSet.BETA.square(row, column);
+	}
 }
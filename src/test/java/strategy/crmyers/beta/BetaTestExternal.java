@@ -26,10 +26,15 @@ package strategy.crmyers.beta;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import strategy.StrategyGame;
+import strategy.crmyers.beta.log.AsyncLog;
 import strategy.crmyers.beta.pieces.*;
 import strategy.required.StrategyGameFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static strategy.Piece.PieceColor.BLUE;
 import static strategy.Piece.PieceColor.RED;
@@ -129,6 +134,16 @@ class BetaTestExternal {
 		assertThat(game.move(5, 0, 5, 4), equalTo(GAME_OVER));
 	}
 
+	/**
+	 * Red tries to move a piece from off the edge of the board, which is just as bad as moving a piece that doesn't
+	 * exist.
+	 */
+	@Test
+	void offTheEdge() {
+		assertThat(game.move(-1, 0, 0, 0), equalTo(BLUE_WINS));
+		assertThat(game.move(0, 3, 0, 2), equalTo(GAME_OVER));
+	}
+
 	/**
 	 * Red and Blue engage in mutual annihilation when Red's marshal unknowingly tries to take out Blue's marshal.
 	 * Blue then fails to understand how movement works and tries to move diagonally, causing an instant Red win.
@@ -168,4 +183,59 @@ class BetaTestExternal {
 		assertThat(game.move(1, 0, 0, 0), equalTo(STRIKE_BLUE));
 		assertThat(game.move(0, 1, 0, 0), equalTo(RED_WINS));
 	}
+
+	/**
+	 * Replay the first test game with an asynchronous log attached; every move and the end of the game should show up
+	 * once the log is closed.
+	 */
+	@Test
+	void asyncLog() {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final AsyncLog log = new AsyncLog(64, new PrintStream(bytes));
+		((BetaGame) game).addListener(log.listener(7));
+
+		game.move(0, 3, 0, 2);
+		game.move(2, 0, 1, 0);
+		game.move(4, 4, 4, 3);
+		game.move(1, 0, 0, 0);
+		log.close();
+
+		final String[] lines = bytes.toString().split("\n");
+		assertThat(lines.length, equalTo(5));
+		assertThat(lines[0], equalTo("Game 7, turn 0, RED: 3 -> 2 STRIKE_RED"));
+		assertThat(lines[4], containsString("game over, BLUE_WINS"));
+		assertThat(log.getDropped(), equalTo(0L));
+
+		// Nothing gets in after the log is closed, but it's counted
+		log.listener(7).illegalMove((BetaGame) game, RED, MoveStatus.NO_PIECE);
+		assertThat(log.getDropped(), equalTo(1L));
+		assertThat(bytes.toString().split("\n").length, equalTo(5));
+	}
+
+	/**
+	 * Games racing the log being closed: every event has to be either printed or counted as dropped
+	 */
+	@Test
+	void asyncLogCloseRace() throws InterruptedException {
+		final int perThread = 20000;
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final AsyncLog log = new AsyncLog(1 << 16, new PrintStream(bytes));
+		final GameListener listener = log.listener(3);
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < perThread; i++)
+					listener.illegalMove((BetaGame) game, RED, MoveStatus.NO_PIECE);
+			});
+			threads[t].start();
+		}
+		Thread.sleep(1);
+		log.close();
+		for (Thread thread : threads)
+			thread.join();
+
+		final String text = bytes.toString();
+		final long printed = text.isEmpty() ? 0 : text.split("\n").length;
+		assertThat(printed + log.getDropped(), equalTo((long) threads.length * perThread));
+	}
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta;
+
+import strategy.StrategyGame;
+import strategy.gpollice.testutil.TestBoard;
+
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+import static strategy.Piece.PieceType.*;
+
+/**
+ * The master tests' starting position and move script, for tests anywhere in the tree that need a real game to chew on
+ */
+public final class MasterGame {
+
+	/**
+	 * The moves from the master tests' redWinsAfterEightTurns; repeating them four times plays the whole game
+	 */
+	public static final int[][] SCRIPT = {{1, 1, 2, 1}, {4, 2, 3, 2}, {2, 1, 1, 1}, {3, 2, 4, 2}};
+
+	private MasterGame() {
+	}
+
+	/**
+	 * @return Fresh board with the master tests' lineup
+	 */
+	public static TestBoard board() {
+		TestBoard setup = new TestBoard(6, 6);
+		setup.initialize(6, 6,
+				setup.makeLineup(RED, SERGEANT, SERGEANT, COLONEL, CAPTAIN, LIEUTENANT, LIEUTENANT,
+						FLAG, MARSHAL, COLONEL, CAPTAIN, LIEUTENANT, SERGEANT),
+				setup.makeLineup(BLUE, MARSHAL, COLONEL, CAPTAIN, SERGEANT, FLAG, LIEUTENANT,
+						LIEUTENANT, LIEUTENANT, SERGEANT, SERGEANT, COLONEL, CAPTAIN));
+		return setup;
+	}
+
+	/**
+	 * Play one move of the script.
+	 *
+	 * @param game  Game to play on
+	 * @param index Number of the move, counting from zero; the script wraps around
+	 * @return Result of the move
+	 */
+	public static StrategyGame.MoveResult play(StrategyGame game, int index) {
+		final int[] move = SCRIPT[index % SCRIPT.length];
+		return game.move(move[0], move[1], move[2], move[3]);
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.GameRecord;
+import strategy.crmyers.beta.MasterGame;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.RuleSet;
+import strategy.crmyers.beta.pieces.Flag;
+import strategy.crmyers.beta.pieces.Marshal;
+import strategy.crmyers.beta.pieces.Sergeant;
+import strategy.crmyers.beta.pieces.Spy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+import static strategy.Piece.PieceType.*;
+
+/**
+ * Tests for the game archive
+ */
+class ArchiveTest {
+
+	/**
+	 * Play the first few moves of the master tests' script, recording them.
+	 *
+	 * @param moves Number of moves to play
+	 * @return Record of the game
+	 */
+	private static GameRecord play(int moves) {
+		BetaGame game = new BetaGame(MasterGame.board());
+		GameRecord record = new GameRecord(game.copyBoard());
+		game.addListener(record);
+		for (int i = 0; i < moves; i++)
+			MasterGame.play(game, i);
+		return record;
+	}
+
+	/**
+	 * Append, read back and look games up by position
+	 */
+	@Test
+	void appendAndFind(@TempDir Path directory) throws IOException {
+		final GameRecord full = play(16);
+		final GameRecord short1 = play(1);
+		try (GameArchive archive = new GameArchive(directory)) {
+			final long first = archive.append(full);
+			final long second = archive.append(short1);
+			assertThat(archive.size(), is(2L));
+			assertThat(archive.read(first).toBytes(), is(equalTo(full.toBytes())));
+			assertThat(archive.read(second).toBytes(), is(equalTo(short1.toBytes())));
+
+			// Both games start from the same place and make the same first move...
+			assertThat(archive.find(full.getSetup()), is(equalTo(new long[]{first, second})));
+			BitBoard board = full.getSetup();
+			board.makeMove(RuleSet.BETA.pack(1, 1, 2, 1));
+			assertThat(archive.find(board), is(equalTo(new long[]{first, second})));
+
+			// ...but only the first one keeps going, and a position it repeats is only listed once
+			board.makeMove(RuleSet.BETA.pack(4, 2, 3, 2));
+			assertThat(archive.find(board), is(equalTo(new long[]{first})));
+			assertThat(archive.find(board.getKey() + 1), is(equalTo(new long[0])));
+			assertThrows(IOException.class, () -> archive.read(first + 1000));
+		}
+	}
+
+	/**
+	 * Small segments fill up and roll over; reopening finds everything again and carries on appending
+	 */
+	@Test
+	void segments(@TempDir Path directory) throws IOException {
+		final GameRecord full = play(16);
+		final long[] offsets = new long[10];
+		try (GameArchive archive = new GameArchive(directory, 256)) {
+			for (int i = 0; i < offsets.length; i++)
+				offsets[i] = archive.append(full);
+			assertThrows(IOException.class, () -> {
+				try (GameArchive tiny = new GameArchive(directory.resolve("tiny"), 16)) {
+					tiny.append(full);
+				}
+			});
+		}
+		assertThat(Files.exists(directory.resolve("games-00003.seg")), is(true));
+		assertThat(Files.exists(directory.resolve("games-00003.idx")), is(true));
+
+		// A saved index that can't be read just gets rebuilt from its segment
+		Files.write(directory.resolve("games-00001.idx"), new byte[]{42});
+
+		final Path last;
+		try (GameArchive archive = new GameArchive(directory, 256)) {
+			assertThat(archive.size(), is(10L));
+			assertThat(archive.find(full.getSetup()), is(equalTo(offsets)));
+			for (long offset : offsets)
+				assertThat(archive.read(offset).replay(), is(equalTo(full.replay())));
+			final long next = archive.append(play(3));
+			last = directory.resolve(String.format("games-%05d.idx", archive.getSegments() - 1));
+			assertThat(archive.find(full.getSetup()).length, is(11));
+			assertThat(archive.read(next).size(), is(3));
+		}
+
+		// The last append is past the end of its saved index, so reopening has to pick it up from the segment
+		Files.copy(last, directory.resolve("stale.idx"));
+		try (GameArchive archive = new GameArchive(directory, 256)) {
+			assertThat(archive.find(full.getSetup()).length, is(11));
+			archive.append(play(3));
+		}
+		Files.move(directory.resolve("stale.idx"), last, StandardCopyOption.REPLACE_EXISTING);
+		try (GameArchive archive = new GameArchive(directory, 256)) {
+			assertThat(archive.size(), is(12L));
+			assertThat(archive.find(full.getSetup()).length, is(12));
+		}
+	}
+
+	/**
+	 * Statistics over the whole archive, streamed in parallel; thread count mustn't matter
+	 */
+	@Test
+	void statistics(@TempDir Path directory) throws IOException {
+		BitBoard skirmish = new BitBoard();
+		skirmish.put(new Marshal(RED), 2, 2);
+		skirmish.put(new Flag(RED), 0, 0);
+		skirmish.put(new Sergeant(BLUE), 3, 2);
+		skirmish.put(new Spy(BLUE), 4, 4);
+		skirmish.put(new Flag(BLUE), 5, 5);
+
+		try (GameArchive archive = new GameArchive(directory, 512)) {
+			for (int i = 0; i < 10; i++)
+				archive.append(play(16));
+			// Same red setup every time, but blue moves its flag for the last game
+			BitBoard moved = new BitBoard(skirmish);
+			moved.put(null, 5, 5);
+			moved.put(new Flag(BLUE), 5, 4);
+			for (int i = 0; i < 3; i++) {
+				BetaGame game = new BetaGame(i < 2 ? skirmish : moved);
+				GameRecord record = new GameRecord(game.copyBoard());
+				game.addListener(record);
+				game.move(2, 2, 3, 2);
+				game.move(4, 4, 4, 3);
+				archive.append(record);
+			}
+			assertThat(archive.getSegments(), is(greaterThan(1)));
+
+			final ForkJoinPool single = new ForkJoinPool(1);
+			final GameStatistics stats = new ArchiveAnalyzer(archive, single).statistics();
+			single.shutdown();
+			assertThat(stats.getGames(), is(13L));
+			assertThat(stats.getRedWins(), is(10L));
+			assertThat(stats.getBlueWins(), is(0L));
+			assertThat(stats.getMeanLength(), is(closeTo(166.0 / 13, 1e-9)));
+			assertThat(stats.getLengths()[16], is(10L));
+			assertThat(stats.getLengths()[2], is(3L));
+			assertThat(stats.getStrikes(MARSHAL, SERGEANT, GameStatistics.ATTACKER_WINS), is(3L));
+			assertThat(stats.getStrikes(SERGEANT, MARSHAL, GameStatistics.ATTACKER_WINS), is(0L));
+			assertThat(stats.getFirstCaptures()[1], is(3L));
+			assertThat(stats.getFirstCaptures()[17], is(10L));
+			assertThat(stats.getMeanFirstCapture(), is(1.0));
+
+			final BitBoard master = play(0).getSetup();
+			assertThat(stats.getLineups(RED), containsInAnyOrder(master.getKey(RED), skirmish.getKey(RED)));
+			assertThat(stats.getLineups(BLUE), containsInAnyOrder(master.getKey(BLUE), skirmish.getKey(BLUE),
+					moved.getKey(BLUE)));
+			assertThat(moved.getKey(RED), is(skirmish.getKey(RED)));
+			assertThat(stats.getLineupGames(RED, master.getKey(RED)), is(10L));
+			assertThat(stats.getLineupGames(BLUE, master.getKey(BLUE)), is(10L));
+			assertThat(stats.getLineupRedWinRate(RED, master.getKey(RED)), is(1.0));
+			assertThat(stats.getLineupBlueWinRate(BLUE, master.getKey(BLUE)), is(0.0));
+			assertThat(stats.getLineupGames(RED, skirmish.getKey(RED)), is(3L));
+			assertThat(stats.getLineupGames(BLUE, skirmish.getKey(BLUE)), is(2L));
+			assertThat(stats.getLineupGames(BLUE, moved.getKey(BLUE)), is(1L));
+			assertThat(stats.getLineupRedWinRate(RED, skirmish.getKey(RED)), is(0.0));
+			assertThat(stats.getOtherLineupGames(RED), is(0L));
+			assertThat(stats.getOtherLineupGames(BLUE), is(0L));
+
+			final ForkJoinPool pool = new ForkJoinPool(4);
+			final GameStatistics parallel = new ArchiveAnalyzer(archive, pool).statistics();
+			assertThat(parallel.getLengths(), is(equalTo(stats.getLengths())));
+			assertThat(parallel.getStrikes(MARSHAL, SERGEANT, GameStatistics.ATTACKER_WINS), is(3L));
+
+			// Segments cut into single games
+			final int[] bounds = archive.split(0, 1);
+			assertThat(bounds.length, is(greaterThan(2)));
+			assertThat(bounds[0], is(0));
+			final GameStatistics fine = new ArchiveAnalyzer(archive, pool, 1).statistics();
+			pool.shutdown();
+			assertThat(fine.getGames(), is(13L));
+			assertThat(fine.getLengths(), is(equalTo(stats.getLengths())));
+			assertThat(fine.getFirstCaptures(), is(equalTo(stats.getFirstCaptures())));
+
+			// Histograms follow the rules; games under other rules are refused
+			assertThat(stats.getLengths().length, is(2 * BetaGame.TURN_LIMIT + 2));
+			final GameStatistics gamma = new GameStatistics(RuleSet.GAMMA);
+			assertThat(gamma.getLengths().length, is(GameStatistics.UNLIMITED_PLIES + 2));
+			assertThrows(IllegalArgumentException.class, () -> gamma.add(play(2)));
+			assertThrows(IllegalArgumentException.class, () -> gamma.combine(stats));
+
+			// Custom aggregations work the same way
+			final long[] moves = new ArchiveAnalyzer(archive).aggregate(() -> new long[1],
+					(total, record) -> total[0] += record.size(), (a, b) -> new long[]{a[0] + b[0]});
+			assertThat(moves[0], is(166L));
+		}
+	}
+}
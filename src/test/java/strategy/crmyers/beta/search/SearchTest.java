@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.search;
+
+import org.junit.jupiter.api.Test;
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.Move;
+import strategy.Piece;
+import strategy.crmyers.beta.PieceDefined;
+import strategy.crmyers.beta.RepetitionHistory;
+import strategy.crmyers.beta.RuleSet;
+import strategy.crmyers.beta.pieces.*;
+import strategy.crmyers.beta.sim.Policy;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+import static strategy.Piece.PieceType.*;
+
+/**
+ * Tests for the search engine and its supporting pieces
+ */
+class SearchTest {
+
+	/**
+	 * Store/probe round trip, plus depth-preferred replacement
+	 */
+	@Test
+	void transpositionTable() {
+		TranspositionTable table = new TranspositionTable(1000);
+		assertThat(table.size(), is(512));
+		assertThat(table.probe(42), is(0L));
+
+		table.store(42, 123, -500, 3, TranspositionTable.LOWER);
+		final long entry = table.probe(42);
+		assertThat(TranspositionTable.move(entry), is(123));
+		assertThat(TranspositionTable.score(entry), is(-500));
+		assertThat(TranspositionTable.depth(entry), is(3));
+		assertThat(TranspositionTable.bound(entry), is(TranspositionTable.LOWER));
+
+		// Same slot, different position, shallower: the deeper entry stays put...
+		table.store(42 + 512, 7, 0, 2, TranspositionTable.EXACT);
+		assertThat(table.probe(42 + 512), is(0L));
+		assertThat(TranspositionTable.depth(table.probe(42)), is(3));
+
+		// ...unless it's from an older search
+		table.newSearch();
+		table.store(42 + 512, 7, 0, 2, TranspositionTable.EXACT);
+		assertThat(table.probe(42), is(0L));
+		assertThat(TranspositionTable.move(table.probe(42 + 512)), is(7));
+
+		// Storing without a move keeps the old one for the same position
+		table.store(42 + 512, 0, 10, 4, TranspositionTable.UPPER);
+		assertThat(TranspositionTable.move(table.probe(42 + 512)), is(7));
+	}
+
+	/**
+	 * Hammer a tiny table from several threads; every hit has to belong to the key that was asked for
+	 */
+	@Test
+	void transpositionTableThreads() throws InterruptedException {
+		final TranspositionTable table = new TranspositionTable(16);
+		final AtomicInteger bad = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int seed = t;
+			threads[t] = new Thread(() -> {
+				for (long i = 0; i < 100000; i++) {
+					final long key = (i * 31 + seed) * 0x9E3779B97F4A7C15L;
+					table.store(key, (int) (key & 0x3FFF), (short) (key >>> 20), 1, TranspositionTable.EXACT);
+					final long entry = table.probe(key);
+					if (entry != 0 && TranspositionTable.move(entry) != (int) (key & 0x3FFF))
+						bad.incrementAndGet();
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertThat(bad.get(), is(0));
+	}
+
+	/**
+	 * A flag sitting right next to the marshal should be taken immediately, and the board must come back untouched
+	 */
+	@Test
+	void alphaBeta() {
+		BitBoard board = new BitBoard();
+		board.put(new Marshal(RED), 0, 0);
+		board.put(new Flag(RED), 5, 0);
+		board.put(new Flag(BLUE), 0, 1);
+		board.put(new Sergeant(BLUE), 5, 5);
+		BitBoard before = new BitBoard(board);
+
+		AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(1 << 12));
+		SearchResult result = search.search(board, 1000, 4);
+		assertThat(result.getMove(), is(Move.pack(0, 1)));
+		assertThat(result.getScore(), is(AlphaBetaSearch.WIN - 1));
+		assertThat(result.isDecisive(), is(true));
+		assertThat(result.getPrincipalVariation().length, is(1));
+		assertThat(board, is(equalTo(before)));
+		assertThat(board.getDepth(), is(0));
+
+		// Without the flag in reach, the search should still return a legal move and leave the board alone
+		board = new BitBoard();
+		board.put(new Marshal(RED), 0, 0);
+		board.put(new Flag(RED), 5, 0);
+		board.put(new Flag(BLUE), 3, 3);
+		board.put(new Sergeant(BLUE), 5, 5);
+		before = new BitBoard(board);
+		result = search.search(board, 1000, 3);
+		assertThat(result.getMove(), is(not(0)));
+		assertThat(result.getDepth(), is(3));
+		assertThat(result.getNodes(), is(greaterThan(0L)));
+		assertThat(board, is(equalTo(before)));
+	}
+
+	/**
+	 * Repetition draws depend on how the position was reached, so they must stay out of the shared table
+	 */
+	@Test
+	void repetitionScoresStayOutOfTable() {
+		final RuleSet rules = new RuleSet(6, 6, new BitSet(), RuleSet.NO_TURN_LIMIT, false,
+				RuleSet.lineup(FLAG, MARSHAL));
+		final BitBoard board = new BitBoard(rules);
+		board.put(new Flag(RED), 0, 0);
+		board.put(new Marshal(RED), 0, 1);
+		board.put(new Flag(BLUE), 5, 5);
+		board.put(new Marshal(BLUE), 5, 4);
+		final long root = TranspositionTable.key(board);
+
+		// The game already went through the position after marshal up, so that move is a repetition draw
+		board.makeMove(RuleSet.BETA.pack(0, 1, 1, 1));
+		final long seen = board.getKey();
+		board.unmakeMove();
+		final RepetitionHistory history = new RepetitionHistory();
+		history.push(seen, Move.NONE);
+		history.push(board.getKey(), Move.NONE);
+
+		final TranspositionTable table = new TranspositionTable(1 << 12);
+		new AlphaBetaSearch(table).search(board, history, 1000, 1);
+		assertThat(table.probe(root), is(0L));
+
+		// Reached without the detour, the same search is stored as usual
+		new AlphaBetaSearch(table).search(board, 1000, 1);
+		assertThat(table.probe(root), is(not(0L)));
+	}
+
+	/**
+	 * Solve a few small positions exactly: a flag in reach, a race neither side can finish in time, and a lost flag
+	 */
+	@Test
+	void solver() {
+		BitBoard board = new BitBoard();
+		board.put(new Marshal(RED), 0, 0);
+		board.put(new Flag(RED), 5, 0);
+		board.put(new Flag(BLUE), 0, 1);
+		board.put(new Sergeant(BLUE), 5, 5);
+		SearchResult result = new Solver().solve(board);
+		assertThat(result.getMove(), is(Move.pack(0, 1)));
+		assertThat(result.getScore(), is(AlphaBetaSearch.WIN));
+		assertThat(result.getPrincipalVariation().length, is(1));
+
+		// Both flags are too far away to reach, so red wins on the turn limit; the answer can't depend on thread count
+		board = new BitBoard();
+		board.put(new Marshal(RED), 5, 5);
+		board.put(new Flag(RED), 5, 0);
+		board.put(new Flag(BLUE), 0, 0);
+		board.put(new Sergeant(BLUE), 0, 5);
+		BitBoard before = new BitBoard(board);
+		result = new Solver().solve(board);
+		assertThat(result.getScore(), is(AlphaBetaSearch.WIN));
+		assertThat(result.getDepth(), is(16));
+		assertThat(result.getNodes(), is(greaterThan(0L)));
+		assertThat(board, is(equalTo(before)));
+		ForkJoinPool single = new ForkJoinPool(1);
+		assertThat(new Solver(new TranspositionTable(1 << 16), single).solve(board).getScore(),
+				is(AlphaBetaSearch.WIN));
+		single.shutdown();
+
+		// Blue's marshal sits next to red's flag, and red can't do anything about it
+		board = new BitBoard();
+		board.put(new Sergeant(RED), 5, 5);
+		board.put(new Flag(RED), 0, 0);
+		board.put(new Flag(BLUE), 0, 5);
+		board.put(new Marshal(BLUE), 1, 0);
+		result = new Solver().solve(board);
+		assertThat(result.getScore(), is(-AlphaBetaSearch.WIN));
+		assertThat(result.getPrincipalVariation().length, is(2));
+		assertThat(result.getPrincipalVariation()[1], is(Move.pack(6, 0)));
+	}
+
+	/**
+	 * MCTS should find an obvious flag capture, leave the board alone, and repeat itself given the same seed
+	 */
+	@Test
+	void monteCarlo() {
+		BitBoard board = new BitBoard();
+		board.put(new Marshal(RED), 0, 0);
+		board.put(new Flag(RED), 5, 0);
+		board.put(new Flag(BLUE), 0, 1);
+		board.put(new Sergeant(BLUE), 5, 5);
+		BitBoard before = new BitBoard(board);
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+		MonteCarloSearch search = new MonteCarloSearch(Policy.RANDOM, pool, 2);
+		SearchResult result = search.search(board, 10000, 2000, 42);
+		assertThat(result.getMove(), is(Move.pack(0, 1)));
+		assertThat(result.getScore(), is(1000));
+		assertThat(result.getNodes(), is(2000L));
+		assertThat(board, is(equalTo(before)));
+		assertThat(board.getDepth(), is(0));
+
+		// Same seed, same answer, regardless of how the threads were scheduled
+		board.put(null, 0, 1);
+		board.put(new Flag(BLUE), 3, 3);
+		SearchResult first = search.search(board, 10000, 1000, 7);
+		SearchResult second = search.search(board, 10000, 1000, 7);
+		assertThat(first.getMove(), is(second.getMove()));
+		assertThat(first.getScore(), is(second.getScore()));
+		assertThat(first.getPrincipalVariation(), is(second.getPrincipalVariation()));
+		pool.shutdown();
+	}
+
+	/**
+	 * Under the repetition rule, MCTS goes by the game's history and the solver stays out of it
+	 */
+	@Test
+	void repetitionRule() {
+		// 3x3 board split down the middle by choke points; each sergeant can only shuffle up and down its own column
+		final BitSet chokes = new BitSet();
+		chokes.set(1);
+		chokes.set(4);
+		chokes.set(7);
+		final RuleSet rules = new RuleSet(3, 3, chokes, RuleSet.NO_TURN_LIMIT, true, RuleSet.lineup(FLAG, SERGEANT));
+		final BitBoard board = new BitBoard(rules);
+		board.put(new Flag(RED), 0, 0);
+		board.put(new Sergeant(RED), 2, 0);
+		board.put(new Flag(BLUE), 0, 2);
+		board.put(new Sergeant(BLUE), 2, 2);
+
+		// Fresh from the position, red has a move; after going there and back, moving there again breaks the rule
+		ForkJoinPool pool = new ForkJoinPool(2);
+		MonteCarloSearch search = new MonteCarloSearch(Policy.RANDOM, pool, 2);
+		assertThat(search.search(board, 10000, 100, 1).getMove(), is(rules.pack(2, 0, 1, 0)));
+		final BetaGame game = new BetaGame(board, false);
+		game.move(2, 0, 1, 0);
+		game.move(2, 2, 1, 2);
+		game.move(1, 0, 2, 0);
+		game.move(1, 2, 2, 2);
+		final SearchResult result = search.search(game, 10000, 100, 1);
+		assertThat(result.getMove(), is(0));
+		assertThat(game.copyBoard(), is(equalTo(board)));
+		pool.shutdown();
+
+		assertThrows(IllegalArgumentException.class, () -> new Solver().solve(board));
+	}
+
+	/**
+	 * Samples keep everything the observer knows and shuffle everything else
+	 */
+	@Test
+	void informationSet() {
+		BitBoard board = new BitBoard();
+		board.put(new Marshal(RED), 5, 5);
+		board.put(new Flag(RED), 5, 0);
+		board.put(new Flag(BLUE), 0, 0);
+		board.put(new Bomb(BLUE), 0, 1);
+		board.put(new Scout(BLUE), 0, 2);
+		board.put(new Marshal(BLUE), 0, 4);
+		board.put(new Sergeant(BLUE), 1, 3);
+		board.put(new Captain(BLUE), 4, 5);
+
+		// The sergeant got to (1, 3) by moving; the captain was shown by striking the marshal
+		InformationSet info = new InformationSet(RED);
+		info.observe(BLUE, Move.pack(3, 9), PieceDefined.MoveResult.OK);
+		info.observe(RED, Move.pack(35, 29), PieceDefined.MoveResult.STRIKE_RED);
+		assertThat(info.getMoved(), is(1L << 9));
+		assertThat((info.getRevealed() & (1L << 29)) != 0, is(true));
+
+		BitBoard before = new BitBoard(board);
+		SplittableRandom random = new SplittableRandom(1);
+		Set<Piece.PieceType> corner = new HashSet<>();
+		for (int i = 0; i < 200; i++) {
+			BitBoard sample = info.sample(board, random);
+			assertThat(sample.getPieceAt(1, 3).getPieceType(), is(not(anyOf(equalTo(BOMB), equalTo(FLAG)))));
+			assertThat(sample.getPieceAt(4, 5).getPieceType(), is(CAPTAIN));
+			assertThat(sample.getPieceAt(5, 5).getPieceType(), is(MARSHAL));
+			assertThat(sample.getPieceAt(5, 0).getPieceType(), is(FLAG));
+			assertThat(Long.bitCount(sample.getPieces(BLUE, FLAG)), is(1));
+			assertThat(Long.bitCount(sample.getPieces(BLUE, BOMB)), is(1));
+			assertThat(sample.getOccupied(), is(board.getOccupied()));
+			corner.add(sample.getPieceAt(0, 0).getPieceType());
+		}
+		assertThat(corner.size(), is(greaterThan(1)));
+		assertThat(board, is(equalTo(before)));
+
+		// Searching through the information set leaves the real board alone, and only works for the observer
+		ForkJoinPool pool = new ForkJoinPool(2);
+		MonteCarloSearch search = new MonteCarloSearch(Policy.RANDOM, pool, 8);
+		SearchResult result = search.search(board, info, 10000, 800, 3);
+		assertThat(result.getMove(), is(not(0)));
+		assertThat(board, is(equalTo(before)));
+		assertThrows(IllegalArgumentException.class,
+				() -> search.search(board, new InformationSet(BLUE), 10000, 800, 3));
+		pool.shutdown();
+	}
+
+	/**
+	 * Beliefs should narrow down as pieces move and strike
+	 */
+	@Test
+	void beliefState() {
+		BitBoard board = new BitBoard();
+		board.put(new Sergeant(RED), 5, 5);
+		board.put(new Flag(RED), 5, 0);
+		board.put(new Captain(RED), 3, 3);
+		board.put(new Miner(RED), 1, 1);
+		board.put(new Flag(BLUE), 0, 0);
+		board.put(new Bomb(BLUE), 0, 1);
+		board.put(new Scout(BLUE), 0, 2);
+		board.put(new Sergeant(BLUE), 0, 4);
+		board.put(new Marshal(BLUE), 1, 3);
+
+		BeliefState beliefs = new BeliefState(board, RED);
+		assertThat(beliefs.probability(0, FLAG), is(closeTo(0.2, 1e-9)));
+		assertThat(beliefs.probability(0, CAPTAIN), is(0.0));
+		assertThat(beliefs.mostLikely(35), is(nullValue()));
+
+		// Only scouts move more than one square
+		beliefs.observe(BLUE, Move.pack(2, 20), PieceDefined.MoveResult.OK);
+		assertThat(beliefs.probability(20, SCOUT), is(closeTo(1, 1e-9)));
+		assertThat(beliefs.probability(2, SCOUT), is(0.0));
+		assertThat(beliefs.probability(0, SCOUT), is(lessThan(0.2)));
+
+		// Moving rules out bombs and flags; beating a captain rules out everything but the marshal
+		beliefs.observe(BLUE, Move.pack(9, 15), PieceDefined.MoveResult.OK);
+		assertThat(beliefs.probability(15, BOMB), is(0.0));
+		assertThat(beliefs.probability(15, FLAG), is(0.0));
+		beliefs.observe(BLUE, Move.pack(15, 21), PieceDefined.MoveResult.STRIKE_BLUE);
+		assertThat(beliefs.mostLikely(21), is(MARSHAL));
+		assertThat(beliefs.probability(21, MARSHAL), is(closeTo(1, 1e-9)));
+		assertThat(beliefs.probability(4, MARSHAL), is(lessThan(0.05)));
+
+		// A miner winning a strike against something that never moved probably took out the bomb
+		beliefs.observe(RED, Move.pack(7, 1), PieceDefined.MoveResult.STRIKE_RED);
+		assertThat((beliefs.getEnemies() & (1L << 1)), is(0L));
+		assertThat(beliefs.getRemaining(BOMB), is(lessThan(0.5)));
+		for (long bits = beliefs.getEnemies(); bits != 0; bits &= bits - 1) {
+			double sum = 0;
+			for (Piece.PieceType type : Piece.PieceType.values())
+				sum += beliefs.probability(Long.numberOfTrailingZeros(bits), type);
+			assertThat(sum, is(closeTo(1, 1e-9)));
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+
+package strategy.crmyers.beta.sim;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import strategy.StrategyException;
+import strategy.crmyers.beta.BitBoard;
+import strategy.crmyers.beta.MasterGame;
+import strategy.crmyers.beta.MoveGenerator;
+import strategy.crmyers.beta.RuleSet;
+import strategy.crmyers.beta.pieces.Flag;
+import strategy.crmyers.beta.pieces.Sergeant;
+import strategy.gpollice.testutil.TestBoard;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+import static strategy.Piece.PieceType.FLAG;
+import static strategy.Piece.PieceType.SERGEANT;
+
+/**
+ * Tests for the game simulator
+ */
+class SimulationTest {
+
+	private TestBoard setup;
+
+	/**
+	 * Same lineup as the master tests
+	 */
+	@BeforeEach
+	void setupLocal() {
+		setup = MasterGame.board();
+	}
+
+	/**
+	 * Totals have to add up, and no game can outlast the turn limit
+	 */
+	@Test
+	void totals() {
+		final SimulationResult result = new Simulator(setup).run(5000, 1);
+		assertThat(result.getGames(), is(5000L));
+		assertThat(result.getRedWins() + result.getBlueWins() + result.getDraws(), is(5000L));
+		assertThat(result.getDraws(), is(0L));
+		assertThat(result.getMeanLength(), is(lessThanOrEqualTo(16.0)));
+		assertThat(result.getMeanLength(), is(greaterThan(0.0)));
+	}
+
+	/**
+	 * The same seed has to give the same totals, however many threads are playing
+	 */
+	@Test
+	void reproducible() {
+		final ForkJoinPool single = new ForkJoinPool(1);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		final SimulationResult one = new Simulator(setup, Policy.RANDOM, single).run(10000, 42);
+		final SimulationResult four = new Simulator(setup, Policy.RANDOM, pool).run(10000, 42);
+		assertThat(four.getRedWins(), is(equalTo(one.getRedWins())));
+		assertThat(four.getMoves(), is(equalTo(one.getMoves())));
+
+		final SimulationResult other = new Simulator(setup, Policy.RANDOM, pool).run(10000, 43);
+		assertThat(other.getMoves(), is(not(equalTo(one.getMoves()))));
+		single.shutdown();
+		pool.shutdown();
+	}
+
+	/**
+	 * Without a turn limit, games that can't end are called a draw instead of running forever
+	 */
+	@Test
+	void endlessDraw() throws StrategyException {
+		// 3x3 board split down the middle by choke points; each sergeant can only shuffle up and down its own column
+		final BitSet chokes = new BitSet();
+		chokes.set(1);
+		chokes.set(4);
+		chokes.set(7);
+		final RuleSet rules = new RuleSet(3, 3, chokes, RuleSet.NO_TURN_LIMIT, false,
+				RuleSet.lineup(FLAG, SERGEANT));
+		final BitBoard board = new BitBoard(rules);
+		board.put(new Flag(RED), 0, 0);
+		board.put(new Sergeant(RED), 2, 0);
+		board.put(new Flag(BLUE), 0, 2);
+		board.put(new Sergeant(BLUE), 2, 2);
+		final long key = board.getKey();
+
+		final int result = Playout.play(board, Policy.RANDOM, new SplittableRandom(1), new int[MoveGenerator.MAX_MOVES]);
+		assertThat(Playout.outcome(result), is(Playout.DRAW));
+		assertThat(Playout.length(result), is(Playout.MAX_PLIES));
+		assertThat(board.getKey(), is(key));
+		assertThat(board.getDepth(), is(0));
+
+		final SimulationResult totals = new Simulator(board, Policy.RANDOM, ForkJoinPool.commonPool()).run(10, 1);
+		assertThat(totals.getDraws(), is(10L));
+
+		// With the repetition rule, red runs out of moves first: there, back, and the only way on is a repeat
+		final BitBoard repeating = new BitBoard(new RuleSet(3, 3, chokes, RuleSet.NO_TURN_LIMIT, true,
+				RuleSet.lineup(FLAG, SERGEANT)), board);
+		final int repeated = Playout.play(repeating, Policy.RANDOM, new SplittableRandom(1),
+				new int[MoveGenerator.MAX_MOVES]);
+		assertThat(Playout.outcome(repeated), is(Playout.BLUE_WINS));
+		assertThat(Playout.length(repeated), is(4));
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2019 Christopher Myers
+ *
+ * This file is part of cs4233-strategy.
+ *
+ * cs4233-strategy is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * cs4233-strategy is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with cs4233-strategy.  If not, see <https://www.gnu.org/licenses/>.
+ * ======
+ *
+ * This file was developed as part of CS 4233: Object Oriented Analysis &
+ * Design, at Worcester Polytechnic Institute.
+ */
+package strategy.crmyers.beta.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import strategy.StrategyGame;
+import strategy.crmyers.beta.BetaBoard;
+import strategy.crmyers.beta.BetaGame;
+import strategy.crmyers.beta.GameRecord;
+import strategy.crmyers.beta.MasterGame;
+import strategy.crmyers.beta.Move;
+import strategy.crmyers.beta.PieceDefined;
+import strategy.crmyers.beta.RuleSet;
+import strategy.crmyers.beta.VariantGame;
+import strategy.gpollice.testutil.TestBoard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static strategy.Piece.PieceColor.BLUE;
+import static strategy.Piece.PieceColor.RED;
+import static strategy.Piece.PieceType.FLAG;
+import static strategy.Piece.PieceType.MARSHAL;
+
+/**
+ * Tests for the event-sourced game store
+ */
+class StoreTest {
+
+	private static BetaGame newGame() {
+		return new BetaGame(MasterGame.board());
+	}
+
+	private static StrategyGame.MoveResult play(BetaGame game, int index) {
+		return MasterGame.play(game, index);
+	}
+
+	@Test
+	void events() {
+		final int move = GameEvent.move(BLUE, RuleSet.BETA.pack(4, 2, 3, 2) | Move.STRIKE, PieceDefined.MoveResult.STRIKE_RED);
+		assertThat(GameEvent.kind(move), is(GameEvent.MOVE));
+		assertThat(GameEvent.getMove(move), is(RuleSet.BETA.pack(4, 2, 3, 2)));
+		assertThat(GameEvent.getColor(move), is(BLUE));
+		assertThat(GameEvent.getMoveResult(move), is(PieceDefined.MoveResult.STRIKE_RED));
+
+		assertThat(GameEvent.getTurns(GameEvent.turn(7)), is(7));
+		assertThat(GameEvent.getResult(GameEvent.end(StrategyGame.MoveResult.BLUE_WINS)),
+				is(StrategyGame.MoveResult.BLUE_WINS));
+		for (int event : new int[]{move, GameEvent.turn(7), GameEvent.end(StrategyGame.MoveResult.RED_WINS)})
+			assertThat(GameEvent.isValid(event), is(true));
+		assertThat(GameEvent.isValid(0), is(false));
+		assertThat(GameEvent.isValid(-1), is(false));
+	}
+
+	@Test
+	void recover(@TempDir Path dir) throws IOException {
+		final GameStore store = new GameStore(dir, 4);
+		final BetaGame game = newGame();
+		final GameStore.Recorder recorder = store.track("game-1", game);
+		for (int i = 0; i < 5; i++)
+			play(game, i);
+
+		// Five moves and two turn changes, with a snapshot after the fourth event
+		assertThat(recorder.getEvents(), is(7L));
+		assertThat(store.tail("game-1").length, is(3));
+		assertThat(store.games(), contains("game-1"));
+
+		// Recovering the game takes it off the recorder that had it
+		final BetaGame recovered = store.recover("game-1");
+		assertThat(recorder.isClosed(), is(true));
+		assertThat(recovered.copyBoard(), is(equalTo(game.copyBoard())));
+		assertThat(recovered.getTurns(), is(game.getTurns()));
+		assertThat(recovered.getColorTurn(), is(game.getColorTurn()));
+		assertThat(recovered.isOver(), is(false));
+
+		// The recovered game carries on being stored, right up to the end
+		for (int i = 5; i < 16; i++)
+			assertThat(play(recovered, i), is(play(game, i)));
+		assertThat(recovered.isOver(), is(true));
+		assertThat(store.tail("game-1").length, is(0));
+		assertThat(recorder.getEvents(), is(7L));
+
+		final BetaGame finished = store.recover("game-1");
+		assertThat(finished.isOver(), is(true));
+		assertThat(finished.copyBoard(), is(equalTo(game.copyBoard())));
+		assertThat(finished.move(1, 1, 2, 1), is(StrategyGame.MoveResult.GAME_OVER));
+
+		store.remove("game-1");
+		assertThat(store.games(), is(empty()));
+		assertThrows(FileNotFoundException.class, () -> store.recover("game-1"));
+
+		// Delta games have no listener hooks to store through
+		final StrategyGame delta = new VariantGame(RuleSet.DELTA, new BetaBoard(RuleSet.DELTA));
+		assertThrows(IllegalArgumentException.class, () -> store.track("delta", delta));
+		assertThat(store.games(), is(empty()));
+	}
+
+	@Test
+	void illegalMoveEndsStoredGame(@TempDir Path dir) throws IOException {
+		final GameStore store = new GameStore(dir);
+		final BetaGame game = newGame();
+		store.track("g", game);
+		play(game, 0);
+		assertThat(game.move(0, 0, 5, 5), is(StrategyGame.MoveResult.BLUE_WINS));
+		assertThat(store.recover("g").isOver(), is(true));
+	}
+
+	/**
+	 * Storing a game doesn't knock off its other listeners, and listeners can be taken off again
+	 */
+	@Test
+	void storeAlongsideOtherListeners(@TempDir Path dir) throws IOException {
+		final GameStore store = new GameStore(dir);
+		final BetaGame game = newGame();
+		final GameRecord record = new GameRecord(game.copyBoard());
+		game.addListener(record);
+		final GameStore.Recorder recorder = store.track("both", game);
+		play(game, 0);
+		play(game, 1);
+		assertThat(record.size(), is(2));
+		assertThat(recorder.getEvents(), is(3L));
+
+		assertThat(game.removeListener(record), is(true));
+		assertThat(game.removeListener(record), is(false));
+		play(game, 2);
+		assertThat(record.size(), is(2));
+		assertThat(recorder.getEvents(), is(4L));
+
+		// Once the store lets go of the game, the recorder stops writing to it
+		store.remove("both");
+		assertThat(recorder.isClosed(), is(true));
+		play(game, 3);
+		assertThat(recorder.getEvents(), is(4L));
+		assertThat(Files.exists(dir.resolve("both.log")), is(false));
+		store.close();
+	}
+
+	/**
+	 * The repetition window comes back with the game, from the snapshot and from replaying the log
+	 */
+	@Test
+	void repetitionSurvivesRecovery(@TempDir Path dir) throws IOException {
+		final TestBoard board = new TestBoard(6, 6);
+		board.initialize(6, 6, board.makeLineup(RED, FLAG, MARSHAL), board.makeLineup(BLUE, FLAG, MARSHAL));
+		final RuleSet rules = new RuleSet(6, 6, new BitSet(), RuleSet.NO_TURN_LIMIT, true,
+				RuleSet.lineup(FLAG, MARSHAL));
+
+		// Snapshot after every event, so nothing's replayed; then never, so everything is
+		for (int interval : new int[]{1, 100}) {
+			final GameStore store = new GameStore(dir.resolve("every-" + interval), interval);
+			final BetaGame game = new BetaGame(rules, board);
+			store.track("repeat", game);
+			game.move(0, 1, 1, 1);
+			game.move(5, 4, 4, 4);
+			game.move(1, 1, 0, 1);
+			game.move(4, 4, 5, 4);
+			assertThat(store.tail("repeat").length, is(interval == 1 ? 0 : 6));
+
+			final BetaGame recovered = store.recover("repeat");
+			assertThat(recovered.getRepetitions(), is(1));
+			assertThat(recovered.move(0, 1, 1, 1), is(StrategyGame.MoveResult.BLUE_WINS));
+		}
+	}
+
+	@Test
+	void crashMidCompaction(@TempDir Path dir) throws IOException {
+		final GameStore store = new GameStore(dir, 3);
+		final BetaGame game = newGame();
+		store.track("g", game);
+		play(game, 0);
+		play(game, 1);
+
+		// Red's move, blue's move and the turn change got snapshotted; put them back in the log as though the process
+		// died before compacting it, and tear the next event in half
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeLong(0);
+			out.writeInt(GameEvent.move(RED, RuleSet.BETA.pack(1, 1, 2, 1), PieceDefined.MoveResult.OK));
+			out.writeInt(GameEvent.move(BLUE, RuleSet.BETA.pack(4, 2, 3, 2), PieceDefined.MoveResult.OK));
+			out.writeInt(GameEvent.turn(1));
+			out.writeShort(0x1234);
+		}
+		Files.write(dir.resolve("g.log"), bytes.toByteArray());
+
+		assertThat(store.tail("g").length, is(0));
+		final BetaGame recovered = store.recover("g");
+		assertThat(recovered.copyBoard(), is(equalTo(game.copyBoard())));
+
+		// Recovery cut the torn event off the log, so the next move is logged where it belongs and the game recovers
+		// again, and keeps going after that
+		play(recovered, 2);
+		assertThat(store.tail("g").length, is(1));
+		final BetaGame again = store.recover("g");
+		assertThat(again.copyBoard(), is(equalTo(recovered.copyBoard())));
+		play(again, 3);
+		play(again, 4);
+		assertThat(store.recover("g").copyBoard(), is(equalTo(again.copyBoard())));
+
+		// Garbage isn't replayed; that last recovery snapshotted all seven events
+		final ByteArrayOutputStream garbage = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(garbage)) {
+			out.writeLong(7);
+			out.writeInt(0xFFFFFFFF);
+		}
+		Files.write(dir.resolve("g.log"), garbage.toByteArray());
+		assertThrows(IOException.class, () -> store.recover("g"));
+		assertThrows(IllegalArgumentException.class, () -> store.recover("../g"));
+	}
+}